@@ -0,0 +1,104 @@
+/**
+ * @author Josh Guevarra
+ *
+ *	Accumulator - Reusable match counts and scores indexed by dense location ID. The IDs of the locations
+ *				  touched by a search are listed so only those entries are reset afterwards.
+ *
+ * @see AccumulatorPool
+ */
+class Accumulator
+{
+	/**
+	 * counts - The number of matches of each location
+	 */
+	int[] counts = new int[0];
+
+	/**
+	 * scores - The score of each location
+	 */
+	double[] scores = new double[0];
+
+	/**
+	 * touched - The IDs of the locations with at least one match, in the order they were found
+	 */
+	int[] touched = new int[0];
+
+	/**
+	 * size - The number of locations with at least one match
+	 */
+	int size = 0;
+
+	/**
+	 * reset - Makes room for every location ID of an inverted index
+	 *
+	 * @param capacity - The number of location IDs
+	 */
+	void reset(int capacity)
+	{
+		if (counts.length < capacity)
+		{
+			int length = Math.max(capacity, counts.length * 2);
+			counts = new int[length];
+			scores = new double[length];
+			touched = new int[length];
+		}
+
+		size = 0;
+	}
+
+	/**
+	 * capacity - Returns the number of location IDs there is room for
+	 *
+	 * @return Returns the length of the arrays
+	 */
+	int capacity()
+	{
+		return counts.length;
+	}
+
+	/**
+	 * add - Adds matches and score to a location
+	 *
+	 * @param id - The location ID
+	 * @param count - The number of new matches, at least 1
+	 * @param score - The score to add
+	 */
+	void add(int id, int count, double score)
+	{
+		if (counts[id] == 0)
+		{
+			touched[size++] = id;
+		}
+
+		counts[id] += count;
+		scores[id] += score;
+	}
+
+	/**
+	 * merge - Adds the matches and scores of another accumulator, in the order it found its locations
+	 *
+	 * @param other - The accumulator to merge
+	 */
+	void merge(Accumulator other)
+	{
+		for (int t = 0; t < other.size; t++)
+		{
+			int id = other.touched[t];
+			add(id, other.counts[id], other.scores[id]);
+		}
+	}
+
+	/**
+	 * clear - Resets the entries of the touched locations
+	 */
+	void clear()
+	{
+		for (int t = 0; t < size; t++)
+		{
+			counts[touched[t]] = 0;
+			scores[touched[t]] = 0;
+		}
+
+		size = 0;
+	}
+}
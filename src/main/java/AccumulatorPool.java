@@ -0,0 +1,86 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	AccumulatorPool - The idle score accumulators of one inverted index, reused by its searches. Only a
+ *					  few are kept idle, and accumulators that grew far larger than the inverted index are
+ *					  dropped, so the pool never holds on to more memory than its searches need at once.
+ */
+class AccumulatorPool
+{
+	/**
+	 * MAX_IDLE_ACCUMULATORS - The most idle score accumulators kept. Searches needing more at once allocate
+	 * 						   the others, which are dropped afterwards.
+	 */
+	private static final int MAX_IDLE_ACCUMULATORS = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * accumulators - The idle score accumulators
+	 */
+	private final ConcurrentLinkedQueue<Accumulator> accumulators;
+
+	/**
+	 * idle - The number of idle score accumulators
+	 */
+	private final AtomicInteger idle;
+
+	/**
+	 * Initializes an empty pool
+	 */
+	public AccumulatorPool()
+	{
+		this.accumulators = new ConcurrentLinkedQueue<Accumulator>();
+		this.idle = new AtomicInteger();
+	}
+
+	/**
+	 * borrow - Returns an idle score accumulator, or a new one if none is idle
+	 *
+	 * @param capacity - The number of location IDs the accumulator must make room for
+	 * @return Returns an empty accumulator with room for every location ID
+	 */
+	public Accumulator borrow(int capacity)
+	{
+		Accumulator accumulator = accumulators.poll();
+
+		if (accumulator == null)
+		{
+			accumulator = new Accumulator();
+		}
+
+		else
+		{
+			idle.decrementAndGet();
+		}
+
+		accumulator.reset(capacity);
+		return accumulator;
+	}
+
+	/**
+	 * release - Clears a score accumulator and keeps it for the next search, unless enough accumulators are
+	 * 			 idle already or its arrays grew past twice the number of location IDs
+	 *
+	 * @param accumulator - The accumulator the search is done with
+	 * @param capacity - The number of location IDs of the inverted index
+	 */
+	public void release(Accumulator accumulator, int capacity)
+	{
+		accumulator.clear();
+
+		if (accumulator.capacity() > 2 * Math.max(1, capacity))
+		{
+			return;
+		}
+
+		if (idle.incrementAndGet() > MAX_IDLE_ACCUMULATORS)
+		{
+			idle.decrementAndGet();
+			return;
+		}
+
+		accumulators.offer(accumulator);
+	}
+}
@@ -0,0 +1,133 @@
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	CollectionStatistics - The collection-wide values scorers need: the number of locations, their total
+ *						   number of words, and the number of locations containing each word of a set of
+ *						   queries. The statistics of several inverted indexes holding different locations
+ *						   add up to the statistics of their union, so shards of one collection can score
+ *						   their own locations exactly as a single inverted index would. They are plain
+ *						   values, so they can be gathered from shards that do not share a heap.
+ */
+public class CollectionStatistics
+{
+	/**
+	 * version - The version of the collection the statistics were gathered from
+	 */
+	private final long version;
+
+	/**
+	 * numDocuments - The number of locations
+	 */
+	private final int numDocuments;
+
+	/**
+	 * totalWords - The total number of words of every location
+	 */
+	private final long totalWords;
+
+	/**
+	 * frequencies - The number of locations containing each word
+	 */
+	private final Map<String, Integer> frequencies;
+
+	/**
+	 * Initializes the statistics of a collection
+	 *
+	 * @param version - The version of the collection the statistics were gathered from
+	 * @param numDocuments - The number of locations
+	 * @param totalWords - The total number of words of every location
+	 * @param frequencies - The number of locations containing each word
+	 */
+	public CollectionStatistics(long version, int numDocuments, long totalWords, Map<String, Integer> frequencies)
+	{
+		this.version = version;
+		this.numDocuments = numDocuments;
+		this.totalWords = totalWords;
+		this.frequencies = Collections.unmodifiableMap(frequencies);
+	}
+
+	/**
+	 * sum - Adds up the statistics of collections holding different locations
+	 *
+	 * @param version - The version of the union of the collections
+	 * @param parts - The statistics of each collection
+	 * @return Returns the statistics of the union of the collections
+	 */
+	public static CollectionStatistics sum(long version, Collection<CollectionStatistics> parts)
+	{
+		int numDocuments = 0;
+		long totalWords = 0;
+		Map<String, Integer> frequencies = new HashMap<String, Integer>();
+
+		for (CollectionStatistics part : parts)
+		{
+			numDocuments += part.numDocuments;
+			totalWords += part.totalWords;
+
+			for (Map.Entry<String, Integer> entry : part.frequencies.entrySet())
+			{
+				frequencies.merge(entry.getKey(), entry.getValue(), Integer::sum);
+			}
+		}
+
+		return new CollectionStatistics(version, numDocuments, totalWords, frequencies);
+	}
+
+	/**
+	 * getVersion - Returns the version of the collection the statistics were gathered from
+	 *
+	 * @return Returns the version of the collection
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * getNumDocuments - Returns the number of locations
+	 *
+	 * @return Returns the number of locations
+	 */
+	public int getNumDocuments()
+	{
+		return numDocuments;
+	}
+
+	/**
+	 * getAverageLength - Returns the average number of words per location
+	 *
+	 * @return Returns the average number of words per location, or 0 if there are none
+	 */
+	public double getAverageLength()
+	{
+		return numDocuments == 0 ? 0 : (double) totalWords / numDocuments;
+	}
+
+	/**
+	 * getDocumentFrequency - Returns the number of locations containing a word
+	 *
+	 * @param word - The word
+	 * @param missing - The number to return if the word was not gathered
+	 * @return Returns the number of locations containing the word
+	 */
+	public int getDocumentFrequency(String word, int missing)
+	{
+		return frequencies.getOrDefault(word, missing);
+	}
+
+	/**
+	 * toString - Returns a short report of the statistics
+	 *
+	 * @return Returns a short report of the statistics
+	 */
+	@Override
+	public String toString()
+	{
+		return String.format("%d locations averaging %.1f words, %d words gathered", numDocuments, getAverageLength(), frequencies.size());
+	}
+}
@@ -34,6 +34,16 @@ public class Driver
 	 */
 	private static final Path defaultJsonPath = Path.of("results.json");
 
+	/**
+	 * defaultExplainPath - The default path of the query explanations
+	 */
+	private static final Path defaultExplainPath = Path.of("explain.txt");
+
+	/**
+	 * defaultExplainResults - The number of results explained for each query
+	 */
+	private static final int defaultExplainResults = 10;
+
 	/**
 	 * defaultNumThreads - The default number of threads
 	 */
@@ -44,6 +54,21 @@ public class Driver
 	 */
 	private static final int PORT = 8080;
 
+	/**
+	 * defaultPrefixLength - The default longest prefix stored in the prefix table
+	 */
+	private static final int defaultPrefixLength = 2;
+
+	/**
+	 * defaultMaxEdits - The default maximum number of edits of a fuzzy exact search
+	 */
+	private static final int defaultMaxEdits = 2;
+
+	/**
+	 * defaultNumShards - The default number of shards of a sharded inverted index
+	 */
+	private static final int defaultNumShards = ShardedInvertedIndex.DEFAULT_SHARDS;
+
 	/**
 	 * Initializes the classes necessary based on the provided command-line
 	 * arguments. This includes (but is not limited to) how to build or search an
@@ -65,8 +90,17 @@ public class Driver
 		QuerySearchInterface searcher = null;
 
 		WebCrawler crawler = null;
+		DuplicateTracker duplicates = argMap.hasFlag("-dedup") ? new DuplicateTracker() : null;
+		Scorer scorer = Scorer.forName(argMap.getString("-scorer", "matches"));
+
+		if (scorer == null)
+		{
+			System.out.println("Unknown scorer: " + argMap.getString("-scorer") + ", using matches instead.");
+			scorer = Scorer.MATCHES;
+		}
 
-		if (argMap.hasFlag("-threads"))
+		// a watched index is updated while the server searches it, so it must be thread-safe
+		if (argMap.hasFlag("-threads") || argMap.hasFlag("-watch"))
 		{
 			int numThreads;
 
@@ -80,26 +114,28 @@ public class Driver
 				numThreads = argMap.getInteger("-threads");
 			}
 
-			threadSafeIndex = new ThreadSafeInvertedIndex();
+			threadSafeIndex = argMap.hasFlag("-shards") ? new ShardedInvertedIndex(argMap.getInteger("-shards", defaultNumShards))
+					: new ThreadSafeInvertedIndex();
 			index = threadSafeIndex;
 
 			tasks = new WorkQueue(numThreads);
-			searcher = new MultithreadedSearcher(threadSafeIndex, tasks);
+			searcher = new MultithreadedSearcher(threadSafeIndex, tasks, argMap.hasFlag("-proximity"), scorer);
 		}
 
 		else
 		{
 			index = new InvertedIndex();
-			searcher = new QuerySearcher(index);
+			searcher = new QuerySearcher(index, argMap.hasFlag("-proximity"), scorer);
 		}
 
 		if (argMap.hasFlag("-html"))
 		{
 			if (!argMap.hasFlag("-threads"))
 			{
-				threadSafeIndex = new ThreadSafeInvertedIndex();
+				threadSafeIndex = argMap.hasFlag("-shards") ? new ShardedInvertedIndex(argMap.getInteger("-shards", defaultNumShards))
+						: new ThreadSafeInvertedIndex();
 				tasks = new WorkQueue(defaultNumThreads);
-				searcher = new MultithreadedSearcher(threadSafeIndex, tasks);
+				searcher = new MultithreadedSearcher(threadSafeIndex, tasks, argMap.hasFlag("-proximity"), scorer);
 			}
 
 			int maxCrawlLimit;
@@ -114,28 +150,31 @@ public class Driver
 				maxCrawlLimit = 1;
 			}
 
-			crawler = new WebCrawler(threadSafeIndex, tasks, maxCrawlLimit);
+			crawler = new WebCrawler(threadSafeIndex, tasks, maxCrawlLimit, duplicates);
 			crawler.crawlUrl(new URL(argMap.getString("-html")));
 			index = threadSafeIndex;
+
+			if (argMap.hasFlag("-fuzzy"))
+			{
+				index.setMaxEdits(argMap.getInteger("-fuzzy", defaultMaxEdits));
+			}
+
+			index.freeze();
+
+			if (argMap.hasFlag("-prefix"))
+			{
+				index.setPrefixLength(argMap.getInteger("-prefix", defaultPrefixLength));
+				System.out.println(index.prefixReport());
+			}
+
+			if (duplicates != null)
+			{
+				System.out.println(duplicates);
+			}
 			
 			if (argMap.hasFlag("-server"))
 			{
-				Server server = new Server(argMap.getInteger(argMap.getString("-server"), PORT));
-				ServletHandler handler = new ServletHandler();
-				try 
-				{
-					handler.addServletWithMapping(new ServletHolder(new SearchEngineServlet(searcher, 
-							argMap.hasFlag("-exact"))), "/search");
-					
-					server.setHandler(handler);
-					server.start();
-					server.join();
-				} 
-				
-				catch (Exception e) 
-				{
-					e.printStackTrace();	
-				}
+				serve(argMap, searcher);
 			}	
 		}
 
@@ -145,12 +184,12 @@ public class Driver
 			{
 				if (tasks != null && threadSafeIndex != null)
 				{
-					MultithreadedBuilder.findTextFiles(argMap.getPath("-text", defaultPath), threadSafeIndex, tasks);
+					MultithreadedBuilder.findTextFiles(argMap.getPath("-text", defaultPath), threadSafeIndex, tasks, duplicates);
 				}
 
 				else
 				{
-					InvertedIndexBuilder.findTextFiles(argMap.getPath("-text", defaultPath), index);
+					InvertedIndexBuilder.findTextFiles(argMap.getPath("-text", defaultPath), index, duplicates);
 				}
 			}
 
@@ -158,13 +197,31 @@ public class Driver
 			{
 				System.out.println("Unable to build the inverted index from the path: " + argMap.getPath("-text", defaultPath));
 			}
+
+			if (argMap.hasFlag("-fuzzy"))
+			{
+				index.setMaxEdits(argMap.getInteger("-fuzzy", defaultMaxEdits));
+			}
+
+			index.freeze();
+
+			if (argMap.hasFlag("-prefix"))
+			{
+				index.setPrefixLength(argMap.getInteger("-prefix", defaultPrefixLength));
+				System.out.println(index.prefixReport());
+			}
+
+			if (duplicates != null)
+			{
+				System.out.println(duplicates);
+			}
 		}
 
 		if (argMap.hasFlag("-query") && argMap.getPath("-query") != null)
 		{
 			try
 			{
-				searcher.search(argMap.getPath("-query"), argMap.hasFlag("-exact"));
+				searcher.search(argMap.getPath("-query"), argMap.hasFlag("-exact"), argMap.hasFlag("-and"));
 
 			}
 
@@ -174,6 +231,11 @@ public class Driver
 			}
 		}
 
+		if (index != null && index.gramReport() != null)
+		{
+			System.out.println(index.gramReport());
+		}
+
 		if (argMap.hasFlag("-index"))
 		{
 			try
@@ -214,14 +276,101 @@ public class Driver
 			}
 		}
 
+		if (argMap.hasFlag("-explain") && argMap.hasFlag("-query") && argMap.getPath("-query") != null)
+		{
+			try
+			{
+				searcher.explain(argMap.getPath("-query"), argMap.getPath("-explain", defaultExplainPath),
+						argMap.hasFlag("-exact"), argMap.hasFlag("-and"), defaultExplainResults);
+			}
+
+			catch (IOException e)
+			{
+				System.out.println("Unable to explain the queries to the path: " + argMap.getPath("-explain", defaultExplainPath));
+			}
+		}
+
+		if (argMap.hasFlag("-text") && !argMap.hasFlag("-html") && argMap.hasFlag("-server"))
+		{
+			IndexWatcher watcher = null;
+
+			if (argMap.hasFlag("-watch"))
+			{
+				try
+				{
+					// the watcher updates the index the server searches, so every search sees the latest files
+					watcher = new IndexWatcher(argMap.getPath("-text", defaultPath), index);
+					Thread thread = new Thread(watcher, "IndexWatcher");
+					thread.setDaemon(true);
+					thread.start();
+				}
+
+				catch (IOException e)
+				{
+					System.out.println("Unable to watch the path: " + argMap.getPath("-text", defaultPath));
+				}
+			}
+
+			serve(argMap, searcher);
+
+			if (watcher != null)
+			{
+				try
+				{
+					watcher.close();
+				}
+
+				catch (IOException e)
+				{
+					System.out.println("Unable to stop watching the path: " + argMap.getPath("-text", defaultPath));
+				}
+			}
+		}
+
+		else if (argMap.hasFlag("-watch"))
+		{
+			System.out.println("The -watch flag requires -text and -server, the watched index is only seen through the server.");
+		}
+
 		if (tasks != null)
 		{
 			tasks.shutdown();
 		}
 
+		if (threadSafeIndex instanceof ShardedInvertedIndex)
+		{
+			((ShardedInvertedIndex) threadSafeIndex).shutdown();
+		}
+
 		// calculate time elapsed and output
 		Duration elapsed = Duration.between(start, Instant.now());
 		double seconds = (double) elapsed.toMillis() / Duration.ofSeconds(1).toMillis();
 		System.out.printf("Elapsed: %f seconds%n", seconds);
 	}
+
+	/**
+	 * serve - Launches the search engine web server and blocks until it stops
+	 *
+	 * @param argMap - The command-line arguments
+	 * @param searcher - The searcher used to answer the queries of the server
+	 */
+	private static void serve(ArgumentMap argMap, QuerySearchInterface searcher)
+	{
+		Server server = new Server(argMap.getInteger(argMap.getString("-server"), PORT));
+		ServletHandler handler = new ServletHandler();
+		try 
+		{
+			handler.addServletWithMapping(new ServletHolder(new SearchEngineServlet(searcher, 
+					argMap.hasFlag("-exact"))), "/search");
+			
+			server.setHandler(handler);
+			server.start();
+			server.join();
+		} 
+		
+		catch (Exception e) 
+		{
+			e.printStackTrace();	
+		}
+	}
 }
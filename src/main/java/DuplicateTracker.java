@@ -0,0 +1,207 @@
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	DuplicateTracker - Fingerprints the content of documents before they are indexed so copies of
+ *					   a document already in the index are recorded as aliases instead of being
+ *					   stemmed and added again. Of all the copies of a document, the one with the
+ *					   smallest location is indexed no matter which copy is found first, so the
+ *					   inverted index is the same however many threads build it.
+ */
+public class DuplicateTracker
+{
+	/**
+	 * ALGORITHM - The message digest algorithm used to fingerprint content
+	 */
+	private static final String ALGORITHM = "SHA-256";
+
+	/**
+	 * fingerprints - The content fingerprints mapped to the smallest location found with that content
+	 */
+	private final Map<String, String> fingerprints;
+
+	/**
+	 * indexed - The content fingerprints mapped to the location added to the inverted index
+	 */
+	private final Map<String, String> indexed;
+
+	/**
+	 * pending - The locations registered to be indexed mapped to their fingerprint, until they are added
+	 */
+	private final Map<String, String> pending;
+
+	/**
+	 * aliases - The duplicate locations mapped to the location that was indexed instead
+	 */
+	private final Map<String, String> aliases;
+
+	/**
+	 * skippedBytes - The total size of the duplicate content that was not indexed
+	 */
+	private long skippedBytes;
+
+	/**
+	 * Initializes the necessary data structures for this class
+	 */
+	public DuplicateTracker()
+	{
+		this.fingerprints = new HashMap<String, String>();
+		this.indexed = new HashMap<String, String>();
+		this.pending = new HashMap<String, String>();
+		this.aliases = new TreeMap<String, String>();
+		this.skippedBytes = 0;
+	}
+
+	/**
+	 * register - Fingerprints the content of a location. The smallest location with some content is
+	 * 			  registered as the one to index, and every other location with the same content is
+	 * 			  recorded as its alias. A location registered to be indexed must then be added with
+	 * 			  {@link #add(String, InvertedIndex, InvertedIndex)}, which skips it if a smaller copy
+	 * 			  was registered in the meantime.
+	 *
+	 * @param location - The location of the content
+	 * @param content - The raw content of the location
+	 * @return Returns the smaller location registered with the same content, or null if the
+	 * 		   location should be indexed
+	 */
+	public String register(String location, byte[] content)
+	{
+		String fingerprint = fingerprint(content);
+
+		synchronized (this)
+		{
+			String original = fingerprints.putIfAbsent(fingerprint, location);
+
+			if (original == null || original.equals(location))
+			{
+				pending.put(location, fingerprint);
+				return null;
+			}
+
+			if (original.compareTo(location) < 0)
+			{
+				aliases.put(location, original);
+				skippedBytes += content.length;
+				return original;
+			}
+
+			// the smaller location replaces the one registered before it, along with its aliases
+			fingerprints.put(fingerprint, location);
+			aliases.replaceAll((alias, target) -> target.equals(original) ? location : target);
+			aliases.put(original, location);
+			skippedBytes += content.length;
+			pending.put(location, fingerprint);
+			return null;
+		}
+	}
+
+	/**
+	 * add - Adds a registered location to the inverted index, removing the larger copy added before it
+	 * 		 if there is one. Nothing is added if a smaller copy was registered since the location was.
+	 *
+	 * @param location - The location registered by {@link #register(String, byte[])}
+	 * @param local - The inverted index holding only the location
+	 * @param index - The inverted index to add the location to
+	 * @return Returns true if the location was added to the inverted index
+	 */
+	public synchronized boolean add(String location, InvertedIndex local, InvertedIndex index)
+	{
+		String fingerprint = pending.remove(location);
+
+		if (fingerprint == null || !location.equals(fingerprints.get(fingerprint)))
+		{
+			return false;
+		}
+
+		String previous = indexed.put(fingerprint, location);
+
+		if (previous != null && !previous.equals(location))
+		{
+			index.remove(previous);
+		}
+
+		index.addAll(local);
+		return true;
+	}
+
+	/**
+	 * fingerprint - Computes the fingerprint of some content
+	 *
+	 * @param content - The content to fingerprint
+	 * @return Returns the fingerprint encoded as a string
+	 */
+	private static String fingerprint(byte[] content)
+	{
+		try
+		{
+			return Base64.getEncoder().encodeToString(MessageDigest.getInstance(ALGORITHM).digest(content));
+		}
+
+		catch (NoSuchAlgorithmException e)
+		{
+			// every java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * getAliases - Returns an unmodifiable copy of the duplicate locations mapped to the location
+	 * 				that was indexed instead
+	 *
+	 * @return Returns an unmodifiable copy of the duplicate locations
+	 */
+	public synchronized Map<String, String> getAliases()
+	{
+		return Collections.unmodifiableMap(new TreeMap<String, String>(aliases));
+	}
+
+	/**
+	 * getAlias - Returns the location indexed instead of a duplicate location
+	 *
+	 * @param location - The duplicate location
+	 * @return Returns the location indexed instead, or null if the location is not a duplicate
+	 */
+	public synchronized String getAlias(String location)
+	{
+		return aliases.get(location);
+	}
+
+	/**
+	 * numDuplicates - Returns the number of duplicate locations that were not indexed
+	 *
+	 * @return Returns the number of duplicate locations that were not indexed
+	 */
+	public synchronized int numDuplicates()
+	{
+		return aliases.size();
+	}
+
+	/**
+	 * getSkippedBytes - Returns the total size of the duplicate content that was not indexed
+	 *
+	 * @return Returns the total size of the duplicate content that was not indexed
+	 */
+	public synchronized long getSkippedBytes()
+	{
+		return skippedBytes;
+	}
+
+	/**
+	 * toString - Returns a report of how much work was skipped
+	 *
+	 * @return Returns a report of how much work was skipped
+	 */
+	@Override
+	public synchronized String toString()
+	{
+		return String.format("Skipped %d duplicate documents (%d bytes) out of %d unique documents.",
+				aliases.size(), skippedBytes, fingerprints.size());
+	}
+}
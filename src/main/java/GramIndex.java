@@ -0,0 +1,314 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	GramIndex - The words of an inverted index keyed by each of their GRAM_LENGTH letter grams, used to
+ *				find the words matching a wildcard pattern without scanning every word. It is built by the
+ *				first wildcard query without a budget, or in the background for the first one with a
+ *				budget, and then kept up to date as words are added and removed.
+ */
+class GramIndex
+{
+	/**
+	 * GRAM_LENGTH - The number of letters in a gram
+	 */
+	private static final int GRAM_LENGTH = 3;
+
+	/**
+	 * GRAM_BOUNDARY - The character marking the start and end of a word in its grams
+	 */
+	private static final char GRAM_BOUNDARY = '$';
+
+	/**
+	 * GRAM_ENTRY_BYTES - The estimated memory used by one word in the set of words of a gram
+	 */
+	private static final int GRAM_ENTRY_BYTES = 40;
+
+	/**
+	 * GRAM_SET_BYTES - The estimated memory used by a gram and its empty set of words
+	 */
+	private static final int GRAM_SET_BYTES = 160;
+
+	/**
+	 * index - The words of the inverted index mapped to their locations
+	 */
+	private final NavigableMap<String, TreeMap<String, TreeSet<Integer>>> index;
+
+	/**
+	 * prepare - Builds the gram index the way the inverted index allows, such as under its read lock
+	 */
+	private final Runnable prepare;
+
+	/**
+	 * grams - The words keyed by each of their grams, or null until the gram index is built
+	 */
+	private volatile Map<String, TreeSet<String>> grams;
+
+	/**
+	 * started - Whether a budgeted wildcard query started building the gram index in the background
+	 */
+	private final AtomicBoolean started;
+
+	/**
+	 * Initializes a gram index that is not built yet
+	 *
+	 * @param index - The words of the inverted index mapped to their locations
+	 * @param prepare - Builds the gram index the way the inverted index allows
+	 */
+	public GramIndex(NavigableMap<String, TreeMap<String, TreeSet<Integer>>> index, Runnable prepare)
+	{
+		this.index = index;
+		this.prepare = prepare;
+		this.grams = null;
+		this.started = new AtomicBoolean();
+	}
+
+	/**
+	 * wildcard - Returns the words matching a wildcard pattern, where each '*' matches any number of letters.
+	 * 			  Candidate words are the ones sharing every gram of the letters around the wildcards, with the
+	 * 			  start and end of the word marked, and each candidate is then checked against the pattern.
+	 * 			  A pattern without any complete gram falls back on the words starting with its first letters,
+	 * 			  or on every word if it starts with a wildcard. A budgeted search never builds the gram index
+	 * 			  itself: until it is built in the background, its candidates are the words starting with the
+	 * 			  first letters of the pattern. Either way the budget is charged for every matching word and
+	 * 			  its clock checked while candidates are scanned.
+	 *
+	 * @param pattern - The wildcard pattern
+	 * @param budget - The budget charged for each word, or null to not limit the words
+	 * @return Returns the matching words in the inverted index that fit in the budget, in sorted order
+	 */
+	public List<String> wildcard(String pattern, SearchBudget budget)
+	{
+		String[] pieces = pattern.split("\\*", -1);
+		List<String> keys = new ArrayList<String>();
+		List<TreeSet<String>> postings = new ArrayList<TreeSet<String>>();
+		Set<String> needed = new HashSet<String>();
+
+		for (int i = 0; i < pieces.length; i++)
+		{
+			String piece = (i == 0 ? GRAM_BOUNDARY + pieces[i] : pieces[i]) + (i == pieces.length - 1 ? GRAM_BOUNDARY : "");
+			needed.addAll(grams(piece));
+		}
+
+		Map<String, TreeSet<String>> grams = needed.isEmpty() ? null : budget == null ? build() : this.grams;
+
+		if (grams == null && !needed.isEmpty() && started.compareAndSet(false, true))
+		{
+			ForkJoinPool.commonPool().execute(prepare);
+		}
+
+		for (String gram : grams == null ? Set.<String>of() : needed)
+		{
+			TreeSet<String> words = grams.get(gram);
+
+			if (words == null)
+			{
+				return keys;
+			}
+
+			postings.add(words);
+		}
+
+		postings.sort(Comparator.comparingInt(TreeSet::size));
+
+		Iterable<String> candidates = !postings.isEmpty() ? postings.get(0)
+				: index.subMap(pieces[0], true, pieces[0] + Character.MAX_VALUE, false).keySet();
+		long scanned = 0;
+
+		for (String candidate : candidates)
+		{
+			if (budget != null && ++scanned % InvertedIndex.BUDGET_CHECK_INTERVAL == 0 && budget.isExpired())
+			{
+				break;
+			}
+
+			boolean shared = true;
+
+			for (int i = 1; i < postings.size() && shared; i++)
+			{
+				shared = postings.get(i).contains(candidate);
+			}
+
+			if (shared && matches(candidate, pieces))
+			{
+				if (budget != null && !budget.expand(index.get(candidate).size()))
+				{
+					break;
+				}
+
+				keys.add(candidate);
+			}
+		}
+
+		return keys;
+	}
+
+	/**
+	 * matches - Checks a word against the pieces of a wildcard pattern: it must start with the first piece,
+	 * 			 end with the last one, and contain the others in order without overlapping
+	 *
+	 * @param word - The word to check
+	 * @param pieces - The letters between the wildcards of the pattern
+	 * @return Returns true if the word matches the pattern
+	 */
+	private static boolean matches(String word, String[] pieces)
+	{
+		if (!word.startsWith(pieces[0]))
+		{
+			return false;
+		}
+
+		int from = pieces[0].length();
+		int last = pieces.length - 1;
+
+		for (int i = 1; i < last; i++)
+		{
+			int found = word.indexOf(pieces[i], from);
+
+			if (found < 0)
+			{
+				return false;
+			}
+
+			from = found + pieces[i].length();
+		}
+
+		return word.length() - pieces[last].length() >= from && word.endsWith(pieces[last]);
+	}
+
+	/**
+	 * grams - Returns the grams of GRAM_LENGTH letters of a string
+	 *
+	 * @param text - The string, with the start or end of a word already marked
+	 * @return Returns the grams of the string
+	 */
+	private static List<String> grams(String text)
+	{
+		List<String> grams = new ArrayList<String>();
+
+		for (int i = 0; i + GRAM_LENGTH <= text.length(); i++)
+		{
+			grams.add(text.substring(i, i + GRAM_LENGTH));
+		}
+
+		return grams;
+	}
+
+	/**
+	 * build - Returns the gram index, building it from every word of the inverted index the first time it
+	 * 		   is needed. Searches only hold the read lock of a thread-safe index, so building is synchronized.
+	 *
+	 * @return Returns the words of the inverted index keyed by each of their grams
+	 */
+	public Map<String, TreeSet<String>> build()
+	{
+		Map<String, TreeSet<String>> built = grams;
+
+		if (built == null)
+		{
+			synchronized (this)
+			{
+				built = grams;
+
+				if (built == null)
+				{
+					built = new HashMap<String, TreeSet<String>>();
+
+					for (String word : index.keySet())
+					{
+						for (String gram : grams(GRAM_BOUNDARY + word + GRAM_BOUNDARY))
+						{
+							built.computeIfAbsent(gram, g -> new TreeSet<String>()).add(word);
+						}
+					}
+
+					grams = built;
+				}
+			}
+		}
+
+		return built;
+	}
+
+	/**
+	 * add - Adds a new word to the gram index if it has been built
+	 *
+	 * @param word - The new word
+	 */
+	public void add(String word)
+	{
+		if (grams != null)
+		{
+			for (String gram : grams(GRAM_BOUNDARY + word + GRAM_BOUNDARY))
+			{
+				grams.computeIfAbsent(gram, g -> new TreeSet<String>()).add(word);
+			}
+		}
+	}
+
+	/**
+	 * remove - Removes a word that is no longer in the inverted index from the gram index if it has been built
+	 *
+	 * @param word - The removed word
+	 */
+	public void remove(String word)
+	{
+		if (grams != null)
+		{
+			for (String gram : grams(GRAM_BOUNDARY + word + GRAM_BOUNDARY))
+			{
+				TreeSet<String> words = grams.get(gram);
+
+				if (words != null)
+				{
+					words.remove(word);
+
+					if (words.isEmpty())
+					{
+						grams.remove(gram);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * report - Returns a report of the size of the gram index. Memory is estimated from the number of grams
+	 * 			and entries, since words are shared with the rest of the inverted index.
+	 *
+	 * @return Returns a report of the size of the gram index, or null if no wildcard query has built it yet
+	 */
+	public String report()
+	{
+		Map<String, TreeSet<String>> built = grams;
+
+		if (built == null)
+		{
+			return null;
+		}
+
+		long entries = 0;
+
+		for (TreeSet<String> words : built.values())
+		{
+			entries += words.size();
+		}
+
+		long bytes = entries * GRAM_ENTRY_BYTES + built.size() * GRAM_SET_BYTES;
+
+		return String.format("Gram index of %d letters: %d grams, %d entries, about %.1f MB.",
+				GRAM_LENGTH, built.size(), entries, bytes / 1048576.0);
+	}
+}
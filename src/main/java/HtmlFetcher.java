@@ -1,11 +1,6 @@
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.net.MalformedURLException;
-import java.net.Socket;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -21,6 +16,12 @@ import java.util.regex.Pattern;
  * @version Fall 2021
  */
 public class HtmlFetcher {
+	/**
+	 * The keep-alive connections shared by every fetch, so pages of the same host
+	 * reuse the connections of the pages fetched before them.
+	 */
+	private static final HttpConnectionPool CONNECTIONS = new HttpConnectionPool();
+
 	/**
 	 * Returns {@code true} if and only if there is a "Content-Type" header and the
 	 * first value of that header starts with the value "text/html" (case
@@ -84,17 +85,15 @@ public class HtmlFetcher {
 	 * code is 200 and the content type is HTML, returns the HTML as a single string
 	 * joined by {@link System#lineSeparator()}. If the status code is a valid
 	 * redirect, will follow that redirect if the number of redirects is greater
-	 * than 0. Otherwise, returns {@code null}.
+	 * than 0. Otherwise, returns {@code null}. Connections are kept alive and
+	 * reused by later fetches from the same host.
 	 *
 	 * @param url the url to fetch
 	 * @param redirects the number of times to follow redirects
 	 * @return the html or {@code null} if unable to fetch the resource or the
 	 *   resource is not html
 	 *
-	 * @see HttpsFetcher#openConnection(URL)
-	 * @see HttpsFetcher#printGetRequest(PrintWriter, URL)
-	 * @see HttpsFetcher#getHeaderFields(BufferedReader)
-	 * @see HttpsFetcher#getContent(BufferedReader)
+	 * @see HttpConnectionPool#fetch(URL, java.util.function.Predicate)
 	 *
 	 * @see String#join(CharSequence, CharSequence...)
 	 * @see System#lineSeparator()
@@ -107,24 +106,12 @@ public class HtmlFetcher {
 		String html = null;
 
 		try
-		(
-				Socket socket = HttpsFetcher.openConnection(url);
-				PrintWriter request = new PrintWriter(socket.getOutputStream());
-				InputStreamReader input = new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8);
-				BufferedReader response = new BufferedReader(input);
-				)
-
 		{
-			HttpsFetcher.printGetRequest(request, url);
-			Map<String, List<String>> headers = HttpsFetcher.getHeaderFields(response);
-
-			int statusCode = getStatusCode(headers);
+			Map<String, List<String>> headers = CONNECTIONS.fetch(url, fields -> getStatusCode(fields) == 200 && isHtml(fields));
 
-			if (statusCode == 200 && isHtml(headers))
+			if (headers.containsKey("Content"))
 			{
-				List<String> content = HttpsFetcher.getContent(response);
-				headers.put("Content", content);
-				html = String.join(System.lineSeparator(), content);
+				html = String.join(System.lineSeparator(), headers.get("Content"));
 			}
 
  			if (isRedirect(headers) && redirects > 0)
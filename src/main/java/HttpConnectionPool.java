@@ -0,0 +1,692 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	HttpConnectionPool - Keeps HTTP/1.1 connections open between requests, so fetching many pages from the
+ *						 same host pays for the socket and the TLS handshake once instead of once per page.
+ *						 Idle connections are pooled per protocol, host and port. A connection is only put
+ *						 back in the pool once its response was read to the end and the server agreed to
+ *						 keep it alive, and a pooled connection the server closed or reset in the meantime is replaced
+ *						 by a fresh one. The pool is safe to share between the threads of a crawl.
+ */
+public class HttpConnectionPool
+{
+	/**
+	 * DEFAULT_MAX_IDLE - The default number of idle connections kept for each host
+	 */
+	public static final int DEFAULT_MAX_IDLE = 8;
+
+	/**
+	 * DEFAULT_IDLE_MILLIS - The default time an idle connection is kept, in milliseconds, just under the
+	 * 						 keep-alive timeout of common web servers
+	 */
+	public static final long DEFAULT_IDLE_MILLIS = 4000;
+
+	/**
+	 * MAX_DRAINED - The largest unwanted body read to the end to keep its connection, in bytes
+	 */
+	private static final long MAX_DRAINED = 65536;
+
+	/**
+	 * KEEP_ALIVE_TIMEOUT - Matches the timeout the server keeps an idle connection open for, in seconds
+	 */
+	private static final Pattern KEEP_ALIVE_TIMEOUT = Pattern.compile("(?i)timeout\\s*=\\s*(\\d+)");
+
+	/**
+	 * maxIdle - The maximum number of idle connections kept for each host
+	 */
+	private final int maxIdle;
+
+	/**
+	 * idleMillis - The maximum time an idle connection is kept, in milliseconds
+	 */
+	private final long idleMillis;
+
+	/**
+	 * idle - The idle connections of each host, the most recently used first
+	 */
+	private final Map<String, Deque<Connection>> idle;
+
+	/**
+	 * opened - The number of connections opened
+	 */
+	private final AtomicLong opened;
+
+	/**
+	 * reused - The number of requests sent on a pooled connection
+	 */
+	private final AtomicLong reused;
+
+	/**
+	 * Initializes a pool with the default limits
+	 */
+	public HttpConnectionPool()
+	{
+		this(DEFAULT_MAX_IDLE, DEFAULT_IDLE_MILLIS);
+	}
+
+	/**
+	 * Initializes a pool
+	 *
+	 * @param maxIdle - The maximum number of idle connections kept for each host
+	 * @param idleMillis - The maximum time an idle connection is kept, in milliseconds
+	 */
+	public HttpConnectionPool(int maxIdle, long idleMillis)
+	{
+		this.maxIdle = Math.max(0, maxIdle);
+		this.idleMillis = Math.max(0, idleMillis);
+		this.idle = new ConcurrentHashMap<String, Deque<Connection>>();
+		this.opened = new AtomicLong();
+		this.reused = new AtomicLong();
+	}
+
+	/**
+	 * fetch - Sends a GET request for the URL on a pooled connection, or on a new one if none is idle, and
+	 * 		   reads the response. The headers are returned as {@link HttpsFetcher#getHeaderFields(BufferedReader)}
+	 * 		   does, with the status line under the null key. The content is only read if the headers are
+	 * 		   wanted, and is then placed as a list of lines under the "Content" key like
+	 * 		   {@link HttpsFetcher#fetchURL(URL)} does.
+	 *
+	 * @param url - The URL to fetch
+	 * @param wanted - Decides from the headers whether the content is read
+	 * @return Returns a map of the headers, and of the content if it was wanted
+	 * @throws IOException - If unable to send the request or read the response
+	 */
+	public Map<String, List<String>> fetch(URL url, Predicate<Map<String, List<String>>> wanted) throws IOException
+	{
+		String key = key(url);
+		Connection connection;
+
+		// a pooled connection may have been closed or reset by the server since, so its request is sent again
+		while ((connection = take(key)) != null)
+		{
+			try
+			{
+				Map<String, List<String>> headers = exchange(key, connection, url, wanted);
+				reused.incrementAndGet();
+				return headers;
+			}
+
+			catch (NoResponseException e)
+			{
+				// the request failed before any of the response was read, exchange already closed it
+			}
+		}
+
+		opened.incrementAndGet();
+		return exchange(key, new Connection(HttpsFetcher.openConnection(url)), url, wanted);
+	}
+
+	/**
+	 * close - Closes every idle connection
+	 */
+	public void close()
+	{
+		for (Deque<Connection> connections : idle.values())
+		{
+			Connection connection;
+
+			while ((connection = connections.pollFirst()) != null)
+			{
+				connection.close();
+			}
+		}
+	}
+
+	/**
+	 * getOpened - Returns the number of connections opened
+	 *
+	 * @return Returns the number of connections opened
+	 */
+	public long getOpened()
+	{
+		return opened.get();
+	}
+
+	/**
+	 * getReused - Returns the number of requests sent on a pooled connection
+	 *
+	 * @return Returns the number of requests sent on a pooled connection
+	 */
+	public long getReused()
+	{
+		return reused.get();
+	}
+
+	/**
+	 * toString - Returns a short report of how often connections were reused
+	 *
+	 * @return Returns a short report of the pool
+	 */
+	@Override
+	public String toString()
+	{
+		long opened = getOpened();
+		long reused = getReused();
+		return String.format("Opened %d %s, reused %d %s", opened, opened == 1 ? "connection" : "connections", reused, reused == 1 ? "time" : "times");
+	}
+
+	/**
+	 * exchange - Sends the request on a connection and reads the response, then pools or closes the connection.
+	 * 			  Interim responses such as 103 Early Hints are skipped until the final response, and only a
+	 * 			  connection whose final response was read to the end is pooled.
+	 *
+	 * @param key - The protocol, host and port of the connection
+	 * @param connection - The connection
+	 * @param url - The URL to fetch
+	 * @param wanted - Decides from the headers whether the content is read
+	 * @return Returns a map of the headers, and of the content if it was wanted
+	 * @throws NoResponseException - If the request could not be sent or the connection failed before the status
+	 * 								 line was read
+	 * @throws IOException - If unable to read the rest of the response
+	 */
+	private Map<String, List<String>> exchange(String key, Connection connection, URL url,
+			Predicate<Map<String, List<String>>> wanted) throws IOException
+	{
+		boolean reusable = false;
+		boolean complete = false;
+
+		try
+		{
+			String status;
+
+			try
+			{
+				HttpsFetcher.printGetRequest(connection.request, url, true);
+
+				// the writer keeps its errors to itself until asked
+				if (connection.request.checkError())
+				{
+					throw new IOException("Unable to send the request to " + key);
+				}
+
+				status = readLine(connection.response);
+			}
+
+			catch (IOException e)
+			{
+				throw new NoResponseException("No response from " + key, e);
+			}
+
+			if (status == null)
+			{
+				throw new NoResponseException("Connection closed by " + key, null);
+			}
+
+			Map<String, List<String>> headers = readHeaders(connection.response, status, key);
+			int statusCode = statusCode(status);
+
+			// interim responses come before the final response to the same request, which 101 ends
+			while (statusCode / 100 == 1 && statusCode != 101)
+			{
+				status = readLine(connection.response);
+
+				if (status == null)
+				{
+					throw new IOException("Connection closed after an interim response from " + key);
+				}
+
+				headers = readHeaders(connection.response, status, key);
+				statusCode = statusCode(status);
+			}
+
+			reusable = status.regionMatches(true, 0, "HTTP/1.1", 0, 8) && !"close".equalsIgnoreCase(header(headers, "Connection"));
+			String length = header(headers, "Content-Length");
+			String encoding = header(headers, "Transfer-Encoding");
+
+			if (statusCode == 101)
+			{
+				// the connection no longer speaks HTTP once the protocol is switched
+				reusable = false;
+			}
+
+			else if (statusCode == 204 || statusCode == 304)
+			{
+				// these responses never have a body
+			}
+
+			else if (wanted.test(headers))
+			{
+				byte[] body;
+
+				if (encoding != null && encoding.toLowerCase(Locale.ROOT).endsWith("chunked"))
+				{
+					body = readChunked(connection.response);
+				}
+
+				else if (length != null)
+				{
+					body = readFully(connection.response, Long.parseLong(length.trim()));
+				}
+
+				else
+				{
+					body = connection.response.readAllBytes();
+					reusable = false;
+				}
+
+				String content = new String(body, StandardCharsets.UTF_8);
+				headers.put("Content", new BufferedReader(new StringReader(content)).lines().toList());
+			}
+
+			else if (reusable && length != null && (encoding == null || encoding.equalsIgnoreCase("identity"))
+					&& Long.parseLong(length.trim()) <= MAX_DRAINED)
+			{
+				readFully(connection.response, Long.parseLong(length.trim()));
+			}
+
+			else
+			{
+				// skipping an unknown or large body costs more than a new connection
+				reusable = false;
+			}
+
+			if (reusable)
+			{
+				connection.expires = System.currentTimeMillis() + keepAlive(headers);
+			}
+
+			complete = true;
+			return headers;
+		}
+
+		catch (NumberFormatException e)
+		{
+			throw new IOException("Invalid Content-Length from " + key, e);
+		}
+
+		finally
+		{
+			// a connection is only reused once its whole response was read
+			if (reusable && complete)
+			{
+				release(key, connection);
+			}
+
+			else
+			{
+				connection.close();
+			}
+		}
+	}
+
+	/**
+	 * take - Removes the most recently used idle connection of a host from the pool, closing the expired ones
+	 *
+	 * @param key - The protocol, host and port
+	 * @return Returns an idle connection, or null if there is none
+	 */
+	private Connection take(String key)
+	{
+		Deque<Connection> connections = idle.get(key);
+
+		if (connections == null)
+		{
+			return null;
+		}
+
+		long now = System.currentTimeMillis();
+		Connection connection;
+
+		while ((connection = connections.pollFirst()) != null)
+		{
+			if (connection.expires > now)
+			{
+				return connection;
+			}
+
+			connection.close();
+		}
+
+		return null;
+	}
+
+	/**
+	 * release - Puts a connection back in the pool, or closes it if the pool of its host is full
+	 *
+	 * @param key - The protocol, host and port of the connection
+	 * @param connection - The connection
+	 */
+	private void release(String key, Connection connection)
+	{
+		Deque<Connection> connections = idle.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<Connection>());
+
+		if (connections.size() < maxIdle)
+		{
+			connections.offerFirst(connection);
+		}
+
+		else
+		{
+			connection.close();
+		}
+	}
+
+	/**
+	 * keepAlive - Returns how long a connection may be kept idle after a response
+	 *
+	 * @param headers - The headers of the response
+	 * @return Returns the time the connection may be kept, in milliseconds
+	 */
+	private long keepAlive(Map<String, List<String>> headers)
+	{
+		String keepAlive = header(headers, "Keep-Alive");
+
+		if (keepAlive != null)
+		{
+			Matcher matcher = KEEP_ALIVE_TIMEOUT.matcher(keepAlive);
+
+			if (matcher.find() && matcher.group(1).length() < 10)
+			{
+				// leave a second for the request to reach the server before it gives up on the connection
+				return Math.min(idleMillis, Math.max(0, Long.parseLong(matcher.group(1)) - 1) * 1000);
+			}
+		}
+
+		return idleMillis;
+	}
+
+	/**
+	 * key - Returns the protocol, host and port a connection to the URL is pooled under
+	 *
+	 * @param url - The URL
+	 * @return Returns the key of the pool of the URL
+	 */
+	private static String key(URL url)
+	{
+		String protocol = url.getProtocol().toLowerCase(Locale.ROOT);
+		int port = url.getPort() < 0 ? url.getDefaultPort() : url.getPort();
+		return protocol + "://" + url.getHost().toLowerCase(Locale.ROOT) + ":" + port;
+	}
+
+	/**
+	 * header - Returns the first value of a header, ignoring the case of its name
+	 *
+	 * @param headers - The headers
+	 * @param name - The name of the header
+	 * @return Returns the first value of the header, or null if there is none
+	 */
+	private static String header(Map<String, List<String>> headers, String name)
+	{
+		for (Map.Entry<String, List<String>> header : headers.entrySet())
+		{
+			if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty())
+			{
+				return header.getValue().get(0);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * readHeaders - Reads the headers following a status line, up to the blank line ending them
+	 *
+	 * @param input - The input of the connection
+	 * @param status - The status line, placed under the null key
+	 * @param key - The protocol, host and port of the connection
+	 * @return Returns a map of the headers
+	 * @throws IOException - If the connection was closed before the end of the headers
+	 */
+	private static Map<String, List<String>> readHeaders(InputStream input, String status, String key) throws IOException
+	{
+		Map<String, List<String>> headers = new HashMap<>();
+		headers.put(null, List.of(status));
+
+		String line;
+
+		while ((line = readLine(input)) != null && !line.isBlank())
+		{
+			String[] split = line.split(":\\s+", 2);
+
+			if (split.length == 2)
+			{
+				headers.putIfAbsent(split[0], new ArrayList<>());
+				headers.get(split[0]).add(split[1]);
+			}
+		}
+
+		if (line == null)
+		{
+			throw new IOException("Connection closed while reading the headers from " + key);
+		}
+
+		return headers;
+	}
+
+	/**
+	 * statusCode - Parses the status code of a status line
+	 *
+	 * @param status - The status line
+	 * @return Returns the status code, or -1 if unable to parse it
+	 */
+	private static int statusCode(String status)
+	{
+		String[] split = status.split("\\s+", 3);
+
+		try
+		{
+			return split.length < 2 ? -1 : Integer.parseInt(split[1]);
+		}
+
+		catch (NumberFormatException e)
+		{
+			return -1;
+		}
+	}
+
+	/**
+	 * readLine - Reads one line of the status line or headers, which are ASCII and end with CRLF
+	 *
+	 * @param input - The input of the connection
+	 * @return Returns the line without its line ending, or null if the connection was closed first
+	 * @throws IOException - If unable to read from the connection
+	 */
+	private static String readLine(InputStream input) throws IOException
+	{
+		ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+		int b;
+
+		while ((b = input.read()) != -1 && b != '\n')
+		{
+			line.write(b);
+		}
+
+		if (b == -1 && line.size() == 0)
+		{
+			return null;
+		}
+
+		String text = line.toString(StandardCharsets.ISO_8859_1);
+		return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+	}
+
+	/**
+	 * readFully - Reads exactly a number of bytes of a body
+	 *
+	 * @param input - The input of the connection
+	 * @param length - The number of bytes
+	 * @return Returns the bytes read
+	 * @throws IOException - If the connection was closed before every byte was read
+	 */
+	private static byte[] readFully(InputStream input, long length) throws IOException
+	{
+		if (length < 0 || length > Integer.MAX_VALUE - 8)
+		{
+			throw new IOException("Invalid Content-Length " + length);
+		}
+
+		byte[] bytes = input.readNBytes((int) length);
+
+		if (bytes.length < length)
+		{
+			throw new IOException("Connection closed after " + bytes.length + " of " + length + " bytes");
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * readChunked - Reads a body sent with chunked transfer encoding, along with its trailers
+	 *
+	 * @param input - The input of the connection
+	 * @return Returns the bytes of every chunk
+	 * @throws IOException - If the chunks are malformed or the connection was closed before the last one
+	 */
+	private static byte[] readChunked(InputStream input) throws IOException
+	{
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		while (true)
+		{
+			String line = readLine(input);
+
+			if (line == null)
+			{
+				throw new IOException("Connection closed before the last chunk");
+			}
+
+			int extension = line.indexOf(';');
+			String size = (extension < 0 ? line : line.substring(0, extension)).trim();
+			long length;
+
+			try
+			{
+				length = Long.parseLong(size, 16);
+			}
+
+			catch (NumberFormatException e)
+			{
+				throw new IOException("Invalid chunk size " + size, e);
+			}
+
+			if (length == 0)
+			{
+				break;
+			}
+
+			body.write(readFully(input, length));
+
+			if (!"".equals(readLine(input)))
+			{
+				throw new IOException("Missing line ending after a chunk");
+			}
+		}
+
+		String trailer;
+
+		while ((trailer = readLine(input)) != null && !trailer.isEmpty())
+		{
+			// trailers are not used
+		}
+
+		if (trailer == null)
+		{
+			throw new IOException("Connection closed before the end of the trailers");
+		}
+
+		return body.toByteArray();
+	}
+
+	/**
+	 * NoResponseException - Thrown when a request fails before the status line of its response is read, which
+	 * 						 is how a pooled connection the server closed or reset in the meantime fails
+	 */
+	private static class NoResponseException extends IOException
+	{
+		/**
+		 * serialVersionUID - The version of the serialized form
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Initializes the exception
+		 *
+		 * @param message - The detail message
+		 * @param cause - The error the request failed with, or null if the connection was closed
+		 */
+		private NoResponseException(String message, IOException cause)
+		{
+			super(message, cause);
+		}
+	}
+
+	/**
+	 * Connection - A socket along with the buffered streams used to send requests and read responses on it
+	 */
+	private static class Connection
+	{
+		/**
+		 * socket - The socket
+		 */
+		private final Socket socket;
+
+		/**
+		 * request - The writer requests are sent with
+		 */
+		private final PrintWriter request;
+
+		/**
+		 * response - The buffered input responses are read from
+		 */
+		private final InputStream response;
+
+		/**
+		 * expires - The time the connection stops being reused, in milliseconds since the epoch
+		 */
+		private long expires;
+
+		/**
+		 * Initializes a connection on an open socket
+		 *
+		 * @param socket - The socket
+		 * @throws IOException - If unable to get the streams of the socket
+		 */
+		private Connection(Socket socket) throws IOException
+		{
+			this.socket = socket;
+			this.request = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+			this.response = new BufferedInputStream(socket.getInputStream());
+			this.expires = 0;
+		}
+
+		/**
+		 * close - Closes the socket, ignoring any error
+		 */
+		private void close()
+		{
+			try
+			{
+				socket.close();
+			}
+
+			catch (IOException e)
+			{
+				// the connection is discarded either way
+			}
+		}
+	}
+}
@@ -96,12 +96,28 @@ public class HttpsFetcher {
 	 * @throws IOException if unable to write request to socket
 	 */
 	public static void printGetRequest(PrintWriter writer, URL url) throws IOException {
+		printGetRequest(writer, url, false);
+	}
+
+	/**
+	 * Writes a simple HTTP GET request to the provided socket writer, asking the
+	 * server to either keep the connection open for more requests or close it
+	 * after the response.
+	 *
+	 * @param writer a writer created from a socket connection
+	 * @param url the url to fetch via the socket connection
+	 * @param keepAlive whether to ask the server to keep the connection open
+	 * @throws IOException if unable to write request to socket
+	 *
+	 * @see HttpConnectionPool
+	 */
+	public static void printGetRequest(PrintWriter writer, URL url, boolean keepAlive) throws IOException {
 		String host = url.getHost();
 		String resource = url.getFile().isEmpty() ? "/" : url.getFile();
 
 		writer.printf("GET %s HTTP/1.1\r\n", resource);
 		writer.printf("Host: %s\r\n", host);
-		writer.printf("Connection: close\r\n");
+		writer.printf("Connection: %s\r\n", keepAlive ? "keep-alive" : "close");
 		writer.printf("\r\n");
 		writer.flush();
 	}
@@ -0,0 +1,355 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	IndexWatcher - Keeps an inverted index built from the "-text" flag up to date by watching
+ *				   the file system and re-indexing only the files that were created, modified or deleted.
+ *				   Every search made after a file was re-indexed sees it, so the index must be thread-safe
+ *				   when it is searched while being watched, as the search engine web server does.
+ */
+public class IndexWatcher implements Runnable
+{
+	/**
+	 * log - The logger used for this class
+	 */
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * root - The path the inverted index was built from
+	 */
+	private final Path root;
+
+	/**
+	 * single - True if the root path is a single file, whose parent directory is only watched for it
+	 */
+	private final boolean single;
+
+	/**
+	 * index - The inverted index to keep up to date
+	 */
+	private final InvertedIndex index;
+
+	/**
+	 * watcher - The watch service notified of file system changes
+	 */
+	private final WatchService watcher;
+
+	/**
+	 * directories - The registered watch keys mapped to the directory they watch
+	 */
+	private final Map<WatchKey, Path> directories;
+
+	/**
+	 * Initializes the watch service and registers the root directory along with all of its
+	 * sub-directories
+	 *
+	 * @param root - The path the inverted index was built from
+	 * @param index - The inverted index to keep up to date
+	 * @throws IOException Throws an IOException if the directories cannot be registered
+	 */
+	public IndexWatcher(Path root, InvertedIndex index) throws IOException
+	{
+		this.root = root;
+		this.index = index;
+		this.watcher = root.getFileSystem().newWatchService();
+		this.directories = new HashMap<WatchKey, Path>();
+		this.single = !Files.isDirectory(root);
+
+		if (!single)
+		{
+			register(root);
+		}
+
+		else
+		{
+			Path parent = root.toAbsolutePath().getParent();
+			WatchKey key = parent.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+			directories.put(key, root.getParent() == null ? Path.of("") : root.getParent());
+		}
+	}
+
+	/**
+	 * register - Registers a directory and all of its sub-directories with the watch service
+	 *
+	 * @param directory - The directory to register
+	 * @throws IOException Throws an IOException if the directory cannot be read
+	 */
+	private void register(Path directory) throws IOException
+	{
+		WatchKey key = directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+		directories.put(key, directory);
+
+		try (DirectoryStream<Path> listings = Files.newDirectoryStream(directory))
+		{
+			for (Path path : listings)
+			{
+				if (Files.isDirectory(path))
+				{
+					register(path);
+				}
+			}
+		}
+	}
+
+	/**
+	 * run - Waits for file system changes and re-indexes the changed files until the watch
+	 * 		 service is closed or the thread is interrupted. Events that arrive together are
+	 * 		 handled as a single batch so a file saved several times is only re-indexed once.
+	 */
+	@Override
+	public void run()
+	{
+		try
+		{
+			while (true)
+			{
+				Set<Path> changed = new TreeSet<Path>();
+				WatchKey key = watcher.take();
+
+				while (key != null)
+				{
+					if (!poll(key, changed))
+					{
+						rescan();
+						changed.clear();
+					}
+
+					key = watcher.poll();
+				}
+
+				update(changed);
+				index.purge();
+			}
+		}
+
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		catch (ClosedWatchServiceException e)
+		{
+			log.debug("Watch service closed.");
+		}
+	}
+
+	/**
+	 * close - Stops watching the file system
+	 *
+	 * @throws IOException Throws an IOException if the watch service cannot be closed
+	 */
+	public void close() throws IOException
+	{
+		watcher.close();
+	}
+
+	/**
+	 * poll - Collects the paths changed by the pending events of a watch key
+	 *
+	 * @param key - The signalled watch key
+	 * @param changed - The set to add the changed paths to
+	 * @return Returns false if events were lost and the whole tree needs to be rescanned
+	 */
+	private boolean poll(WatchKey key, Set<Path> changed)
+	{
+		Path directory = directories.get(key);
+		boolean complete = true;
+
+		for (WatchEvent<?> event : key.pollEvents())
+		{
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+			{
+				complete = false;
+			}
+
+			else if (directory != null)
+			{
+				changed.add(directory.resolve((Path) event.context()));
+			}
+		}
+
+		if (!key.reset())
+		{
+			directories.remove(key);
+		}
+
+		return complete;
+	}
+
+	/**
+	 * update - Re-indexes the changed paths. New directories are registered and all of their
+	 * 			text files are indexed, and deleted directories have all of their locations removed.
+	 * 			Paths outside of the root are ignored, so when a single file is watched every other
+	 * 			path in its parent directory is.
+	 *
+	 * @param changed - The paths that were created, modified or deleted
+	 */
+	private void update(Set<Path> changed)
+	{
+		int updated = 0;
+		long start = System.nanoTime();
+
+		for (Path path : changed)
+		{
+			if (single ? !path.equals(root) : !path.startsWith(root))
+			{
+				continue;
+			}
+
+			if (!single && Files.isDirectory(path))
+			{
+				try
+				{
+					register(path);
+
+					for (Path file : PathTraverser.traverseDirectory(path))
+					{
+						updated += reindex(file);
+					}
+				}
+
+				catch (IOException e)
+				{
+					log.debug("Unable to watch the directory: {}", path);
+				}
+			}
+
+			else if (Files.exists(path))
+			{
+				if (isWatched(path))
+				{
+					updated += reindex(path);
+				}
+			}
+
+			else
+			{
+				updated += removeAll(path);
+			}
+		}
+
+		if (updated > 0)
+		{
+			log.info("Re-indexed {} locations in {} ms.", updated, (System.nanoTime() - start) / 1000000);
+		}
+	}
+
+	/**
+	 * rescan - Re-indexes every file under the root path and removes the locations that no
+	 * 			longer exist, used when the watch service dropped events
+	 */
+	private void rescan()
+	{
+		try
+		{
+			Set<Path> paths = PathTraverser.traverseDirectory(root);
+
+			for (String location : List.copyOf(index.getDocuments()))
+			{
+				if (!paths.contains(Path.of(location)))
+				{
+					index.remove(location);
+				}
+			}
+
+			for (Path path : paths)
+			{
+				reindex(path);
+			}
+		}
+
+		catch (IOException e)
+		{
+			log.debug("Unable to rescan the path: {}", root);
+		}
+	}
+
+	/**
+	 * reindex - Replaces the entries of a single file in the inverted index
+	 *
+	 * @param path - The file to re-index
+	 * @return Returns the number of locations updated
+	 */
+	private int reindex(Path path)
+	{
+		InvertedIndex local = new InvertedIndex();
+
+		try
+		{
+			InvertedIndexBuilder.createIndex(path, local);
+		}
+
+		catch (IOException e)
+		{
+			return index.remove(path.toString()) ? 1 : 0;
+		}
+
+		index.replace(path.toString(), local);
+		return 1;
+	}
+
+	/**
+	 * removeAll - Removes a deleted file, or every location inside a deleted directory
+	 *
+	 * @param path - The deleted path
+	 * @return Returns the number of locations removed
+	 */
+	private int removeAll(Path path)
+	{
+		if (index.remove(path.toString()))
+		{
+			return 1;
+		}
+
+		List<String> removed = new ArrayList<String>();
+
+		for (String location : List.copyOf(index.getDocuments()))
+		{
+			if (Path.of(location).startsWith(path))
+			{
+				removed.add(location);
+			}
+		}
+
+		for (String location : removed)
+		{
+			index.remove(location);
+		}
+
+		return removed.size();
+	}
+
+	/**
+	 * isWatched - Checks if a file belongs in the inverted index. A single file passed to the
+	 * 			   "-text" flag is indexed regardless of its extension, otherwise only text files are.
+	 *
+	 * @param path - The file to check
+	 * @return Returns true if the file belongs in the inverted index
+	 */
+	private boolean isWatched(Path path)
+	{
+		return single ? path.equals(root) : PathTraverser.isTextFile(path);
+	}
+}
@@ -0,0 +1,326 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	IntersectionEvaluator - Finds the locations containing every query word or every word of a phrase by
+ *							intersecting their location lists, starting from the rarest, along with their
+ *							number of matches.
+ *
+ * @see QueryPlan.Strategy#INTERSECTION
+ */
+class IntersectionEvaluator
+{
+	/**
+	 * index - The inverted index whose locations are matched
+	 */
+	private final InvertedIndex index;
+
+	/**
+	 * Initializes the evaluator of an inverted index
+	 *
+	 * @param index - The inverted index whose locations are matched
+	 */
+	public IntersectionEvaluator(InvertedIndex index)
+	{
+		this.index = index;
+	}
+
+	/**
+	 * conjunctiveMatches - Finds the locations that contain every query word, along with their number of
+	 * 						matches. Query words are intersected from the one with the fewest locations to
+	 * 						the one with the most, and each intersection leapfrogs through both sorted location
+	 * 						lists using ceiling lookups, so long runs of non-matching locations are skipped
+	 * 						instead of scanned.
+	 *
+	 * @param lineQuery - The query line
+	 * @param exactSearch - Performs an exact search if true
+	 * @param context - The state of the search
+	 * @return Returns a map containing the matching locations paired to their number of matches
+	 */
+	public Map<String, Integer> conjunctiveMatches(Set<String> lineQuery, boolean exactSearch, SearchContext context)
+	{
+		Map<String, Integer> matches = new HashMap<String, Integer>();
+		List<List<TreeMap<String, TreeSet<Integer>>>> terms = new ArrayList<List<TreeMap<String, TreeSet<Integer>>>>();
+
+		// a query word without any match empties the results, so the other words are never expanded
+		for (String query : lineQuery)
+		{
+			if (!index.mayMatch(query, exactSearch))
+			{
+				return matches;
+			}
+		}
+
+		for (String query : lineQuery)
+		{
+			List<TreeMap<String, TreeSet<Integer>>> postings = new ArrayList<TreeMap<String, TreeSet<Integer>>>();
+
+			for (String key : index.expand(query, exactSearch, context))
+			{
+				postings.add(index.locations(key));
+			}
+
+			if (postings.isEmpty())
+			{
+				return matches;
+			}
+
+			terms.add(postings);
+		}
+
+		if (terms.isEmpty())
+		{
+			return matches;
+		}
+
+		terms.sort(Comparator.comparingLong(IntersectionEvaluator::sizePostings));
+
+		NavigableSet<String> candidates = new TreeSet<String>();
+
+		for (TreeMap<String, TreeSet<Integer>> postings : terms.get(0))
+		{
+			candidates.addAll(postings.keySet());
+		}
+
+		candidates.removeAll(index.removed());
+
+		for (int i = 1; i < terms.size() && !candidates.isEmpty(); i++)
+		{
+			candidates = intersect(candidates, terms.get(i));
+		}
+
+		for (String location : candidates)
+		{
+			int numMatches = 0;
+
+			for (List<TreeMap<String, TreeSet<Integer>>> postings : terms)
+			{
+				for (TreeMap<String, TreeSet<Integer>> locations : postings)
+				{
+					TreeSet<Integer> positions = locations.get(location);
+					numMatches += positions == null ? 0 : positions.size();
+				}
+			}
+
+			matches.put(location, numMatches);
+		}
+
+		return matches;
+	}
+
+	/**
+	 * phraseMatches - Finds the locations containing a phrase along with the number of matched words.
+	 * 				   Locations containing every word of the phrase are found by intersecting their location
+	 * 				   lists, and only those locations have their positions checked.
+	 *
+	 * @param phrase - The stems of the phrase in order
+	 * @param context - The state of the search
+	 * @return Returns a map containing the matching locations paired to their number of matches
+	 *
+	 * @see #countPhrase(List)
+	 */
+	public Map<String, Integer> phraseMatches(List<String> phrase, SearchContext context)
+	{
+		Map<String, Integer> matches = new HashMap<String, Integer>();
+		List<TreeMap<String, TreeSet<Integer>>> terms = new ArrayList<TreeMap<String, TreeSet<Integer>>>();
+		SearchBudget budget = context.getBudget();
+
+		for (String stem : phrase)
+		{
+			TreeMap<String, TreeSet<Integer>> locations = index.locations(stem);
+
+			if (locations == null || (budget != null && !budget.expand(locations.size())))
+			{
+				return matches;
+			}
+
+			terms.add(locations);
+		}
+
+		List<TreeMap<String, TreeSet<Integer>>> sorted = new ArrayList<TreeMap<String, TreeSet<Integer>>>(terms);
+		sorted.sort(Comparator.comparingInt(TreeMap::size));
+
+		NavigableSet<String> candidates = new TreeSet<String>(sorted.get(0).keySet());
+		candidates.removeAll(index.removed());
+
+		for (int i = 1; i < sorted.size() && !candidates.isEmpty(); i++)
+		{
+			candidates = intersect(candidates, List.of(sorted.get(i)));
+		}
+
+		List<TreeSet<Integer>> positions = new ArrayList<TreeSet<Integer>>(terms.size());
+
+		for (String location : candidates)
+		{
+			if (context.isExpired())
+			{
+				break;
+			}
+
+			positions.clear();
+
+			for (TreeMap<String, TreeSet<Integer>> locations : terms)
+			{
+				positions.add(locations.get(location));
+			}
+
+			int occurrences = countPhrase(positions);
+
+			if (occurrences > 0)
+			{
+				matches.put(location, occurrences * phrase.size());
+			}
+		}
+
+		return matches;
+	}
+
+	/**
+	 * countPhrase - Counts how many times the words of a phrase appear at consecutive positions. Every list
+	 * 				 is shifted back by its offset in the phrase, and the shifted lists are merged by always
+	 * 				 advancing whichever lists are behind the largest current position, so every position is
+	 * 				 read at most once.
+	 *
+	 * @param positions - The sorted positions of each word of the phrase within one location
+	 * @return Returns the number of times the phrase appears
+	 */
+	private static int countPhrase(List<TreeSet<Integer>> positions)
+	{
+		int size = positions.size();
+		List<Iterator<Integer>> iterators = new ArrayList<Iterator<Integer>>(size);
+		int[] current = new int[size];
+		int target = Integer.MIN_VALUE;
+
+		for (int i = 0; i < size; i++)
+		{
+			iterators.add(positions.get(i).iterator());
+			current[i] = iterators.get(i).next() - i;
+			target = Math.max(target, current[i]);
+		}
+
+		int occurrences = 0;
+
+		while (true)
+		{
+			boolean aligned = true;
+
+			for (int i = 0; i < size; i++)
+			{
+				while (current[i] < target)
+				{
+					if (!iterators.get(i).hasNext())
+					{
+						return occurrences;
+					}
+
+					current[i] = iterators.get(i).next() - i;
+				}
+
+				if (current[i] > target)
+				{
+					target = current[i];
+					aligned = false;
+				}
+			}
+
+			if (aligned)
+			{
+				occurrences++;
+				target++;
+			}
+		}
+	}
+
+	/**
+	 * intersect - Keeps the candidate locations found in at least one of the location lists of a query word.
+	 * 			   When the query word expands to so many words that probing each of them per candidate would
+	 * 			   cost more than reading them, their locations are merged and intersected directly instead.
+	 *
+	 * @param candidates - The sorted candidate locations
+	 * @param postings - The location lists of every word matched by a query word
+	 * @return Returns the sorted candidate locations that were kept
+	 */
+	private static NavigableSet<String> intersect(NavigableSet<String> candidates, List<TreeMap<String, TreeSet<Integer>>> postings)
+	{
+		NavigableSet<String> kept = new TreeSet<String>();
+
+		if ((long) postings.size() * candidates.size() > sizePostings(postings))
+		{
+			for (TreeMap<String, TreeSet<Integer>> locations : postings)
+			{
+				for (String location : locations.keySet())
+				{
+					if (candidates.contains(location))
+					{
+						kept.add(location);
+					}
+				}
+			}
+
+			return kept;
+		}
+
+		String candidate = candidates.first();
+
+		while (candidate != null)
+		{
+			String next = null;
+
+			for (TreeMap<String, TreeSet<Integer>> locations : postings)
+			{
+				String ceiling = locations.ceilingKey(candidate);
+
+				if (ceiling != null && (next == null || ceiling.compareTo(next) < 0))
+				{
+					next = ceiling;
+				}
+			}
+
+			if (next == null)
+			{
+				break;
+			}
+
+			if (next.equals(candidate))
+			{
+				kept.add(candidate);
+				candidate = candidates.higher(candidate);
+			}
+
+			else
+			{
+				candidate = candidates.ceiling(next);
+			}
+		}
+
+		return kept;
+	}
+
+	/**
+	 * sizePostings - Returns the total number of locations in a list of location lists
+	 *
+	 * @param postings - The location lists
+	 * @return Returns the total number of locations
+	 */
+	private static long sizePostings(List<TreeMap<String, TreeSet<Integer>>> postings)
+	{
+		long size = 0;
+
+		for (TreeMap<String, TreeSet<Integer>> locations : postings)
+		{
+			size += locations.size();
+		}
+
+		return size;
+	}
+}
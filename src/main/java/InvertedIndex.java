@@ -1,13 +1,21 @@
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * @author Josh Guevarra
@@ -27,169 +35,2263 @@ public class InvertedIndex
 	 */
 	private final Map<String, Integer> wordCounts;
 
+	/**
+	 * documents - The data structure containing file locations mapped to the stems found in them,
+	 * 			   used to remove a location without scanning every word in the index
+	 */
+	private final Map<String, Set<String>> documents;
+
+	/**
+	 * deleted - The removed locations whose word stem entries have not been purged yet
+	 */
+	private final Set<String> deleted;
+
+	/**
+	 * PURGE_THRESHOLD - The number of removed locations that triggers a purge
+	 */
+	public static final int PURGE_THRESHOLD = 1000;
+
+	/**
+	 * PROXIMITY_CANDIDATES - The number of best results re-ranked by how close together their query words appear
+	 */
+	public static final int PROXIMITY_CANDIDATES = 100;
+
+	/**
+	 * PROXIMITY_WEIGHT - How much a result is boosted when all of its query words are next to each other
+	 */
+	public static final double PROXIMITY_WEIGHT = 0.5;
+
+	/**
+	 * statistics - The collection statistics used by scorers, or null if the index changed since they
+	 * 				were last computed
+	 */
+	private volatile Statistics statistics;
+
+	/**
+	 * shared - The statistics used by scorers when searching with the statistics of a larger collection,
+	 * 			or null if there are none yet
+	 */
+	private volatile Statistics shared;
+
+	/**
+	 * version - The number of changes made to the inverted index, used to tell if cached results are stale.
+	 * 			 It is not volatile since it changes with every word added, so a thread-safe index reads it
+	 * 			 under its lock instead.
+	 */
+	private long version;
+
+	/**
+	 * prefixes - The prefix table, read by partial searches for short words instead of expanding them
+	 */
+	private final PrefixTable prefixes;
+
+	/**
+	 * maxEdits - The maximum number of edits between an exact query word and the words it matches
+	 */
+	private int maxEdits;
+
+	/**
+	 * MAX_EDITS - The largest supported maximum number of edits
+	 */
+	public static final int MAX_EDITS = 2;
+
+	/**
+	 * grams - The gram index used by wildcard queries
+	 */
+	private final GramIndex grams;
+
+	/**
+	 * ids - The locations mapped to their dense ID, used to index the score accumulators
+	 */
+	private final Map<String, Integer> ids;
+
+	/**
+	 * names - The locations in order of their dense ID
+	 */
+	private final List<String> names;
+
+	/**
+	 * postings - The location lists of the searched words as arrays of location IDs, or null if the index
+	 * 			  changed since they were built
+	 */
+	private volatile PostingLists postings;
+
+	/**
+	 * accumulators - The idle score accumulators sized for this inverted index, reused by its searches
+	 */
+	private final AccumulatorPool accumulators;
+
+	/**
+	 * planner - Chooses how each query is evaluated
+	 */
+	private final QueryPlanner planner;
+
+	/**
+	 * termAtATime - Scores queries one word at a time
+	 */
+	private final TermAtATimeEvaluator termAtATime;
+
+	/**
+	 * maxScore - Scores queries one location at a time, skipping the locations that cannot make the results
+	 */
+	private final MaxScoreEvaluator maxScore;
+
+	/**
+	 * intersection - Matches the locations containing every query word or phrase
+	 */
+	private final IntersectionEvaluator intersection;
+
+	/**
+	 * BATCH_ACCUMULATOR_ENTRIES - The most location entries held by the accumulators of the queries of a
+	 * 							   batch searched together
+	 */
+	private static final int BATCH_ACCUMULATOR_ENTRIES = 1 << 22;
+
+	/**
+	 * BUDGET_CHECK_INTERVAL - The number of locations a search scores between checks of its budget
+	 */
+	static final int BUDGET_CHECK_INTERVAL = 1024;
+
 	/**
 	 * Initializes the necessary data structures for the inverted index
 	 */
-	public InvertedIndex()
+	public InvertedIndex()
+	{
+		 this.invertedIndex = new TreeMap<String, TreeMap<String, TreeSet<Integer>>>();
+		 this.wordCounts = new TreeMap<String, Integer>();
+		 this.documents = new HashMap<String, Set<String>>();
+		 this.deleted = new HashSet<String>();
+		 this.prefixes = new PrefixTable();
+		 this.maxEdits = 0;
+		 this.grams = new GramIndex(invertedIndex, this::prepareGrams);
+		 this.ids = new HashMap<String, Integer>();
+		 this.names = new ArrayList<String>();
+		 this.accumulators = new AccumulatorPool();
+		 this.planner = new QueryPlanner(this);
+		 this.termAtATime = new TermAtATimeEvaluator(this, accumulators);
+		 this.maxScore = new MaxScoreEvaluator(this);
+		 this.intersection = new IntersectionEvaluator(this);
+	}
+
+	/**
+	 * search - Returns an exactSearch or partialSearch on a line query
+	 *
+	 * @param lineQuery - The query line
+	 * @param exactSearch - Performs an exact search if true
+	 *
+	 * @return Returns a list of searchResults
+	 */
+	public ArrayList<InvertedIndex.SearchResult> search(Set<String> lineQuery, boolean exactSearch)
+	{
+		return exactSearch ? exactSearch(lineQuery) : partialSearch(lineQuery);
+	}
+
+	/**
+	 * search - Returns only the k most relevant results of an exactSearch or partialSearch on a line query.
+	 * 			Match counts are accumulated per location and a bounded heap keeps the best k, so only
+	 * 			those k SearchResult objects are created and nothing else is sorted.
+	 *
+	 * @param lineQuery - The query line
+	 * @param exactSearch - Performs an exact search if true
+	 * @param k - The maximum number of results to return
+	 *
+	 * @return Returns a list of at most k searchResults in ranked order
+	 */
+	public ArrayList<InvertedIndex.SearchResult> search(Set<String> lineQuery, boolean exactSearch, int k)
+	{
+		return search(lineQuery, exactSearch, false, k);
+	}
+
+	/**
+	 * search - Returns an exactSearch or partialSearch on a line query, optionally only matching
+	 * 			locations that contain every query word
+	 *
+	 * @param lineQuery - The query line
+	 * @param exactSearch - Performs an exact search if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 *
+	 * @return Returns a list of searchResults in ranked order
+	 *
+	 * @see IntersectionEvaluator#conjunctiveMatches(Set, boolean, SearchContext)
+	 */
+	public ArrayList<InvertedIndex.SearchResult> search(Set<String> lineQuery, boolean exactSearch, boolean conjunctive)
+	{
+		if (!conjunctive)
+		{
+			return search(lineQuery, exactSearch);
+		}
+
+		SearchContext context = new SearchContext();
+		return topResults(intersection.conjunctiveMatches(lineQuery, exactSearch, context), null, null, Integer.MAX_VALUE, context);
+	}
+
+	/**
+	 * search - Returns only the k most relevant results of an exactSearch or partialSearch on a line query.
+	 * 			Match counts are accumulated per location and a bounded heap keeps the best k, so only
+	 * 			those k SearchResult objects are created and nothing else is sorted.
+	 *
+	 * @param lineQuery - The query line
+	 * @param exactSearch - Performs an exact search if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param k - The maximum number of results to return
+	 *
+	 * @return Returns a list of at most k searchResults in ranked order
+	 */
+	public ArrayList<InvertedIndex.SearchResult> search(Set<String> lineQuery, boolean exactSearch, boolean conjunctive, int k)
+	{
+		SearchContext context = new SearchContext();
+
+		if (conjunctive)
+		{
+			return topResults(intersection.conjunctiveMatches(lineQuery, exactSearch, context), null, null, k, context);
+		}
+
+		return accumulated(lineQuery, exactSearch, null, k, context);
+	}
+
+	/**
+	 * search - Returns the k most relevant results of a query that may contain quoted phrases. Only
+	 * 			locations containing every phrase are matched, and each phrase occurrence counts as
+	 * 			a match for every word of the phrase. Phrase words are always matched exactly, while
+	 * 			the remaining query words are matched as usual and add to the number of matches.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param k - The maximum number of results to return
+	 *
+	 * @return Returns a list of at most k searchResults in ranked order
+	 */
+	public ArrayList<InvertedIndex.SearchResult> search(SearchQuery query, boolean exactSearch, boolean conjunctive, int k)
+	{
+		return search(query, exactSearch, conjunctive, false, k);
+	}
+
+	/**
+	 * search - Returns the k most relevant results of a query that may contain quoted phrases, optionally
+	 * 			boosting results whose query words appear close together. The boost is computed from the
+	 * 			smallest window of positions containing one occurrence of every query word found in a
+	 * 			location, and only for the best PROXIMITY_CANDIDATES results, so queries never scan the
+	 * 			positions of every match.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param proximity - Boosts results whose query words appear close together if true
+	 * @param k - The maximum number of results to return
+	 *
+	 * @return Returns a list of at most k searchResults in ranked order
+	 */
+	public ArrayList<InvertedIndex.SearchResult> search(SearchQuery query, boolean exactSearch, boolean conjunctive, boolean proximity, int k)
+	{
+		return search(query, exactSearch, conjunctive, proximity, Scorer.MATCHES, k);
+	}
+
+	/**
+	 * search - Returns the k most relevant results of a query that may contain quoted phrases, ranked by
+	 * 			the given scorer and optionally boosted by how close together their query words appear
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param proximity - Boosts results whose query words appear close together if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param k - The maximum number of results to return
+	 *
+	 * @return Returns a list of at most k searchResults in ranked order
+	 *
+	 * @see #freeze()
+	 */
+	public ArrayList<InvertedIndex.SearchResult> search(SearchQuery query, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, int k)
+	{
+		return search(query, exactSearch, conjunctive, proximity, scorer, k, new SearchContext());
+	}
+
+	/**
+	 * search - Returns the k most relevant results of a query that may contain quoted phrases, ranked by
+	 * 			the given scorer and optionally boosted by how close together their query words appear
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param proximity - Boosts results whose query words appear close together if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param k - The maximum number of results to return
+	 * @param context - The state of the search
+	 *
+	 * @return Returns a list of at most k searchResults in ranked order
+	 */
+	ArrayList<InvertedIndex.SearchResult> search(SearchQuery query, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, int k, SearchContext context)
+	{
+		List<List<String>> terms = proximity ? proximityTerms(query, exactSearch, context) : List.of();
+
+		if (terms.size() < 2)
+		{
+			return rank(query, exactSearch, conjunctive, scorer, null, k, context);
+		}
+
+		ArrayList<SearchResult> results = rank(query, exactSearch, conjunctive, scorer, null, Math.max(k, PROXIMITY_CANDIDATES), context);
+		boost(results.subList(0, Math.min(results.size(), PROXIMITY_CANDIDATES)), terms);
+
+		if (results.size() > k)
+		{
+			results.subList(k, results.size()).clear();
+		}
+
+		return results;
+	}
+
+	/**
+	 * search - Returns the k most relevant results of a query within a budget. Query words stop expanding
+	 * 			once the budget runs out of words or postings, and scoring stops once it runs out of time,
+	 * 			so the results are the best ones found before then.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param proximity - Boosts results whose query words appear close together if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param k - The maximum number of results to return
+	 * @param budget - The budget of the search, or null to not limit its work
+	 *
+	 * @return Returns a list of at most k searchResults in ranked order
+	 *
+	 * @see SearchBudget#isTruncated()
+	 */
+	public ArrayList<InvertedIndex.SearchResult> search(SearchQuery query, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, int k, SearchBudget budget)
+	{
+		return search(query, exactSearch, conjunctive, proximity, scorer, k, new SearchContext(budget));
+	}
+
+	/**
+	 * search - Returns one page of the results of a query within a budget
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param proximity - Boosts results whose query words appear close together if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param cursor - The cursor returned with the previous page, or null for the first page
+	 * @param size - The maximum number of results in the page
+	 * @param budget - The budget of the search, or null to not limit its work
+	 *
+	 * @return Returns the page of results, marked as truncated if the search ran out of budget
+	 */
+	public SearchPage search(SearchQuery query, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, SearchCursor cursor, int size, SearchBudget budget)
+	{
+		SearchPage page = search(query, exactSearch, conjunctive, proximity, scorer, cursor, size, new SearchContext(budget));
+		return budget == null ? page : new SearchPage(page.getResults(), page.getNext(), budget.isTruncated());
+	}
+
+	/**
+	 * search - Returns one page of the results of a query, starting right after the last result of the
+	 * 			previous page. Pages resume from the score, number of matches and location of that result
+	 * 			instead of an offset, so a deep page only keeps one page of results in memory. With
+	 * 			proximity, the boosted PROXIMITY_CANDIDATES results are ranked again for every page that
+	 * 			overlaps them, and later pages resume after the last candidate in the order before boosting.
+	 * 			If the inverted index changed since the cursor was created, the page continues after the
+	 * 			same result in the new ranking.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param proximity - Boosts results whose query words appear close together if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param cursor - The cursor returned with the previous page, or null for the first page
+	 * @param size - The maximum number of results in the page
+	 *
+	 * @return Returns the page of results along with the cursor of the next page
+	 */
+	public SearchPage search(SearchQuery query, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, SearchCursor cursor, int size)
+	{
+		return search(query, exactSearch, conjunctive, proximity, scorer, cursor, size, new SearchContext());
+	}
+
+	/**
+	 * search - Returns one page of the results of a query, starting right after the last result of the
+	 * 			previous page
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param proximity - Boosts results whose query words appear close together if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param cursor - The cursor returned with the previous page, or null for the first page
+	 * @param size - The maximum number of results in the page
+	 * @param context - The state of the search
+	 *
+	 * @return Returns the page of results along with the cursor of the next page
+	 */
+	SearchPage search(SearchQuery query, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, SearchCursor cursor, int size, SearchContext context)
+	{
+		if (size <= 0)
+		{
+			return new SearchPage(new ArrayList<SearchResult>(), null);
+		}
+
+		size = Math.min(size, Integer.MAX_VALUE - 1);
+		long version = getVersion();
+		int offset = cursor == null ? 0 : cursor.getOffset();
+		SearchResult after = cursor == null || cursor.getLocation() == null ? null
+				: new SearchResult(cursor.getLocation(), cursor.getNumMatches(), cursor.getScore());
+
+		List<List<String>> terms = proximity ? proximityTerms(query, exactSearch, context) : List.of();
+
+		if (terms.size() < 2 || offset >= PROXIMITY_CANDIDATES)
+		{
+			ArrayList<SearchResult> results = rank(query, exactSearch, conjunctive, scorer, after, size + 1, context);
+
+			if (results.size() <= size)
+			{
+				return new SearchPage(results, null);
+			}
+
+			results.subList(size, results.size()).clear();
+			return new SearchPage(results, new SearchCursor(version, offset + size, results.get(size - 1)));
+		}
+
+		ArrayList<SearchResult> candidates = rank(query, exactSearch, conjunctive, scorer, null, PROXIMITY_CANDIDATES, context);
+		SearchResult last = candidates.isEmpty() ? null : candidates.get(candidates.size() - 1);
+		last = last == null ? null : new SearchResult(last.getLocation(), last.getNumMatches(), last.getScore());
+		boost(candidates, terms);
+
+		ArrayList<SearchResult> results = new ArrayList<SearchResult>(candidates.subList(Math.min(offset, candidates.size()), Math.min(offset + size, candidates.size())));
+		boolean more = candidates.size() > offset + size;
+
+		if (candidates.size() == PROXIMITY_CANDIDATES && !more)
+		{
+			ArrayList<SearchResult> rest = rank(query, exactSearch, conjunctive, scorer, last, size - results.size() + 1, context);
+			more = results.size() + rest.size() > size;
+
+			if (more)
+			{
+				rest.subList(size - results.size(), rest.size()).clear();
+			}
+
+			if (!rest.isEmpty())
+			{
+				last = rest.get(rest.size() - 1);
+			}
+
+			results.addAll(rest);
+		}
+
+		return new SearchPage(results, more ? new SearchCursor(version, offset + size, last) : null);
+	}
+
+	/**
+	 * boost - Boosts the results whose query words appear close together and sorts them again. The words of
+	 * 		   the query may be those matched in a larger collection this inverted index is part of, as long as
+	 * 		   every result is a location of this inverted index.
+	 *
+	 * @param candidates - The results to boost
+	 * @param terms - The words of the query, each as the list of words it matches in the inverted index
+	 *
+	 * @see #matchedTerms(SearchQuery, boolean, SearchContext)
+	 */
+	public void boost(List<SearchResult> candidates, List<List<String>> terms)
+	{
+		for (SearchResult result : candidates)
+		{
+			int window = minimumWindow(terms, result.getLocation());
+
+			if (window > 0)
+			{
+				result.boost(1 + PROXIMITY_WEIGHT * (terms.size() - 1) / window);
+			}
+		}
+
+		Collections.sort(candidates);
+	}
+
+	/**
+	 * search - Ranks every match of a batch of queries. Queries without phrases share the work of reading
+	 * 			location lists: the posting arrays of each word matched by any of them are read once, and the
+	 * 			number of matches and score of every location are added to the accumulator of each query
+	 * 			using the word. Other queries, and queries wide enough to be scored in parallel, are
+	 * 			searched one at a time. The results are identical to searching each query on its own.
+	 *
+	 * @param queries - The parsed queries
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param proximity - Boosts results whose query words appear close together if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 *
+	 * @return Returns a map containing each query in its joined form paired to its searchResults in ranked order
+	 */
+	public Map<String, ArrayList<InvertedIndex.SearchResult>> search(Collection<SearchQuery> queries, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer)
+	{
+		return search(queries, exactSearch, conjunctive, proximity, scorer, new SearchContext());
+	}
+
+	/**
+	 * search - Ranks every match of a batch of queries
+	 *
+	 * @param queries - The parsed queries
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param proximity - Boosts results whose query words appear close together if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param context - The state of the searches, whose expansions are shared by every query of the batch
+	 *
+	 * @return Returns a map containing each query in its joined form paired to its searchResults in ranked order
+	 */
+	Map<String, ArrayList<InvertedIndex.SearchResult>> search(Collection<SearchQuery> queries, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, SearchContext context)
+	{
+		Map<String, ArrayList<SearchResult>> results = new HashMap<String, ArrayList<SearchResult>>();
+		Set<String> seen = new HashSet<String>();
+		List<String> shared = new ArrayList<String>();
+		List<List<String>> sharedKeys = new ArrayList<List<String>>();
+
+		for (SearchQuery query : queries)
+		{
+			String joined = query.toString();
+
+			if (!seen.add(joined))
+			{
+				continue;
+			}
+
+			List<String> keys = conjunctive || proximity || query.hasPhrases() || usesPrefixTable(query, exactSearch, scorer)
+					? null : scoredTerms(query, exactSearch, context);
+
+			// overlapping prefixes read a word more than once, in an order the batch cannot reproduce
+			if (keys == null || !isIncreasing(keys) || keys.size() >= TermAtATimeEvaluator.PARALLEL_MIN_TERMS)
+			{
+				results.put(joined, search(query, exactSearch, conjunctive, proximity, scorer, Integer.MAX_VALUE, context));
+				continue;
+			}
+
+			shared.add(joined);
+			sharedKeys.add(keys);
+		}
+
+		boolean scored = scorer != Scorer.MATCHES;
+		Statistics statistics = scored ? statistics(context) : null;
+		double[] norms = scored ? statistics.norms(scorer) : null;
+		PostingLists lists = postings();
+		int capacity = names.size();
+		int group = Math.max(1, BATCH_ACCUMULATOR_ENTRIES / Math.max(1, capacity));
+		List<Accumulator> accumulators = new ArrayList<Accumulator>();
+
+		try
+		{
+			// every query of a group has an accumulator as large as the index, so groups are kept small
+			for (int start = 0; start < shared.size(); start += group)
+			{
+				int end = Math.min(shared.size(), start + group);
+				TreeMap<String, List<Integer>> users = new TreeMap<String, List<Integer>>();
+
+				for (int i = start; i < end; i++)
+				{
+					for (String key : sharedKeys.get(i))
+					{
+						users.computeIfAbsent(key, k -> new ArrayList<Integer>()).add(i - start);
+					}
+
+					if (accumulators.size() < end - start)
+					{
+						accumulators.add(this.accumulators.borrow(capacity));
+					}
+				}
+
+				for (Map.Entry<String, List<Integer>> word : users.entrySet())
+				{
+					Postings postings = lists.get(word.getKey());
+					double weight = scored ? statistics.weight(scorer, word.getKey(), context.getCollection()) : 0;
+
+					for (int j = 0; j < postings.ids.length; j++)
+					{
+						int id = postings.ids[j];
+						int frequency = postings.frequencies[j];
+						double score = scored ? scorer.score(frequency, weight, norms[id]) : 0;
+
+						for (int i : word.getValue())
+						{
+							accumulators.get(i).add(id, frequency, score);
+						}
+					}
+				}
+
+				for (int i = start; i < end; i++)
+				{
+					Accumulator accumulator = accumulators.get(i - start);
+					results.put(shared.get(i), topResults(accumulator, scored, null, Integer.MAX_VALUE, context));
+					accumulator.clear();
+				}
+			}
+		}
+
+		finally
+		{
+			for (Accumulator accumulator : accumulators)
+			{
+				this.accumulators.release(accumulator, capacity);
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * usesPrefixTable - Returns true if a query would read the prefix table instead of expanding a word
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @return Returns true if a query word is short enough to be read from the prefix table
+	 */
+	private boolean usesPrefixTable(SearchQuery query, boolean exactSearch, Scorer scorer)
+	{
+		if (exactSearch || scorer != Scorer.MATCHES)
+		{
+			return false;
+		}
+
+		for (String stem : query.getStems())
+		{
+			if (prefixCounts(stem) != null)
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * isIncreasing - Returns true if every word of a list comes after the one before it
+	 *
+	 * @param keys - The list of words
+	 * @return Returns true if the words are unique and in alphabetical order
+	 */
+	private static boolean isIncreasing(List<String> keys)
+	{
+		for (int i = 1; i < keys.size(); i++)
+		{
+			if (keys.get(i - 1).compareTo(keys.get(i)) >= 0)
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * proximityTerms - Returns the words in the inverted index matched by each query word and phrase word,
+	 * 					skipping query words that match nothing
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param context - The state of the search
+	 * @return Returns a list containing the matching words of each query word
+	 */
+	private List<List<String>> proximityTerms(SearchQuery query, boolean exactSearch, SearchContext context)
+	{
+		List<List<String>> terms = new ArrayList<List<String>>();
+
+		for (List<String> keys : matchedTerms(query, exactSearch, context))
+		{
+			if (!keys.isEmpty())
+			{
+				terms.add(keys);
+			}
+		}
+
+		return terms;
+	}
+
+	/**
+	 * matchedTerms - Returns the words in the inverted index matched by each query word and phrase word, in
+	 * 				  query order and including the query words that match nothing, so the words matched in
+	 * 				  several inverted indexes can be combined query word by query word
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @return Returns a list containing the matching words of each query word, followed by each unique word
+	 * 		   of each phrase
+	 */
+	public List<List<String>> matchedTerms(SearchQuery query, boolean exactSearch)
+	{
+		return matchedTerms(query, exactSearch, new SearchContext());
+	}
+
+	/**
+	 * matchedTerms - Returns the words in the inverted index matched by each query word and phrase word, in
+	 * 				  query order and including the query words that match nothing
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param context - The state of the search, which the words each query word expands to are charged to
+	 * @return Returns a list containing the matching words of each query word, followed by each unique word
+	 * 		   of each phrase
+	 */
+	List<List<String>> matchedTerms(SearchQuery query, boolean exactSearch, SearchContext context)
+	{
+		List<List<String>> terms = new ArrayList<List<String>>();
+
+		for (String stem : query.getStems())
+		{
+			terms.add(expand(stem, exactSearch, context));
+		}
+
+		for (List<String> phrase : query.getPhrases())
+		{
+			for (String stem : new TreeSet<String>(phrase))
+			{
+				terms.add(invertedIndex.containsKey(stem) ? List.of(stem) : List.of());
+			}
+		}
+
+		return terms;
+	}
+
+	/**
+	 * minimumWindow - Finds the smallest distance between positions in a location that covers one occurrence
+	 * 				   of every query word found there, using a single merge pass over their sorted positions
+	 *
+	 * @param terms - The matching words of each query word
+	 * @param location - The location to check
+	 * @return Returns the distance between the first and last position of the smallest window, or 0 if fewer
+	 * 		   than two query words are found in the location
+	 */
+	private int minimumWindow(List<List<String>> terms, String location)
+	{
+		List<int[]> positions = new ArrayList<int[]>();
+
+		for (List<String> keys : terms)
+		{
+			TreeSet<Integer> merged = null;
+
+			for (String key : keys)
+			{
+				TreeMap<String, TreeSet<Integer>> locations = invertedIndex.get(key);
+				TreeSet<Integer> found = locations == null ? null : locations.get(location);
+
+				if (found != null)
+				{
+					if (merged == null)
+					{
+						merged = found;
+					}
+
+					else
+					{
+						merged = new TreeSet<Integer>(merged);
+						merged.addAll(found);
+					}
+				}
+			}
+
+			if (merged != null)
+			{
+				positions.add(merged.stream().mapToInt(Integer::intValue).toArray());
+			}
+		}
+
+		if (positions.size() < 2)
+		{
+			return 0;
+		}
+
+		int[] next = new int[positions.size()];
+		int best = Integer.MAX_VALUE;
+
+		while (true)
+		{
+			int min = 0;
+			int max = Integer.MIN_VALUE;
+
+			for (int i = 0; i < positions.size(); i++)
+			{
+				int current = positions.get(i)[next[i]];
+				max = Math.max(max, current);
+
+				if (current < positions.get(min)[next[min]])
+				{
+					min = i;
+				}
+			}
+
+			best = Math.min(best, max - positions.get(min)[next[min]]);
+
+			if (++next[min] == positions.get(min).length)
+			{
+				return Math.max(best, positions.size() - 1);
+			}
+		}
+	}
+
+	/**
+	 * collect - Gathers the statistics scorers need from this inverted index for a set of queries: its
+	 * 			 number of locations and words, and the number of locations containing each word scored
+	 * 			 for the queries. The statistics of inverted indexes holding different locations add up.
+	 *
+	 * @param queries - The parsed queries
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @return Returns the statistics of this inverted index for the queries
+	 *
+	 * @see CollectionStatistics#sum(long, Collection)
+	 * @see SearchContext#withStatistics(CollectionStatistics)
+	 */
+	public CollectionStatistics collect(Collection<SearchQuery> queries, boolean exactSearch)
+	{
+		return collect(queries, exactSearch, new SearchContext());
+	}
+
+	/**
+	 * collect - Gathers the statistics scorers need from this inverted index for a set of queries
+	 *
+	 * @param queries - The parsed queries
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param context - The state of the search, which the words each query word expands to are charged to
+	 * @return Returns the statistics of this inverted index for the queries
+	 */
+	CollectionStatistics collect(Collection<SearchQuery> queries, boolean exactSearch, SearchContext context)
+	{
+		Statistics statistics = statistics();
+		Map<String, Integer> frequencies = new HashMap<String, Integer>();
+
+		for (SearchQuery query : queries)
+		{
+			for (String key : scoredTerms(query, exactSearch, context))
+			{
+				frequencies.put(key, postings().get(key).ids.length);
+			}
+		}
+
+		return new CollectionStatistics(getVersion(), statistics.numDocuments, statistics.totalWords, frequencies);
+	}
+
+	/**
+	 * plan - Plans how a query is evaluated. Every query word and phrase is looked up to find how many words
+	 * 		  it expands to and how many postings it reads, and they are listed from the rarest to the most
+	 * 		  common. Queries with phrases or requiring every word intersect their locations starting from the
+	 * 		  rarest. Short partial words counted by matches are read from the prefix table. Otherwise, queries
+	 * 		  expanding to few enough words are merged document-at-a-time so common words can be skipped, unless
+	 * 		  every match is returned anyway and there is nothing to skip, and other queries are accumulated
+	 * 		  term-at-a-time.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param k - The maximum number of results to return
+	 * @return Returns the plan of the query
+	 */
+	public QueryPlan plan(SearchQuery query, boolean exactSearch, boolean conjunctive, Scorer scorer, int k)
+	{
+		return plan(query, exactSearch, conjunctive, scorer, k, new SearchContext());
+	}
+
+	/**
+	 * plan - Plans how a query is evaluated
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param k - The maximum number of results to return
+	 * @param context - The state of the search, which the words each query word expands to are charged to
+	 * @return Returns the plan of the query
+	 *
+	 * @see QueryPlanner#plan(SearchQuery, boolean, boolean, Scorer, int, SearchContext)
+	 */
+	QueryPlan plan(SearchQuery query, boolean exactSearch, boolean conjunctive, Scorer scorer, int k, SearchContext context)
+	{
+		return planner.plan(query, exactSearch, conjunctive, scorer, k, context);
+	}
+
+	/**
+	 * explain - Searches a query the same way {@link #search(SearchQuery, boolean, boolean, boolean, Scorer, int)}
+	 * 			 does while recording why it ranked the way it did: the words each stem expands to and their
+	 * 			 number of postings, the plan of the query, the number of locations scored, the time spent
+	 * 			 expanding, scoring and sorting, and the score breakdown of every result. Explained searches
+	 * 			 pay for the extra lookups, so they are meant for tuning rather than serving queries.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param proximity - Boosts results whose query words appear close together if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param k - The maximum number of results to return
+	 * @return Returns the explanation of the query, holding its k best results
+	 */
+	public SearchExplanation explain(SearchQuery query, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, int k)
+	{
+		return explain(query, exactSearch, conjunctive, scorer, k, new SearchContext(),
+				context -> new SearchPage(search(query, exactSearch, conjunctive, proximity, scorer, k, context), null));
+	}
+
+	/**
+	 * explain - Searches one page of the results of a query within a budget the same way
+	 * 			 {@link #search(SearchQuery, boolean, boolean, boolean, Scorer, SearchCursor, int, SearchBudget)}
+	 * 			 does, while recording why the page ranked the way it did. The words each stem expands to are
+	 * 			 charged to the budget along with the search, so explaining a query does not let it do more
+	 * 			 work than the budget allows.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param proximity - Boosts results whose query words appear close together if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param cursor - The cursor returned with the previous page, or null for the first page
+	 * @param size - The maximum number of results in the page
+	 * @param budget - The budget of the search, or null to not limit its work
+	 * @return Returns the explanation of the query, holding the page of results and their breakdown
+	 */
+	public SearchExplanation explain(SearchQuery query, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, SearchCursor cursor, int size, SearchBudget budget)
+	{
+		return explain(query, exactSearch, conjunctive, scorer, size, new SearchContext(budget), context ->
+		{
+			SearchPage page = search(query, exactSearch, conjunctive, proximity, scorer, cursor, size, context);
+			return budget == null ? page : new SearchPage(page.getResults(), page.getNext(), budget.isTruncated());
+		});
+	}
+
+	/**
+	 * explain - Runs a search of a query while recording why it ranked the way it did
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param k - The maximum number of results the search returns
+	 * @param context - The state of the search
+	 * @param search - The search, given the context recording into the explanation and returning its page of results
+	 * @return Returns the explanation of the query, holding the page of results and their breakdown
+	 */
+	private SearchExplanation explain(SearchQuery query, boolean exactSearch, boolean conjunctive, Scorer scorer, int k, SearchContext context, Function<SearchContext, SearchPage> search)
+	{
+		long start = System.nanoTime();
+		List<List<String>> matched = matchedTerms(query, exactSearch, context);
+		Map<String, Map<String, Integer>> expansions = new LinkedHashMap<String, Map<String, Integer>>();
+		int i = 0;
+
+		for (String stem : query.getStems())
+		{
+			Map<String, Integer> words = new LinkedHashMap<String, Integer>();
+
+			for (String word : matched.get(i++))
+			{
+				words.put(word, sizeLocations(word));
+			}
+
+			expansions.put(stem, words);
+		}
+
+		QueryPlan plan = plan(query, exactSearch, conjunctive, scorer, k, context);
+		SearchExplanation explanation = new SearchExplanation(query, scorer, plan, expansions);
+		explanation.record(SearchExplanation.Phase.EXPANSION, System.nanoTime() - start);
+
+		start = System.nanoTime();
+		SearchPage page = search.apply(context.withExplanation(explanation));
+		long elapsed = System.nanoTime() - start;
+		explanation.record(SearchExplanation.Phase.SCORING, Math.max(0, elapsed - explanation.getNanos(SearchExplanation.Phase.SORTING)));
+
+		explanation.setPage(page);
+		explanation.setResults(breakdown(query, exactSearch, scorer, page.getResults(), context));
+		return explanation;
+	}
+
+	/**
+	 * breakdown - Returns how the score of each result adds up from the words of the query it contains.
+	 * 			   With the MATCHES scorer, each word shows its frequency divided by the number of words of
+	 * 			   the location, while phrases only count the occurrences of the whole phrase as matches.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param scorer - The scorer used to rank the results
+	 * @param results - Results of locations of this inverted index
+	 * @return Returns the score breakdown of every result, in the order of the results
+	 */
+	public List<SearchExplanation.Result> breakdown(SearchQuery query, boolean exactSearch, Scorer scorer, List<SearchResult> results)
+	{
+		return breakdown(query, exactSearch, scorer, results, new SearchContext());
+	}
+
+	/**
+	 * breakdown - Returns how the score of each result adds up from the words of the query it contains
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param scorer - The scorer used to rank the results
+	 * @param results - Results of locations of this inverted index
+	 * @param context - The state of the search, holding the statistics the results were scored with
+	 * @return Returns the score breakdown of every result, in the order of the results
+	 */
+	List<SearchExplanation.Result> breakdown(SearchQuery query, boolean exactSearch, Scorer scorer, List<SearchResult> results, SearchContext context)
+	{
+		List<String> keys = scoredTerms(query, exactSearch, context);
+		boolean scored = scorer != Scorer.MATCHES;
+		Statistics statistics = scored ? statistics(context) : null;
+		double[] norms = scored ? statistics.norms(scorer) : null;
+		List<SearchExplanation.Result> explained = new ArrayList<SearchExplanation.Result>(results.size());
+
+		for (SearchResult result : results)
+		{
+			String location = result.getLocation();
+			int words = getCount(location);
+			List<SearchExplanation.Term> terms = new ArrayList<SearchExplanation.Term>();
+			double total = 0;
+
+			for (String key : keys)
+			{
+				TreeMap<String, TreeSet<Integer>> locations = invertedIndex.get(key);
+				TreeSet<Integer> positions = locations.get(location);
+
+				if (positions == null || words == 0)
+				{
+					continue;
+				}
+
+				double score = scored ? scorer.score(positions.size(), statistics.weight(scorer, key, context.getCollection()), norms[ids.get(location)])
+						: (double) positions.size() / words;
+
+				terms.add(new SearchExplanation.Term(key, positions.size(), score));
+				total += score;
+			}
+
+			double unboosted = scored ? total : words == 0 ? 0 : (double) result.getNumMatches() / words;
+			explained.add(new SearchExplanation.Result(result, words, terms, unboosted));
+		}
+
+		return explained;
+	}
+
+	/**
+	 * rank - Returns the k most relevant results of a query that may contain quoted phrases, ranked by
+	 * 		  the given scorer. A query that surely matches nothing is answered before any query word is
+	 * 		  expanded. Otherwise the words each query word expands to while planning are remembered by the
+	 * 		  context of the search, so the strategy chosen by the plan reads them instead of expanding the
+	 * 		  query words again.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param after - The result to resume after, or null to start from the best result
+	 * @param k - The maximum number of results to return
+	 * @param context - The state of the search
+	 *
+	 * @return Returns a list of at most k searchResults in ranked order
+	 */
+	private ArrayList<SearchResult> rank(SearchQuery query, boolean exactSearch, boolean conjunctive, Scorer scorer, SearchResult after, int k, SearchContext context)
+	{
+		if (!mayMatch(query, exactSearch, conjunctive))
+		{
+			return new ArrayList<SearchResult>();
+		}
+
+		return planned(query, exactSearch, conjunctive, scorer, after, k, context);
+	}
+
+	/**
+	 * planned - Returns the k most relevant results of a query that may contain quoted phrases, ranked by
+	 * 			 the given scorer with the strategy chosen by its plan. Every matching word adds its score in
+	 * 			 each matching location, using the document norms and location counts precomputed by the last
+	 * 			 freeze.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param after - The result to resume after, or null to start from the best result
+	 * @param k - The maximum number of results to return
+	 * @param context - The state of the search
+	 *
+	 * @return Returns a list of at most k searchResults in ranked order
+	 */
+	private ArrayList<SearchResult> planned(SearchQuery query, boolean exactSearch, boolean conjunctive, Scorer scorer, SearchResult after, int k, SearchContext context)
+	{
+		QueryPlan plan = planner.plan(query, exactSearch, conjunctive, scorer, k, context);
+
+		if (plan.getStrategy() == QueryPlan.Strategy.DOCUMENT_AT_A_TIME)
+		{
+			return maxScore.pruned(plan.getKeys(), scorer, after, k, context);
+		}
+
+		if (scorer == Scorer.MATCHES)
+		{
+			return rank(query, exactSearch, conjunctive, after, k, context);
+		}
+
+		Statistics statistics = statistics(context);
+		double[] norms = statistics.norms(scorer);
+
+		if (plan.getStrategy() == QueryPlan.Strategy.TERM_AT_A_TIME)
+		{
+			int capacity = names.size();
+			Accumulator accumulator = accumulators.borrow(capacity);
+
+			try
+			{
+				termAtATime.accumulate(accumulator, plan.getKeys(), scorer, statistics, norms, context);
+				return topResults(accumulator, true, after, k, context);
+			}
+
+			finally
+			{
+				accumulators.release(accumulator, capacity);
+			}
+		}
+
+		Map<String, Integer> matches = matches(query, exactSearch, conjunctive, context);
+		Map<String, Double> scores = new HashMap<String, Double>();
+
+		for (String key : plan.getKeys())
+		{
+			TreeMap<String, TreeSet<Integer>> locations = invertedIndex.get(key);
+			double weight = statistics.weight(scorer, key, context.getCollection());
+
+			if (matches.size() < locations.size())
+			{
+				for (String location : matches.keySet())
+				{
+					TreeSet<Integer> positions = locations.get(location);
+
+					if (positions != null)
+					{
+						scores.merge(location, scorer.score(positions.size(), weight, norms[ids.get(location)]), Double::sum);
+					}
+				}
+			}
+
+			else
+			{
+				for (Map.Entry<String, TreeSet<Integer>> entry : locations.entrySet())
+				{
+					String location = entry.getKey();
+
+					if (matches.containsKey(location))
+					{
+						scores.merge(location, scorer.score(entry.getValue().size(), weight, norms[ids.get(location)]), Double::sum);
+					}
+				}
+			}
+		}
+
+		for (String location : matches.keySet())
+		{
+			scores.putIfAbsent(location, 0.0);
+		}
+
+		return topResults(matches, scores, after, k, context);
+	}
+
+	/**
+	 * follows - Returns true if a location ranks after the result a page resumes from
+	 *
+	 * @param after - The result to resume after, or null to start from the best result
+	 * @param score - The score of the location
+	 * @param numMatches - The number of matches of the location
+	 * @param location - The location
+	 * @return Returns true if the location belongs on the page
+	 */
+	static boolean follows(SearchResult after, double score, int numMatches, String location)
+	{
+		return after == null || after.compareTo(score, numMatches, location) < 0;
+	}
+
+	/**
+	 * scoredTerms - Returns the words in the inverted index scored for a query: every word matched by a
+	 * 				 query word, followed by the unique words of each phrase
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param context - The state of the search
+	 * @return Returns the list of words to score
+	 */
+	private List<String> scoredTerms(SearchQuery query, boolean exactSearch, SearchContext context)
+	{
+		List<String> keys = new ArrayList<String>();
+
+		for (String stem : query.getStems())
+		{
+			keys.addAll(expand(stem, exactSearch, context));
+		}
+
+		for (List<String> phrase : query.getPhrases())
+		{
+			for (String stem : new TreeSet<String>(phrase))
+			{
+				if (invertedIndex.containsKey(stem))
+				{
+					keys.add(stem);
+				}
+			}
+		}
+
+		return keys;
+	}
+
+	/**
+	 * rank - Returns the k most relevant results of a query that may contain quoted phrases
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param after - The result to resume after, or null to start from the best result
+	 * @param k - The maximum number of results to return
+	 * @param context - The state of the search
+	 *
+	 * @return Returns a list of at most k searchResults in ranked order
+	 */
+	private ArrayList<SearchResult> rank(SearchQuery query, boolean exactSearch, boolean conjunctive, SearchResult after, int k, SearchContext context)
+	{
+		if (!query.hasPhrases())
+		{
+			return conjunctive
+					? topResults(intersection.conjunctiveMatches(query.getStems(), exactSearch, context), null, after, k, context)
+					: accumulated(query.getStems(), exactSearch, after, k, context);
+		}
+
+		return topResults(matches(query, exactSearch, conjunctive, context), null, after, k, context);
+	}
+
+	/**
+	 * matches - Finds the locations matched by a query that may contain quoted phrases along with their
+	 * 			 number of matches. Only locations containing every phrase are matched, and each phrase
+	 * 			 occurrence counts as a match for every word of the phrase. Phrases are matched from the
+	 * 			 one with the rarest word to the most common, stopping as soon as no location is left.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param context - The state of the search
+	 * @return Returns a map containing the matching locations paired to their number of matches
+	 */
+	private Map<String, Integer> matches(SearchQuery query, boolean exactSearch, boolean conjunctive, SearchContext context)
+	{
+		if (!query.hasPhrases())
+		{
+			return matches(query.getStems(), exactSearch, conjunctive, context);
+		}
+
+		Map<String, Integer> matches = null;
+		List<List<String>> phrases = new ArrayList<List<String>>(query.getPhrases());
+		phrases.sort(Comparator.comparingInt(this::rarest));
+
+		for (List<String> phrase : phrases)
+		{
+			Map<String, Integer> found = intersection.phraseMatches(phrase, context);
+
+			if (matches != null)
+			{
+				found.keySet().retainAll(matches.keySet());
+
+				for (Map.Entry<String, Integer> entry : found.entrySet())
+				{
+					entry.setValue(entry.getValue() + matches.get(entry.getKey()));
+				}
+			}
+
+			matches = found;
+
+			if (matches.isEmpty())
+			{
+				return matches;
+			}
+		}
+
+		if (!query.getStems().isEmpty())
+		{
+			Map<String, Integer> words = matches(query.getStems(), exactSearch, conjunctive, context);
+
+			if (conjunctive)
+			{
+				matches.keySet().retainAll(words.keySet());
+			}
+
+			for (Map.Entry<String, Integer> entry : matches.entrySet())
+			{
+				entry.setValue(entry.getValue() + words.getOrDefault(entry.getKey(), 0));
+			}
+		}
+
+		return matches;
+	}
+
+	/**
+	 * rarest - Returns the number of locations of the rarest word of a phrase, which bounds how many
+	 * 			locations the phrase can match
+	 *
+	 * @param phrase - The stemmed words of the phrase
+	 * @return Returns the number of locations of the rarest word, or 0 if a word is missing
+	 */
+	int rarest(List<String> phrase)
+	{
+		int rarest = Integer.MAX_VALUE;
+
+		for (String stem : phrase)
+		{
+			TreeMap<String, TreeSet<Integer>> locations = invertedIndex.get(stem);
+			rarest = Math.min(rarest, locations == null ? 0 : locations.size());
+		}
+
+		return rarest;
+	}
+
+	/**
+	 * matches - Finds the locations matched by the query words along with their number of matches
+	 *
+	 * @param lineQuery - The query line
+	 * @param exactSearch - Performs an exact search if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param context - The state of the search
+	 * @return Returns a map containing the matching locations paired to their number of matches
+	 */
+	private Map<String, Integer> matches(Set<String> lineQuery, boolean exactSearch, boolean conjunctive, SearchContext context)
+	{
+		if (conjunctive)
+		{
+			return intersection.conjunctiveMatches(lineQuery, exactSearch, context);
+		}
+
+		Map<String, Integer> matches = new HashMap<String, Integer>();
+
+		for (String query : lineQuery)
+		{
+			Map<String, Integer> counts = exactSearch ? null : prefixCounts(query);
+
+			if (counts != null)
+			{
+				for (Map.Entry<String, Integer> entry : counts.entrySet())
+				{
+					if (!isDeleted(entry.getKey()))
+					{
+						matches.merge(entry.getKey(), entry.getValue(), Integer::sum);
+					}
+				}
+
+				continue;
+			}
+
+			for (String key : expand(query, exactSearch, context))
+			{
+				countLoop(key, matches);
+			}
+		}
+
+		return matches;
+	}
+
+	/**
+	 * expand - Returns the words in the inverted index matched by a query word, which is either the
+	 * 			word itself for an exact search or every word starting with it for a partial search.
+	 * 			Within a budget, the query word only expands to the words that fit in it. Either way,
+	 * 			expanding it again during the same search returns the same words without charging them
+	 * 			twice.
+	 *
+	 * @param query - The query word
+	 * @param exactSearch - Performs an exact search if true
+	 * @param context - The state of the search, which remembers its expansions
+	 * @return Returns the list of matching words in alphabetical order
+	 */
+	List<String> expand(String query, boolean exactSearch, SearchContext context)
+	{
+		String key = (exactSearch ? "exact " : "partial ") + query;
+		return context.expansion(key, () -> expand(query, exactSearch, context.getBudget()));
+	}
+
+	/**
+	 * expand - Returns the words in the inverted index matched by a query word that fit in a budget
+	 *
+	 * @param query - The query word
+	 * @param exactSearch - Performs an exact search if true
+	 * @param budget - The budget charged for each word, or null to not limit the words
+	 * @return Returns the list of matching words in alphabetical order
+	 */
+	private List<String> expand(String query, boolean exactSearch, SearchBudget budget)
+	{
+		if (query.indexOf('*') >= 0)
+		{
+			return grams.wildcard(query, budget);
+		}
+
+		if (exactSearch && edits(query) > 0)
+		{
+			return fuzzy(query, edits(query), budget);
+		}
+
+		List<String> keys = new ArrayList<String>();
+
+		if (exactSearch)
+		{
+			if (invertedIndex.containsKey(query) && (budget == null || budget.expand(invertedIndex.get(query).size())))
+			{
+				keys.add(query);
+			}
+
+			return keys;
+		}
+
+		for (Map.Entry<String, TreeMap<String, TreeSet<Integer>>> entry : invertedIndex.tailMap(query).entrySet())
+		{
+			if (!entry.getKey().startsWith(query) || (budget != null && !budget.expand(entry.getValue().size())))
+			{
+				break;
+			}
+
+			keys.add(entry.getKey());
+		}
+
+		return keys;
+	}
+
+	/**
+	 * prepareGrams - Builds the gram index used by wildcard queries if it was not built yet. Budgeted searches
+	 * 				  start this in the background instead of building the gram index themselves.
+	 */
+	public void prepareGrams()
+	{
+		grams.build();
+	}
+
+	/**
+	 * fuzzy - Returns the words within a number of edits of a query word. The Levenshtein automaton of the
+	 * 		   query word and the sorted words of the inverted index take turns: the automaton gives the
+	 * 		   smallest accepted word not below the current word, and the inverted index gives its first word
+	 * 		   not below that, so runs of words that cannot match are skipped with a single lookup. The budget
+	 * 		   is charged for every matching word and its clock checked while words are looked up.
+	 *
+	 * @param query - The query word
+	 * @param edits - The maximum number of edits
+	 * @param budget - The budget charged for each word, or null to not limit the words
+	 * @return Returns the matching words in the inverted index that fit in the budget, in sorted order
+	 */
+	private List<String> fuzzy(String query, int edits, SearchBudget budget)
+	{
+		LevenshteinAutomaton automaton = new LevenshteinAutomaton(query, edits);
+		List<String> keys = new ArrayList<String>();
+		String target = automaton.next("");
+		long scanned = 0;
+
+		while (target != null)
+		{
+			String key = invertedIndex.ceilingKey(target);
+
+			if (key == null || (budget != null && ++scanned % BUDGET_CHECK_INTERVAL == 0 && budget.isExpired()))
+			{
+				break;
+			}
+
+			if (key.equals(target))
+			{
+				if (budget != null && !budget.expand(invertedIndex.get(key).size()))
+				{
+					break;
+				}
+
+				keys.add(key);
+				target = automaton.next(key + Character.MIN_VALUE);
+			}
+
+			else
+			{
+				target = automaton.next(key);
+			}
+		}
+
+		return keys;
+	}
+
+	/**
+	 * edits - Returns the maximum number of edits allowed for an exact query word. Short words allow
+	 * 		   fewer edits, since a couple of edits would match almost every word as short.
+	 *
+	 * @param query - The query word
+	 * @return Returns the maximum number of edits for the query word
+	 */
+	private int edits(String query)
+	{
+		return Math.min(maxEdits, query.length() < 3 ? 0 : query.length() < 6 ? 1 : 2);
+	}
+
+	/**
+	 * mayMatch - Returns false if a query surely matches no location: a conjunctive query with a query word
+	 * 			  matching no word, a query with a phrase containing a missing word, or a query whose words
+	 * 			  all match nothing. Only takes one lookup per query word.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @return Returns false if the query matches nothing, or true if it may match
+	 */
+	private boolean mayMatch(SearchQuery query, boolean exactSearch, boolean conjunctive)
+	{
+		for (List<String> phrase : query.getPhrases())
+		{
+			if (rarest(phrase) == 0)
+			{
+				return false;
+			}
+		}
+
+		boolean any = query.hasPhrases();
+
+		for (String stem : query.getStems())
+		{
+			boolean matched = mayMatch(stem, exactSearch);
+
+			if (conjunctive && !matched)
+			{
+				return false;
+			}
+
+			any |= matched;
+		}
+
+		return any;
+	}
+
+	/**
+	 * mayMatch - Returns false if a query word surely matches no word of the inverted index, which only
+	 * 			  takes one lookup however many words a partial query word would expand to
+	 *
+	 * @param query - The query word
+	 * @param exactSearch - Performs an exact search if true
+	 * @return Returns false if the query word matches nothing, or true if it may match
+	 */
+	boolean mayMatch(String query, boolean exactSearch)
+	{
+		if (query.indexOf('*') >= 0 || (exactSearch && edits(query) > 0))
+		{
+			return true;
+		}
+
+		if (exactSearch)
+		{
+			return invertedIndex.containsKey(query);
+		}
+
+		String key = invertedIndex.ceilingKey(query);
+		return key != null && key.startsWith(query);
+	}
+
+	/**
+	 * countLoop - Helper function to add the number of matches of a key to every location it was found in
+	 *
+	 * @param key - The query key
+	 * @param matches - Lookup map containing locations paired to their number of matches
+	 */
+	private void countLoop(String key, Map<String, Integer> matches)
+	{
+		for (Map.Entry<String, TreeSet<Integer>> entry : invertedIndex.get(key).entrySet())
+		{
+			if (!isDeleted(entry.getKey()))
+			{
+				matches.merge(entry.getKey(), entry.getValue().size(), Integer::sum);
+			}
+		}
+	}
+
+	/**
+	 * topResults - Selects the k best locations using a heap whose head is the worst result kept so far.
+	 * 				A SearchResult is only created for a location that beats the current worst result.
+	 *
+	 * @param matches - Lookup map containing locations paired to their number of matches
+	 * @param k - The maximum number of results to return
+	 * @return Returns a list of at most k searchResults in ranked order
+	 */
+	private ArrayList<SearchResult> topResults(Map<String, Integer> matches, int k)
+	{
+		return topResults(matches, null, null, k, new SearchContext());
+	}
+
+	/**
+	 * topResults - Selects the k best locations using a heap whose head is the worst result kept so far
+	 *
+	 * @param matches - Lookup map containing locations paired to their number of matches
+	 * @param scores - Lookup map containing locations paired to their score, or null to score locations
+	 * 				   by their number of matches divided by their number of words
+	 * @param after - The result to resume after, or null to start from the best result
+	 * @param k - The maximum number of results to return
+	 * @param context - The state of the search, which records the time spent selecting the results
+	 * @return Returns a list of at most k searchResults in ranked order
+	 */
+	private ArrayList<SearchResult> topResults(Map<String, Integer> matches, Map<String, Double> scores, SearchResult after, int k, SearchContext context)
+	{
+		if (k <= 0)
+		{
+			return new ArrayList<SearchResult>();
+		}
+
+		long start = System.nanoTime();
+		PriorityQueue<SearchResult> heap = new PriorityQueue<SearchResult>(Math.max(1, Math.min(k, matches.size())), Collections.reverseOrder());
+
+		for (Map.Entry<String, Integer> entry : matches.entrySet())
+		{
+			String location = entry.getKey();
+			int numMatches = entry.getValue();
+			double score = scores == null ? (double) numMatches / wordCounts.get(location) : scores.get(location);
+
+			if (!follows(after, score, numMatches, location))
+			{
+				continue;
+			}
+
+			if (heap.size() < k)
+			{
+				heap.add(new SearchResult(location, numMatches, score));
+			}
+
+			else if (heap.peek().compareTo(score, numMatches, location) > 0)
+			{
+				heap.poll();
+				heap.add(new SearchResult(location, numMatches, score));
+			}
+		}
+
+		ArrayList<SearchResult> results = new ArrayList<SearchResult>(heap);
+		Collections.sort(results);
+		context.selected(matches.size(), start);
+		return results;
+	}
+
+	/**
+	 * exactSearch - Performs an exact search of words in a file. Counts the number of all exact matches
+	 *
+	 * @param lineQuery - The query to parse
+	 * @return - Returns the set of SearchResults found associated with the query
+	 */
+	public ArrayList<InvertedIndex.SearchResult> exactSearch(Set<String> lineQuery)
+	{
+		return accumulated(lineQuery, true, null, Integer.MAX_VALUE, new SearchContext());
+	}
+
+	/**
+	 * partialSearch - Performs an partial search of words in a file. Counts the number of all words that begin with the query
+	 *
+	 * @param lineQuery - The query to parse
+	 * @return - Returns the set of SearchResults found associated with the query
+	 */
+	public ArrayList<InvertedIndex.SearchResult> partialSearch(Set<String> lineQuery)
+	{
+		return accumulated(lineQuery, false, null, Integer.MAX_VALUE, new SearchContext());
+	}
+
+	/**
+	 * accumulated - Counts the matches of every location in a reused accumulator, then creates SearchResult
+	 * 				 objects for the k best locations only
+	 *
+	 * @param lineQuery - The query to parse
+	 * @param exactSearch - Performs an exact search if true
+	 * @param after - The result to resume after, or null to start from the best result
+	 * @param k - The maximum number of results to return
+	 * @param context - The state of the search
+	 * @return Returns a list of at most k searchResults in ranked order
+	 */
+	private ArrayList<SearchResult> accumulated(Set<String> lineQuery, boolean exactSearch, SearchResult after, int k, SearchContext context)
+	{
+		int capacity = names.size();
+		Accumulator accumulator = accumulators.borrow(capacity);
+		SearchBudget budget = context.getBudget();
+
+		try
+		{
+			List<String> keys = new ArrayList<String>();
+
+			for (String query : lineQuery)
+			{
+				Map<String, Integer> counts = exactSearch ? null : prefixCounts(query);
+
+				if (counts == null)
+				{
+					keys.addAll(expand(query, exactSearch, context));
+					continue;
+				}
+
+				for (Map.Entry<String, Integer> entry : counts.entrySet())
+				{
+					if (budget != null && !budget.visit())
+					{
+						break;
+					}
+
+					if (!isDeleted(entry.getKey()))
+					{
+						accumulator.add(ids.get(entry.getKey()), entry.getValue(), 0);
+					}
+				}
+			}
+
+			termAtATime.accumulate(accumulator, keys, null, null, null, context);
+			return topResults(accumulator, false, after, k, context);
+		}
+
+		finally
+		{
+			accumulators.release(accumulator, capacity);
+		}
+	}
+
+	/**
+	 * topResults - Selects the k best locations of an accumulator using a heap whose head is the worst
+	 * 				result kept so far. When every location is returned, they are simply sorted.
+	 *
+	 * @param accumulator - The accumulator holding the matching locations
+	 * @param scored - Uses the accumulated scores if true, or the number of matches divided by the number
+	 * 				   of words otherwise
+	 * @param after - The result to resume after, or null to start from the best result
+	 * @param k - The maximum number of results to return
+	 * @param context - The state of the search, which records the time spent selecting the results
+	 * @return Returns a list of at most k searchResults in ranked order
+	 */
+	private ArrayList<SearchResult> topResults(Accumulator accumulator, boolean scored, SearchResult after, int k, SearchContext context)
+	{
+		if (k <= 0)
+		{
+			return new ArrayList<SearchResult>();
+		}
+
+		long start = System.nanoTime();
+
+		if (k >= accumulator.size && after == null)
+		{
+			ArrayList<SearchResult> results = new ArrayList<SearchResult>(accumulator.size);
+
+			for (int t = 0; t < accumulator.size; t++)
+			{
+				int id = accumulator.touched[t];
+				String location = names.get(id);
+				int numMatches = accumulator.counts[id];
+
+				results.add(scored ? new SearchResult(location, numMatches, accumulator.scores[id]) : new SearchResult(location, numMatches));
+			}
+
+			Collections.sort(results);
+			context.selected(accumulator.size, start);
+			return results;
+		}
+
+		PriorityQueue<SearchResult> heap = new PriorityQueue<SearchResult>(Math.max(1, Math.min(k, accumulator.size)), Collections.reverseOrder());
+
+		for (int t = 0; t < accumulator.size; t++)
+		{
+			int id = accumulator.touched[t];
+			String location = names.get(id);
+			int numMatches = accumulator.counts[id];
+			double score = scored ? accumulator.scores[id] : (double) numMatches / wordCounts.get(location);
+
+			if (!follows(after, score, numMatches, location))
+			{
+				continue;
+			}
+
+			if (heap.size() < k)
+			{
+				heap.add(new SearchResult(location, numMatches, score));
+			}
+
+			else if (heap.peek().compareTo(score, numMatches, location) > 0)
+			{
+				heap.poll();
+				heap.add(new SearchResult(location, numMatches, score));
+			}
+		}
+
+		ArrayList<SearchResult> results = new ArrayList<SearchResult>(heap);
+		Collections.sort(results);
+		context.selected(accumulator.size, start);
+		return results;
+	}
+
+	/**
+	 * add - The function that adds a word stem entry into the inverted index data structure
+	 *       as well as the path of the file it was found in and the position it was located at
+	 *
+	 * @param stem	- The word stem to add into the index
+	 * @param location	- The path location the stem was found in
+	 * @param position	- The position of the word stem in the file
+	 */
+	public void add(String stem, String location, int position)
+	{
+		if (isDeleted(location))
+		{
+			erase(location);
+		}
+
+		if (!invertedIndex.containsKey(stem))
+		{
+			invertedIndex.put(stem, new TreeMap<String, TreeSet<Integer>>());
+			grams.add(stem);
+		}
+
+		invertedIndex.get(stem).putIfAbsent(location, new TreeSet<Integer>());
+
+		boolean modified = invertedIndex.get(stem).get(location).add(position);
+
+		if (modified)
+		{
+			changed();
+			wordCounts.putIfAbsent(location, 0);
+			wordCounts.put(location, wordCounts.get(location) + 1);
+			documents.computeIfAbsent(location, k -> new HashSet<String>()).add(stem);
+			prefixes.add(stem, location, 1);
+			assignId(location);
+		}
+	}
+
+	/**
+	 * addAll - Function that adds all the elements of one inverted index to this one
+	 *
+	 * @param other - THe other inverted index to copy from
+	 */
+	public void addAll(InvertedIndex other)
+	{
+		changed();
+
+		for (String location : other.wordCounts.keySet())
+		{
+			if (isDeleted(location))
+			{
+				erase(location);
+			}
+
+			assignId(location);
+		}
+
+		for (String key : other.invertedIndex.keySet())
+		{
+			if (this.invertedIndex.containsKey(key))
+			{
+				for (String location : other.invertedIndex.get(key).keySet())
+				{
+					if (this.invertedIndex.get(key).containsKey(location))
+					{
+						TreeSet<Integer> positions = this.invertedIndex.get(key).get(location);
+						int before = positions.size();
+						positions.addAll(other.invertedIndex.get(key).get(location));
+						prefixes.add(key, location, positions.size() - before);
+					}
+
+					else
+					{
+						TreeSet<Integer> inner = other.invertedIndex.get(key).get(location);
+						this.invertedIndex.get(key).put(location, inner);
+						prefixes.add(key, location, inner.size());
+					}
+				}
+			}
+
+			else
+			{
+				TreeMap<String, TreeSet<Integer>> inner = other.invertedIndex.get(key);
+				this.invertedIndex.put(key, inner);
+				grams.add(key);
+
+				for (Map.Entry<String, TreeSet<Integer>> entry : inner.entrySet())
+				{
+					prefixes.add(key, entry.getKey(), entry.getValue().size());
+				}
+			}
+		}
+
+		for (String location : other.wordCounts.keySet())
+		{
+			if (this.wordCounts.containsKey(location))
+			{
+				this.wordCounts.put(location, this.wordCounts.get(location) + other.wordCounts.get(location));
+			}
+
+			else
+			{
+				this.wordCounts.put(location, other.wordCounts.get(location));
+			}
+		}
+
+		for (String location : other.documents.keySet())
+		{
+			this.documents.computeIfAbsent(location, k -> new HashSet<String>()).addAll(other.documents.get(location));
+		}
+	}
+
+	/**
+	 * remove - Removes a location from the inverted index. The location is tombstoned so it is
+	 * 			immediately left out of searches and word counts, while its word stem entries are
+	 * 			only removed by the next purge.
+	 *
+	 * @param location - The path location to remove
+	 * @return Returns true if the location was found in the inverted index
+	 *
+	 * @see #purge()
+	 */
+	public boolean remove(String location)
+	{
+		if (wordCounts.remove(location) == null)
+		{
+			return false;
+		}
+
+		deleted.add(location);
+		changed();
+
+		if (deleted.size() >= PURGE_THRESHOLD)
+		{
+			purge();
+		}
+
+		return true;
+	}
+
+	/**
+	 * replace - Replaces all entries of a location with the entries of another inverted index,
+	 * 			 such as one built from the new contents of a changed file or web page
+	 *
+	 * @param location - The path location to replace
+	 * @param other - The inverted index containing the new entries for the location
+	 */
+	public void replace(String location, InvertedIndex other)
+	{
+		erase(location);
+		addAll(other);
+	}
+
+	/**
+	 * purge - Removes the word stem entries of every tombstoned location. Until a purge, words
+	 * 		   only found in removed locations are still listed by {@link #getWords()}.
+	 */
+	public void purge()
+	{
+		for (String location : deleted.toArray(new String[0]))
+		{
+			erase(location);
+		}
+	}
+
+	/**
+	 * getVersion - Returns the version of the inverted index, which changes every time a location is
+	 * 				added, replaced or removed
+	 *
+	 * @return Returns the version of the inverted index
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * changed - Records a change to the inverted index, dropping the collection statistics and posting
+	 * 			 arrays and moving to a new version. Called for every word added, so the statistics are only
+	 * 			 written when there are some to drop, and building an index that is never searched
+	 * 			 only pays for reading them.
+	 */
+	private void changed()
+	{
+		if (statistics != null)
+		{
+			statistics = null;
+		}
+
+		if (shared != null)
+		{
+			shared = null;
+		}
+
+		if (postings != null)
+		{
+			postings = null;
+		}
+
+		version++;
+	}
+
+	/**
+	 * freeze - Purges removed locations and precomputes the collection statistics and per-word score upper
+	 * 			bounds used by scorers, so the first scored search after building the index does not pay
+	 * 			for them. Statistics are recomputed on demand after the index changes again.
+	 */
+	public void freeze()
+	{
+		purge();
+		Statistics statistics = new Statistics();
+		statistics.prepare(Scorer.MATCHES);
+		statistics.prepare(Scorer.TF_IDF);
+		statistics.prepare(Scorer.BM25);
+		this.statistics = statistics;
+	}
+
+	/**
+	 * postings - Returns the posting arrays of the inverted index, starting over if the index changed since
+	 * 			  they were last built. Readers racing to start over build identical arrays, so whichever
+	 * 			  is kept does not matter.
+	 *
+	 * @return Returns the posting arrays of the inverted index
+	 */
+	PostingLists postings()
+	{
+		PostingLists postings = this.postings;
+
+		if (postings == null)
+		{
+			postings = new PostingLists();
+			this.postings = postings;
+		}
+
+		return postings;
+	}
+
+	/**
+	 * statistics - Returns the collection statistics, computing them if the index changed since the last
+	 * 				freeze. Readers racing to compute them build identical statistics, so whichever is kept
+	 * 				does not matter. When searching with the statistics of a larger collection, the norms
+	 * 				and score bounds are computed from those instead, until the larger collection changes.
+	 *
+	 * @param context - The state of the search, which may carry the statistics of a larger collection
+	 * @return Returns the collection statistics
+	 */
+	Statistics statistics(SearchContext context)
+	{
+		CollectionStatistics collection = context.getCollection();
+
+		if (collection != null)
+		{
+			Statistics shared = this.shared;
+
+			if (shared == null || shared.version != collection.getVersion())
+			{
+				shared = new Statistics(collection);
+				this.shared = shared;
+			}
+
+			return shared;
+		}
+
+		return statistics();
+	}
+
+	/**
+	 * statistics - Returns the collection statistics of this inverted index alone, computing them if the
+	 * 				index changed since the last freeze
+	 *
+	 * @return Returns the collection statistics
+	 */
+	private Statistics statistics()
+	{
+		Statistics statistics = this.statistics;
+
+		if (statistics == null)
+		{
+			statistics = new Statistics();
+			this.statistics = statistics;
+		}
+
+		return statistics;
+	}
+
+	/**
+	 * erase - Removes all word stem entries and the word count of a location right away,
+	 * 		   whether or not it was tombstoned. Words that are no longer found in any location
+	 * 		   are removed as well.
+	 *
+	 * @param location - The path location to erase
+	 */
+	private void erase(String location)
+	{
+		Set<String> stems = documents.remove(location);
+		deleted.remove(location);
+		wordCounts.remove(location);
+		changed();
+
+		if (stems == null)
+		{
+			return;
+		}
+
+		for (String stem : stems)
+		{
+			TreeMap<String, TreeSet<Integer>> locations = invertedIndex.get(stem);
+			locations.remove(location);
+
+			if (locations.isEmpty())
+			{
+				invertedIndex.remove(stem);
+				grams.remove(stem);
+			}
+
+			prefixes.remove(stem, location);
+		}
+	}
+
+	/**
+	 * assignId - Gives a location the next dense ID if it does not have one yet. IDs are never reused, so a
+	 * 			  location keeps its ID after it is removed and added again.
+	 *
+	 * @param location - The path location
+	 */
+	private void assignId(String location)
+	{
+		if (!ids.containsKey(location))
+		{
+			ids.put(location, names.size());
+			names.add(location);
+		}
+	}
+
+	/**
+	 * setPrefixLength - Sets the longest prefix stored in the prefix table and rebuilds it. Partial searches
+	 * 					 for a word of at most that many letters read the precomputed number of matches of
+	 * 					 every location from the table instead of merging every word starting with it. The
+	 * 					 table is kept up to date as locations are added, replaced and removed.
+	 *
+	 * @param length - The longest prefix to store, or 0 to drop the prefix table
+	 *
+	 * @see #prefixReport()
+	 */
+	public void setPrefixLength(int length)
+	{
+		prefixes.setLength(length, invertedIndex);
+	}
+
+	/**
+	 * setMaxEdits - Makes exact searches also match words within a number of edits (insertions, deletions
+	 * 				 or substitutions) of each query word outside of phrases, scored like any other match.
+	 * 				 Query words shorter than 3 letters stay exact, and words shorter than 6 letters allow at
+	 * 				 most 1 edit.
+	 *
+	 * @param edits - The maximum number of edits between 0 and MAX_EDITS, where 0 turns fuzzy matching off
+	 */
+	public void setMaxEdits(int edits)
+	{
+		maxEdits = Math.max(0, Math.min(edits, MAX_EDITS));
+		changed();
+	}
+
+	/**
+	 * prefixReport - Returns a report of the size of the prefix table. Memory is estimated from the number
+	 * 				  of table entries, since locations are shared with the rest of the index.
+	 *
+	 * @return Returns a report of the size of the prefix table
+	 */
+	public String prefixReport()
+	{
+		return prefixes.report();
+	}
+
+	/**
+	 * gramReport - Returns a report of the size of the gram index used by wildcard queries. Memory is
+	 * 				estimated from the number of grams and entries, since words are shared with the rest
+	 * 				of the index.
+	 *
+	 * @return Returns a report of the size of the gram index, or null if no wildcard query has built it yet
+	 */
+	public String gramReport()
+	{
+		return grams.report();
+	}
+
+	/**
+	 * prefixCounts - Returns the number of matches of every location for a partial search of a word, if the
+	 * 				  word is short enough to be stored in the prefix table
+	 *
+	 * @param query - The query word
+	 * @return Returns a map containing locations paired to their number of matches, or null if the word
+	 * 		   is not stored in the prefix table
+	 */
+	Map<String, Integer> prefixCounts(String query)
 	{
-		 this.invertedIndex = new TreeMap<String, TreeMap<String, TreeSet<Integer>>>();
-		 this.wordCounts = new TreeMap<String, Integer>();
+		return prefixes.counts(query);
 	}
 
 	/**
-	 * search - Returns an exactSearch or partialSearch on a line query
+	 * isDeleted - Returns true if a location was removed but its entries have not been purged yet
 	 *
-	 * @param lineQuery - The query line
-	 * @param exactSearch - Performs an exact search if true
-	 *
-	 * @return Returns a list of searchResults
+	 * @param location - The path location
+	 * @return Returns true if the location is tombstoned
 	 */
-	public ArrayList<InvertedIndex.SearchResult> search(Set<String> lineQuery, boolean exactSearch)
+	private boolean isDeleted(String location)
 	{
-		return exactSearch ? exactSearch(lineQuery) : partialSearch(lineQuery);
+		return !deleted.isEmpty() && deleted.contains(location);
 	}
 
 	/**
-	 * exactSearch - Performs an exact search of words in a file. Counts the number of all exact matches
+	 * removed - Returns the locations that were removed but whose entries have not been purged yet
 	 *
-	 * @param lineQuery - The query to parse
-	 * @return - Returns the set of SearchResults found associated with the query
+	 * @return Returns an unmodifiable view of the tombstoned locations
 	 */
-	public ArrayList<InvertedIndex.SearchResult> exactSearch(Set<String> lineQuery)
+	Set<String> removed()
 	{
-		ArrayList<SearchResult> results = new ArrayList<SearchResult>();
-		Map<String, SearchResult> lookup = new HashMap<String, SearchResult>();
-
-		for (String key : lineQuery)
-		{
-			if (invertedIndex.containsKey(key))
-			{
-				searchLoop(key, results, lookup);
-			}
-		}
-
-		Collections.sort(results);
-		return results;
+		return Collections.unmodifiableSet(deleted);
 	}
 
 	/**
-	 * partialSearch - Performs an partial search of words in a file. Counts the number of all words that begin with the query
+	 * locations - Returns the locations of a word paired to its positions in each of them, including
+	 * 			   removed locations that have not been purged yet
 	 *
-	 * @param lineQuery - The query to parse
-	 * @return - Returns the set of SearchResults found associated with the query
+	 * @param key - The word
+	 * @return Returns the locations of the word, or null if the word is not in the inverted index
 	 */
-	public ArrayList<InvertedIndex.SearchResult> partialSearch(Set<String> lineQuery)
+	TreeMap<String, TreeSet<Integer>> locations(String key)
 	{
-		ArrayList<SearchResult> results = new ArrayList<SearchResult>();
-		Map<String, SearchResult> lookup = new HashMap<String, SearchResult>();
-
-		for (String query : lineQuery)
-		{
-			for (String key : invertedIndex.tailMap(query).keySet())
-			{
-				if (key.startsWith(query))
-				{
-					searchLoop(key, results, lookup);
-				}
-
-				else break;
-			}
-		}
-
-		Collections.sort(results);
-		return results;
+		return invertedIndex.get(key);
 	}
 
 	/**
-	 * searchLoop - Helper function to perform search loop operations
+	 * location - Returns the location assigned a dense location ID
 	 *
-	 * @param key - The query key
-	 * @param results - The list of search results
-	 * @param lookup - Lookup map containing locations paired to SearchResult pairings
+	 * @param id - The location ID
+	 * @return Returns the path of the location
 	 */
-	private void searchLoop(String key, List<SearchResult> results, Map<String, SearchResult> lookup)
+	String location(int id)
 	{
-		for (String location : invertedIndex.get(key).keySet())
-		{
-			if (!lookup.containsKey(location))
-			{
-				SearchResult result = new SearchResult(location);
-				lookup.put(location, result);
-				results.add(result);
-			}
-
-			lookup.get(location).update(key);
-		}
+		return names.get(id);
 	}
 
 	/**
-	 * add - The function that adds a word stem entry into the inverted index data structure
-	 *       as well as the path of the file it was found in and the position it was located at
+	 * wordCount - Returns the number of words of a location
 	 *
-	 * @param stem	- The word stem to add into the index
-	 * @param location	- The path location the stem was found in
-	 * @param position	- The position of the word stem in the file
+	 * @param location - The path location
+	 * @return Returns the number of words of the location
 	 */
-	public void add(String stem, String location, int position)
+	int wordCount(String location)
 	{
-		invertedIndex.putIfAbsent(stem, new TreeMap<String, TreeSet<Integer>>());
-		invertedIndex.get(stem).putIfAbsent(location, new TreeSet<Integer>());
-
-		boolean modified = invertedIndex.get(stem).get(location).add(position);
-
-		if (modified)
-		{
-			wordCounts.putIfAbsent(location, 0);
-			wordCounts.put(location, wordCounts.get(location) + 1);
-		}
+		return wordCounts.get(location);
 	}
 
 	/**
-	 * addAll - Function that adds all the elements of one inverted index to this one
+	 * numIds - Returns the number of dense location IDs assigned so far, which score accumulators make
+	 * 			room for
 	 *
-	 * @param other - THe other inverted index to copy from
+	 * @return Returns the number of location IDs
 	 */
-	public void addAll(InvertedIndex other)
+	int numIds()
 	{
-		for (String key : other.invertedIndex.keySet())
-		{
-			if (this.invertedIndex.containsKey(key))
-			{
-				for (String location : other.invertedIndex.get(key).keySet())
-				{
-					if (this.invertedIndex.get(key).containsKey(location))
-					{
-						this.invertedIndex.get(key).get(location).addAll(other.invertedIndex.get(key).get(location));
-					}
-
-					else
-					{
-						TreeSet<Integer> inner = other.invertedIndex.get(key).get(location);
-						this.invertedIndex.get(key).put(location, inner);
-					}
-				}
-			}
-
-			else
-			{
-				TreeMap<String, TreeSet<Integer>> inner = other.invertedIndex.get(key);
-				this.invertedIndex.put(key, inner);
-			}
-		}
+		return names.size();
+	}
 
-		for (String location : other.wordCounts.keySet())
-		{
-			if (this.wordCounts.containsKey(location))
-			{
-				this.wordCounts.put(location, this.wordCounts.get(location) + other.wordCounts.get(location));
-			}
+	/**
+	 * numLocations - Returns the number of locations in the inverted index
+	 *
+	 * @return Returns the number of locations
+	 */
+	int numLocations()
+	{
+		return wordCounts.size();
+	}
 
-			else
-			{
-				this.wordCounts.put(location, other.wordCounts.get(location));
-			}
-		}
+	/**
+	 * result - Creates the search result of a location
+	 *
+	 * @param location - The path location
+	 * @param numMatches - The number of matches in the location
+	 * @param score - The score of the location
+	 * @return Returns the search result
+	 */
+	SearchResult result(String location, int numMatches, double score)
+	{
+		return new SearchResult(location, numMatches, score);
+	}
 
+	/**
+	 * getDocuments - Returns an unmodifiable view of the set of locations found in the inverted index
+	 *
+	 * @return Returns an unmodifiable view of the set of locations found in the inverted index
+	 */
+	public Set<String> getDocuments()
+	{
+		return Collections.unmodifiableSet(wordCounts.keySet());
 	}
 
 	/**
@@ -217,6 +2319,13 @@ public class InvertedIndex
 			return Collections.unmodifiableSet(Collections.emptySet());
 		}
 
+		if (!deleted.isEmpty())
+		{
+			Set<String> locations = new TreeSet<String>(invertedIndex.get(key).keySet());
+			locations.removeAll(deleted);
+			return Collections.unmodifiableSet(locations);
+		}
+
 		return Collections.unmodifiableSet(invertedIndex.get(key).keySet());
 	}
 
@@ -261,7 +2370,7 @@ public class InvertedIndex
 	 */
 	public boolean containsLocation(String key, String location)
 	{
-		return invertedIndex.containsKey(key) && invertedIndex.get(key).containsKey(location);
+		return invertedIndex.containsKey(key) && invertedIndex.get(key).containsKey(location) && !isDeleted(location);
 	}
 
 	/**
@@ -307,6 +2416,11 @@ public class InvertedIndex
 			return 0;
 		}
 
+		if (!deleted.isEmpty())
+		{
+			return getLocations(key).size();
+		}
+
 		return invertedIndex.get(key).keySet().size();
 	}
 
@@ -328,7 +2442,7 @@ public class InvertedIndex
 	}
 
 	/**
-	 * toJson - Outputs the inverted index to a JSON format file
+	 * toJson - Outputs the inverted index to a JSON format file, purging any removed locations first
 	 * 			(Does not break encapsulation this way)
 	 *
 	 * @param output - The path to output the index to
@@ -336,6 +2450,7 @@ public class InvertedIndex
 	 */
 	public void indexToJson(Path output) throws IOException
 	{
+		purge();
 		JsonWriter.asNestedMap(invertedIndex, output);
 	}
 
@@ -388,6 +2503,219 @@ public class InvertedIndex
 		return JsonWriter.asNestedMap(invertedIndex);
 	}
 
+	/**
+	 * PostingLists - The posting arrays of the words searched since the inverted index last changed, along
+	 * 				  with the rank of every location in location order so cursors can compare IDs
+	 */
+	class PostingLists
+	{
+		/**
+		 * ranks - The position of each location in location order, indexed by location ID
+		 */
+		final int[] ranks;
+
+		/**
+		 * lists - The words mapped to their posting arrays, built the first time the word is searched
+		 */
+		private final Map<String, Postings> lists;
+
+		/**
+		 * Ranks the locations of the inverted index
+		 */
+		private PostingLists()
+		{
+			int rank = 0;
+			this.ranks = new int[names.size()];
+			this.lists = new ConcurrentHashMap<String, Postings>();
+
+			for (String location : wordCounts.keySet())
+			{
+				ranks[ids.get(location)] = rank++;
+			}
+		}
+
+		/**
+		 * get - Returns the posting arrays of a word, building them the first time
+		 *
+		 * @param key - The word in the inverted index
+		 * @return Returns the posting arrays of the word
+		 */
+		Postings get(String key)
+		{
+			return lists.computeIfAbsent(key, word ->
+			{
+				TreeMap<String, TreeSet<Integer>> locations = invertedIndex.get(word);
+				int[] built = new int[locations.size()];
+				int[] frequencies = new int[locations.size()];
+				int size = 0;
+
+				for (Map.Entry<String, TreeSet<Integer>> entry : locations.entrySet())
+				{
+					if (!isDeleted(entry.getKey()))
+					{
+						built[size] = ids.get(entry.getKey());
+						frequencies[size++] = entry.getValue().size();
+					}
+				}
+
+				return new Postings(Arrays.copyOf(built, size), Arrays.copyOf(frequencies, size));
+			});
+		}
+	}
+
+	/**
+	 * Statistics - The collection statistics scorers need, computed once for the current contents of the
+	 * 				inverted index. The number of locations containing a word is the length of its posting
+	 * 				arrays, which leave out removed locations even before the next purge.
+	 */
+	class Statistics
+	{
+		/**
+		 * version - The version of the larger collection the statistics come from, or -1 if they come from
+		 * 			 this inverted index
+		 */
+		private final long version;
+
+		/**
+		 * numDocuments - The number of locations in the inverted index
+		 */
+		private final int numDocuments;
+
+		/**
+		 * totalWords - The total number of words of every location
+		 */
+		private final long totalWords;
+
+		/**
+		 * averageLength - The average number of words per location
+		 */
+		private final double averageLength;
+
+		/**
+		 * norms - The per-document norms of each scorer, computed the first time the scorer is used
+		 */
+		private final Map<Scorer, double[]> norms;
+
+		/**
+		 * bounds - The highest score of each word in any location for each scorer, computed the first
+		 * 			time the word is scored
+		 */
+		private final Map<Scorer, Map<String, Double>> bounds;
+
+		/**
+		 * Computes the number of locations and their average length
+		 */
+		private Statistics()
+		{
+			long totalWords = 0;
+
+			for (int count : wordCounts.values())
+			{
+				totalWords += count;
+			}
+
+			this.version = -1;
+			this.numDocuments = wordCounts.size();
+			this.totalWords = totalWords;
+			this.averageLength = numDocuments == 0 ? 0 : (double) totalWords / numDocuments;
+			this.norms = new ConcurrentHashMap<Scorer, double[]>();
+			this.bounds = new ConcurrentHashMap<Scorer, Map<String, Double>>();
+		}
+
+		/**
+		 * Uses the number of locations and average length of a larger collection
+		 *
+		 * @param collection - The statistics of the larger collection
+		 */
+		private Statistics(CollectionStatistics collection)
+		{
+			this.version = collection.getVersion();
+			this.numDocuments = collection.getNumDocuments();
+			this.totalWords = 0;
+			this.averageLength = collection.getAverageLength();
+			this.norms = new ConcurrentHashMap<Scorer, double[]>();
+			this.bounds = new ConcurrentHashMap<Scorer, Map<String, Double>>();
+		}
+
+		/**
+		 * weight - Returns the weight of a word for a scorer, counting the locations containing it in the
+		 * 			larger collection being searched if there is one. Removed locations are not counted, just
+		 * 			as they are not counted in the number of locations.
+		 *
+		 * @param scorer - The scorer
+		 * @param key - The word
+		 * @param collection - The statistics of the larger collection being searched, or null
+		 * @return Returns the weight of the word
+		 */
+		double weight(Scorer scorer, String key, CollectionStatistics collection)
+		{
+			int local = postings().get(key).ids.length;
+			int frequency = collection == null ? local : collection.getDocumentFrequency(key, local);
+			return scorer.weight(frequency, numDocuments);
+		}
+
+		/**
+		 * prepare - Computes the norms of every location and the score upper bound of every word for a scorer
+		 *
+		 * @param scorer - The scorer
+		 */
+		private void prepare(Scorer scorer)
+		{
+			for (String key : invertedIndex.keySet())
+			{
+				bound(scorer, key, null);
+			}
+		}
+
+		/**
+		 * bound - Returns the highest score a word has in any location for a scorer
+		 *
+		 * @param scorer - The scorer
+		 * @param key - The word
+		 * @param collection - The statistics of the larger collection being searched, or null
+		 * @return Returns the score upper bound of the word
+		 */
+		double bound(Scorer scorer, String key, CollectionStatistics collection)
+		{
+			return bounds.computeIfAbsent(scorer, s -> new ConcurrentHashMap<String, Double>()).computeIfAbsent(key, word ->
+			{
+				Postings postings = postings().get(word);
+				double[] norms = norms(scorer);
+				double weight = weight(scorer, word, collection);
+				double bound = 0;
+
+				for (int j = 0; j < postings.ids.length; j++)
+				{
+					bound = Math.max(bound, scorer.score(postings.frequencies[j], weight, norms[postings.ids[j]]));
+				}
+
+				return bound;
+			});
+		}
+
+		/**
+		 * norms - Returns the norm of every location for a scorer
+		 *
+		 * @param scorer - The scorer
+		 * @return Returns the norms of the locations, indexed by their dense ID
+		 */
+		double[] norms(Scorer scorer)
+		{
+			return norms.computeIfAbsent(scorer, s ->
+			{
+				double[] computed = new double[names.size()];
+
+				for (Map.Entry<String, Integer> entry : wordCounts.entrySet())
+				{
+					computed[ids.get(entry.getKey())] = s.norm(entry.getValue(), averageLength);
+				}
+
+				return computed;
+			});
+		}
+
+	}
+
 	/**
 	 * @author Josh Guevarra
 	 *
@@ -422,18 +2750,37 @@ public class InvertedIndex
 			this.score = 0;
 		}
 
-		/**
-		 * update - Updates the properties of a SearchResult object
-		 * @param key - The query key
+		/** Initalizes a SearchResult object with its final number of matches
+		 *
+		 * @param location - The file location assocaited with the SearchResult
+		 * @param numMatches - Number of times a query matched words in the file
 		 */
-		private void update(String key)
+		private SearchResult(String location, int numMatches)
 		{
-			numMatches += invertedIndex.get(key).get(location).size();
-			double score = (double) numMatches / wordCounts.get(location);
+			this(location, numMatches, (double) numMatches / wordCounts.get(location));
+		}
 
+		/** Initalizes a SearchResult object with its final number of matches and score
+		 *
+		 * @param location - The file location assocaited with the SearchResult
+		 * @param numMatches - Number of times a query matched words in the file
+		 * @param score - The score of the file
+		 */
+		private SearchResult(String location, int numMatches, double score)
+		{
+			this.location = location;
+			this.numMatches = numMatches;
 			this.score = score;
 		}
 
+		/**
+		 * boost - Multiplies the score of a SearchResult object
+		 * @param factor - The factor to multiply the score by
+		 */
+		private void boost(double factor)
+		{
+			this.score *= factor;
+		}
 
 		/**
 		 * getNumMatches - Returns the number of query matches in a file
@@ -470,42 +2817,40 @@ public class InvertedIndex
 		 * 		2) Number of Matches - If scores are the same, then objects are sorted by number of matches
 		 * 							   in descending order
 		 * 		3) Location - If scores and num matches are both the same, then objects are sorted
-		 * 				      by alphabetical order of their locations
+		 * 				      by alphabetical order of their locations, ignoring case first so that only
+		 * 				      locations differing in case alone are told apart by it
 		 */
 		@Override
 		public int compareTo(SearchResult other)
 		{
-			if (this.getScore() != other.getScore())
-			{
-				if (this.getScore() > other.getScore())
-				{
-					return -1;
-				}
-
-				if (this.getScore() == other.getScore())
-				{
-					return 0;
-				}
+			return compareTo(other.getScore(), other.getNumMatches(), other.getLocation());
+		}
 
-				return 1;
+		/**
+		 * compareTo - Compares this SearchResult to a result that has not been created yet, using the
+		 * 			   same ranking as {@link #compareTo(SearchResult)}
+		 *
+		 * @param score - The score of the other result
+		 * @param numMatches - The number of matches of the other result
+		 * @param location - The location of the other result
+		 * @return Returns a negative number if this result ranks first, or a positive number if the other does
+		 */
+		int compareTo(double score, int numMatches, String location)
+		{
+			if (this.getScore() != score)
+			{
+				return this.getScore() > score ? -1 : 1;
 			}
 
-			if (this.getNumMatches() != other.getNumMatches())
+			if (this.getNumMatches() != numMatches)
 			{
-				if (this.getNumMatches() > other.getNumMatches())
-				{
-					return -1;
-				}
-
-				if (this.getNumMatches() == other.getNumMatches())
-				{
-					return 0;
-				}
-
-				return 1;
+				return this.getNumMatches() > numMatches ? -1 : 1;
 			}
 
-			return this.getLocation().compareToIgnoreCase(other.getLocation());
+			int order = this.getLocation().compareToIgnoreCase(location);
+
+			// a cursor resumes strictly after its result, so distinct locations must never compare as equal
+			return order != 0 ? order : this.getLocation().compareTo(location);
 		}
 	}
 }
@@ -1,5 +1,8 @@
 import java.io.BufferedReader;
+import java.io.CharArrayReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -30,12 +33,27 @@ public class InvertedIndexBuilder
 	 * @throws IOException Throws and exception if the file cannot be read
 	 */
 	public static void findTextFiles(Path input, InvertedIndex index) throws IOException
+	{
+		findTextFiles(input, index, null);
+	}
+
+	/**
+	 * findTextFiles - The function that gets the files found in the "-text" flag to create the inverted index,
+	 * 				   skipping any file with the same content as a file already indexed
+	 *
+	 * @param input - The input directory
+	 * @param index	- The inverted index data structure
+	 * @param duplicates - The tracker used to skip duplicate files, or null to index every file
+	 *
+	 * @throws IOException Throws and exception if the file cannot be read
+	 */
+	public static void findTextFiles(Path input, InvertedIndex index, DuplicateTracker duplicates) throws IOException
 	{
 		Set<Path> listPaths = PathTraverser.traverseDirectory(input);
 
 		for (Path path : listPaths)
 		{
-			createIndex(path, index);
+			createIndex(path, index, duplicates);
 		}
 	}
 
@@ -50,21 +68,74 @@ public class InvertedIndexBuilder
 	 * @throws IOException Throws an exception if the file cannot be read
 	 */
 	public static void createIndex(Path path, InvertedIndex index) throws IOException
+	{
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8))
+		{
+			createIndex(reader, path.toString(), index);
+		}
+	}
+
+	/**
+	 * createIndex - The function that adds a file to the inverted index unless the duplicate tracker
+	 * 				 has already seen a file with the same content and a smaller path, in which case the
+	 * 				 file is only recorded as an alias. The file is fingerprinted before any text is parsed,
+	 * 				 and replaces a copy with a larger path that was already added.
+	 *
+	 * @param path - The path of the file
+	 * @param index - The inverted index data structure
+	 * @param duplicates - The tracker used to skip duplicate files, or null to index every file
+	 * @return Returns true if the file was added to the inverted index
+	 *
+	 * @throws IOException Throws an exception if the file cannot be read
+	 */
+	public static boolean createIndex(Path path, InvertedIndex index, DuplicateTracker duplicates) throws IOException
+	{
+		if (duplicates == null)
+		{
+			createIndex(path, index);
+			return true;
+		}
+
+		byte[] content = Files.readAllBytes(path);
+
+		if (duplicates.register(path.toString(), content) != null)
+		{
+			return false;
+		}
+
+		CharBuffer text = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(content));
+		InvertedIndex local = new InvertedIndex();
+
+		try (BufferedReader reader = new BufferedReader(new CharArrayReader(text.array(), text.position(), text.remaining())))
+		{
+			createIndex(reader, path.toString(), local);
+		}
+
+		return duplicates.add(path.toString(), local, index);
+	}
+
+	/**
+	 * createIndex - The function that adds every stemmed word read from a reader into the inverted index
+	 * 				 along with its location and position
+	 *
+	 * @param reader - The reader to read lines from
+	 * @param location - The location to add the words under
+	 * @param index - The inverted index data structure
+	 *
+	 * @throws IOException Throws an exception if the reader cannot be read
+	 */
+	public static void createIndex(BufferedReader reader, String location, InvertedIndex index) throws IOException
 	{
 		String line = null;
 		int position = 1;
 		Stemmer stemmer  = new SnowballStemmer(ENGLISH);
-		String location = path.toString();
-		
-		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8))
+
+		while ((line = reader.readLine()) != null)
 		{
-			while ((line = reader.readLine()) != null)
+			for (String word : TextParser.parse(line))
 			{
-				for (String word : TextParser.parse(line))
-				{
-					index.add(stemmer.stem(word).toString(), location, position);
-					position++;
-				}
+				index.add(stemmer.stem(word).toString(), location, position);
+				position++;
 			}
 		}
 	}
@@ -557,18 +557,73 @@ public class JsonWriter
 
 	/**
 	 * Indents and then writes the text element surrounded by {@code " "} quotation
-	 * marks.
+	 * marks, escaping any character JSON does not allow inside a string.
 	 *
 	 * @param element the element to write
 	 * @param writer the writer to use
 	 * @param level the number of times to indent
 	 * @throws IOException if an IO error occurs
+	 *
+	 * @see #escape(String, Writer)
 	 */
 	public static void quote(String element, Writer writer, int level) throws IOException
 	{
 		indent(writer, level);
 		writer.write('"');
-		writer.write(element);
+		escape(element, writer);
 		writer.write('"');
 	}
+
+	/**
+	 * Writes the text with its quotation marks, backslashes and control characters
+	 * escaped, such as the quotes of a phrase query used as a key. Text without any
+	 * of them is written as is.
+	 *
+	 * @param text the text to write
+	 * @param writer the writer to use
+	 * @throws IOException if an IO error occurs
+	 */
+	public static void escape(String text, Writer writer) throws IOException
+	{
+		int start = 0;
+
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+
+			if (c == '"' || c == '\\' || c < 0x20)
+			{
+				writer.write(text, start, i - start);
+				start = i + 1;
+
+				if (c == '"' || c == '\\')
+				{
+					writer.write('\\');
+					writer.write(c);
+				}
+
+				else if (c == '\n')
+				{
+					writer.write("\\n");
+				}
+
+				else if (c == '\r')
+				{
+					writer.write("\\r");
+				}
+
+				else if (c == '\t')
+				{
+					writer.write("\\t");
+				}
+
+				else
+				{
+					writer.write(String.format("\\u%04x", (int) c));
+				}
+			}
+		}
+
+		writer.write(text, start, text.length() - start);
+	}
 }
@@ -0,0 +1,285 @@
+import java.util.TreeSet;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	LevenshteinAutomaton - Accepts every word within a maximum number of edits (insertions, deletions and
+ *						   substitutions) of a given word. A state is one row of the edit distance table,
+ *						   capped just above the maximum number of edits. Given any string, the automaton
+ *						   finds the smallest accepted word that is not smaller than it, so the words of a
+ *						   sorted dictionary within reach can be found by alternating between the automaton
+ *						   and the dictionary instead of scanning every word.
+ */
+public class LevenshteinAutomaton
+{
+	/**
+	 * word - The word to match
+	 */
+	private final String word;
+
+	/**
+	 * maxEdits - The maximum number of edits from the word
+	 */
+	private final int maxEdits;
+
+	/**
+	 * alphabet - The unique characters of the word in ascending order
+	 */
+	private final char[] alphabet;
+
+	/**
+	 * other - A character that is not in the word, standing in for every character outside of the alphabet
+	 */
+	private final char other;
+
+	/**
+	 * Initializes an automaton accepting the words within a maximum number of edits of a word
+	 *
+	 * @param word - The word to match
+	 * @param maxEdits - The maximum number of edits from the word
+	 */
+	public LevenshteinAutomaton(String word, int maxEdits)
+	{
+		this.word = word;
+		this.maxEdits = Math.max(0, maxEdits);
+
+		TreeSet<Character> characters = new TreeSet<Character>();
+
+		for (char c : word.toCharArray())
+		{
+			characters.add(c);
+		}
+
+		this.alphabet = new char[characters.size()];
+		int i = 0;
+
+		for (char c : characters)
+		{
+			alphabet[i++] = c;
+		}
+
+		char unused = 0;
+
+		while (characters.contains(unused))
+		{
+			unused++;
+		}
+
+		this.other = unused;
+	}
+
+	/**
+	 * matches - Returns true if a term is within the maximum number of edits of the word
+	 *
+	 * @param term - The term to check
+	 * @return Returns true if the term is accepted
+	 */
+	public boolean matches(String term)
+	{
+		int[] state = start();
+
+		for (int i = 0; i < term.length(); i++)
+		{
+			state = step(state, term.charAt(i));
+
+			if (!isLive(state))
+			{
+				return false;
+			}
+		}
+
+		return isMatch(state);
+	}
+
+	/**
+	 * next - Returns the smallest accepted word that is not smaller than a target string
+	 *
+	 * @param target - The string to start from
+	 * @return Returns the smallest accepted word greater than or equal to the target, or null if there is none
+	 */
+	public String next(String target)
+	{
+		int[][] states = new int[target.length() + 1][];
+		states[0] = start();
+		int i = 0;
+
+		while (i < target.length())
+		{
+			int[] state = step(states[i], target.charAt(i));
+
+			if (!isLive(state))
+			{
+				break;
+			}
+
+			states[++i] = state;
+		}
+
+		if (i == target.length())
+		{
+			// every extension of the target is larger than any string that differs from it earlier
+			return smallest(target, states[i]);
+		}
+
+		for (int j = i; j >= 0; j--)
+		{
+			int c = edge(states[j], target.charAt(j));
+
+			if (c >= 0)
+			{
+				return smallest(target.substring(0, j) + (char) c, step(states[j], (char) c));
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * smallest - Returns the smallest accepted word starting with a prefix, by always following the
+	 * 			  smallest character that can still lead to an accepted word
+	 *
+	 * @param prefix - The prefix, which must lead to a live state
+	 * @param state - The state reached after the prefix
+	 * @return Returns the smallest accepted word starting with the prefix
+	 */
+	private String smallest(String prefix, int[] state)
+	{
+		StringBuilder builder = new StringBuilder(prefix);
+
+		while (!isMatch(state))
+		{
+			char c = (char) edge(state, -1);
+			builder.append(c);
+			state = step(state, c);
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * edge - Returns the smallest character greater than a given one that leads to a live state.
+	 * 		  A character of the word never leads to a worse state than a character outside of it,
+	 * 		  so if any character outside of the word is live, every character is.
+	 *
+	 * @param state - The current state
+	 * @param after - The character to start after, or -1 to consider every character
+	 * @return Returns the smallest live character greater than after, or -1 if there is none
+	 */
+	private int edge(int[] state, int after)
+	{
+		if (isLive(state, other))
+		{
+			return after < Character.MAX_VALUE ? after + 1 : -1;
+		}
+
+		for (char c : alphabet)
+		{
+			if (c > after && isLive(state, c))
+			{
+				return c;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * start - Returns the state before reading any character
+	 *
+	 * @return Returns the first row of the edit distance table
+	 */
+	private int[] start()
+	{
+		int[] state = new int[word.length() + 1];
+
+		for (int j = 0; j < state.length; j++)
+		{
+			state[j] = Math.min(j, maxEdits + 1);
+		}
+
+		return state;
+	}
+
+	/**
+	 * step - Returns the state after reading one more character
+	 *
+	 * @param state - The current state
+	 * @param c - The character read
+	 * @return Returns the next row of the edit distance table
+	 */
+	private int[] step(int[] state, char c)
+	{
+		int[] next = new int[state.length];
+		next[0] = Math.min(state[0] + 1, maxEdits + 1);
+
+		for (int j = 1; j < state.length; j++)
+		{
+			int substitution = state[j - 1] + (word.charAt(j - 1) == c ? 0 : 1);
+			int distance = Math.min(substitution, Math.min(state[j], next[j - 1]) + 1);
+			next[j] = Math.min(distance, maxEdits + 1);
+		}
+
+		return next;
+	}
+
+	/**
+	 * isLive - Returns true if some accepted word can still be reached from a state
+	 *
+	 * @param state - The state to check
+	 * @return Returns true if the state can still lead to an accepted word
+	 */
+	private boolean isLive(int[] state)
+	{
+		for (int distance : state)
+		{
+			if (distance <= maxEdits)
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * isLive - Returns true if the state after reading one more character would be live, without
+	 * 			building that state
+	 *
+	 * @param state - The current state
+	 * @param c - The character read
+	 * @return Returns true if the next state can still lead to an accepted word
+	 */
+	private boolean isLive(int[] state, char c)
+	{
+		int previous = state[0] + 1;
+
+		if (previous <= maxEdits)
+		{
+			return true;
+		}
+
+		for (int j = 1; j < state.length; j++)
+		{
+			int substitution = state[j - 1] + (word.charAt(j - 1) == c ? 0 : 1);
+			previous = Math.min(substitution, Math.min(state[j], previous) + 1);
+
+			if (previous <= maxEdits)
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * isMatch - Returns true if the characters read so far are accepted
+	 *
+	 * @param state - The state to check
+	 * @return Returns true if the state accepts
+	 */
+	private boolean isMatch(int[] state)
+	{
+		return state[state.length - 1] <= maxEdits;
+	}
+}
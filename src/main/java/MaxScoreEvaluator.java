@@ -0,0 +1,361 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	MaxScoreEvaluator - Evaluates queries document-at-a-time with MaxScore dynamic pruning. The location lists
+ *						of every query word are merged one location at a time, and the lists of words that can
+ *						no longer lift a location into the k best results are only probed instead of scanned.
+ *
+ * @see QueryPlan.Strategy#DOCUMENT_AT_A_TIME
+ */
+class MaxScoreEvaluator
+{
+	/**
+	 * PRUNING_SLACK - The relative amount score upper bounds are inflated by before a location is pruned,
+	 * 				   so rounding differences never prune a location that belongs in the top results
+	 */
+	private static final double PRUNING_SLACK = 1e-9;
+
+	/**
+	 * index - The inverted index whose locations are scored
+	 */
+	private final InvertedIndex index;
+
+	/**
+	 * Initializes the evaluator of an inverted index
+	 *
+	 * @param index - The inverted index whose locations are scored
+	 */
+	public MaxScoreEvaluator(InvertedIndex index)
+	{
+		this.index = index;
+	}
+
+	/**
+	 * pruned - Returns the k best locations matching any of the given words using MaxScore dynamic pruning.
+	 * 			Words are ordered by the upper bound of their score in any location. Once the heap is full,
+	 * 			the words whose bounds add up to less than the worst result kept so far cannot produce a new
+	 * 			result on their own, so their location lists are no longer scanned and are only probed for
+	 * 			locations found through the other words. A location is dropped as soon as its partial score
+	 * 			plus the bounds of the words left to probe falls below the worst result kept. The results
+	 * 			are identical to scoring every location.
+	 *
+	 * @param keys - The words in the inverted index matched by the query
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param after - The result to resume after, or null to start from the best result
+	 * @param k - The maximum number of results to return
+	 * @param context - The state of the search
+	 * @return Returns a list of at most k searchResults in ranked order
+	 */
+	public ArrayList<InvertedIndex.SearchResult> pruned(List<String> keys, Scorer scorer, InvertedIndex.SearchResult after, int k, SearchContext context)
+	{
+		if (k <= 0 || keys.isEmpty())
+		{
+			return new ArrayList<InvertedIndex.SearchResult>();
+		}
+
+		InvertedIndex.Statistics statistics = index.statistics(context);
+		double[] norms = statistics.norms(scorer);
+		InvertedIndex.PostingLists lists = index.postings();
+		int size = keys.size();
+
+		List<Cursor> cursors = new ArrayList<Cursor>(size);
+		double[] weights = new double[size];
+		double[] bounds = new double[size];
+		long total = 0;
+
+		for (int i = 0; i < size; i++)
+		{
+			Postings postings = lists.get(keys.get(i));
+
+			cursors.add(new Cursor(i, postings, lists.ranks));
+			weights[i] = statistics.weight(scorer, keys.get(i), context.getCollection());
+			bounds[i] = statistics.bound(scorer, keys.get(i), context.getCollection());
+			total += postings.ids.length;
+		}
+
+		List<Integer> order = new ArrayList<Integer>(size);
+
+		for (int i = 0; i < size; i++)
+		{
+			order.add(i);
+		}
+
+		order.sort(Comparator.comparingDouble(i -> bounds[i]));
+		double[] cumulative = new double[size];
+
+		for (int j = 0; j < size; j++)
+		{
+			cumulative[j] = (j == 0 ? 0 : cumulative[j - 1]) + bounds[order.get(j)];
+		}
+
+		PriorityQueue<InvertedIndex.SearchResult> heap = new PriorityQueue<InvertedIndex.SearchResult>((int) Math.max(1, Math.min(k, total)), Collections.reverseOrder());
+		PriorityQueue<Cursor> essential = new PriorityQueue<Cursor>(size);
+		double[] contributions = new double[size];
+		int[] frequencies = new int[size];
+		int[] touched = new int[size];
+		double threshold = Double.NEGATIVE_INFINITY;
+		int nonEssential = 0;
+		long scored = 0;
+
+		// a word only found in removed locations has no postings left to scan
+		for (Cursor cursor : cursors)
+		{
+			if (!cursor.isDone())
+			{
+				essential.add(cursor);
+			}
+		}
+
+		while (!essential.isEmpty())
+		{
+			if (++scored % InvertedIndex.BUDGET_CHECK_INTERVAL == 0 && context.isExpired())
+			{
+				break;
+			}
+
+			int id = essential.peek().id();
+			int rank = essential.peek().rank();
+			double norm = norms[id];
+			double score = 0;
+			int numTouched = 0;
+
+			while (!essential.isEmpty() && essential.peek().id() == id)
+			{
+				Cursor cursor = essential.poll();
+				int i = cursor.term;
+
+				frequencies[i] = cursor.frequency();
+				contributions[i] = scorer.score(frequencies[i], weights[i], norm);
+				score += contributions[i];
+				touched[numTouched++] = i;
+
+				if (cursor.advance())
+				{
+					essential.add(cursor);
+				}
+			}
+
+			boolean viable = true;
+
+			for (int j = nonEssential - 1; j >= 0; j--)
+			{
+				if (below(score + cumulative[j], threshold))
+				{
+					viable = false;
+					break;
+				}
+
+				int i = order.get(j);
+				Cursor cursor = cursors.get(i);
+
+				if (cursor.seek(rank))
+				{
+					frequencies[i] = cursor.frequency();
+					contributions[i] = scorer.score(frequencies[i], weights[i], norm);
+					score += contributions[i];
+					touched[numTouched++] = i;
+				}
+			}
+
+			if (!viable || below(score, threshold))
+			{
+				continue;
+			}
+
+			// sum in query order so scores are identical to the ones computed without pruning
+			Arrays.sort(touched, 0, numTouched);
+			String location = index.location(id);
+			int numMatches = 0;
+			score = 0;
+
+			for (int t = 0; t < numTouched; t++)
+			{
+				numMatches += frequencies[touched[t]];
+				score += contributions[touched[t]];
+			}
+
+			if (scorer == Scorer.MATCHES)
+			{
+				score = (double) numMatches / index.wordCount(location);
+			}
+
+			if (!InvertedIndex.follows(after, score, numMatches, location))
+			{
+				continue;
+			}
+
+			if (heap.size() < k)
+			{
+				heap.add(index.result(location, numMatches, score));
+			}
+
+			else if (heap.peek().compareTo(score, numMatches, location) > 0)
+			{
+				heap.poll();
+				heap.add(index.result(location, numMatches, score));
+			}
+
+			if (heap.size() == k)
+			{
+				threshold = heap.peek().getScore();
+
+				while (nonEssential < size && below(cumulative[nonEssential], threshold))
+				{
+					essential.remove(cursors.get(order.get(nonEssential)));
+					nonEssential++;
+				}
+			}
+		}
+
+		long start = System.nanoTime();
+		ArrayList<InvertedIndex.SearchResult> results = new ArrayList<InvertedIndex.SearchResult>(heap);
+		Collections.sort(results);
+		context.selected(scored, start);
+		return results;
+	}
+
+	/**
+	 * below - Returns true if a score upper bound is safely below the worst result kept so far
+	 *
+	 * @param bound - The score upper bound
+	 * @param threshold - The score of the worst result kept so far
+	 * @return Returns true if no location within the bound can be kept
+	 */
+	private static boolean below(double bound, double threshold)
+	{
+		return bound + Math.abs(bound) * PRUNING_SLACK < threshold;
+	}
+
+	/**
+	 * Cursor - The position of a pruned search within the location list of one query word
+	 */
+	private static class Cursor implements Comparable<Cursor>
+	{
+		/**
+		 * SEEK_STEPS - The number of locations stepped over before a seek jumps with a binary search instead
+		 */
+		private static final int SEEK_STEPS = 8;
+
+		/**
+		 * term - The index of the query word
+		 */
+		private final int term;
+
+		/**
+		 * postings - The posting arrays of the query word
+		 */
+		private final Postings postings;
+
+		/**
+		 * ranks - The position of each location in location order, indexed by location ID
+		 */
+		private final int[] ranks;
+
+		/**
+		 * index - The index of the current location in the posting arrays
+		 */
+		private int index;
+
+		/**
+		 * Initializes the cursor at the first location of a location list
+		 *
+		 * @param term - The index of the query word
+		 * @param postings - The posting arrays of the query word
+		 * @param ranks - The position of each location in location order, indexed by location ID
+		 */
+		private Cursor(int term, Postings postings, int[] ranks)
+		{
+			this.term = term;
+			this.postings = postings;
+			this.ranks = ranks;
+			this.index = 0;
+		}
+
+		/**
+		 * isDone - Returns true if the cursor moved past the last location
+		 *
+		 * @return Returns true if there are no locations left
+		 */
+		private boolean isDone()
+		{
+			return index >= postings.ids.length;
+		}
+
+		/**
+		 * id - Returns the ID of the current location
+		 *
+		 * @return Returns the ID of the current location
+		 */
+		private int id()
+		{
+			return postings.ids[index];
+		}
+
+		/**
+		 * rank - Returns the position of the current location in location order
+		 *
+		 * @return Returns the rank of the current location
+		 */
+		private int rank()
+		{
+			return ranks[postings.ids[index]];
+		}
+
+		/**
+		 * frequency - Returns the number of times the query word is found in the current location
+		 *
+		 * @return Returns the frequency of the query word in the current location
+		 */
+		private int frequency()
+		{
+			return postings.frequencies[index];
+		}
+
+		/**
+		 * advance - Moves the cursor to the next location
+		 *
+		 * @return Returns false if there are no locations left
+		 */
+		private boolean advance()
+		{
+			index++;
+			return !isDone();
+		}
+
+		/**
+		 * seek - Moves the cursor forward to the first location at or after a target location. Nearby
+		 * 		  locations are stepped over, and far away ones are reached with a binary search.
+		 *
+		 * @param target - The rank of the target location
+		 * @return Returns true if the cursor is now at the target location
+		 */
+		private boolean seek(int target)
+		{
+			for (int step = 0; !isDone() && rank() < target; step++)
+			{
+				if (step == SEEK_STEPS)
+				{
+					index = postings.seek(ranks, target, index);
+					break;
+				}
+
+				advance();
+			}
+
+			return !isDone() && rank() == target;
+		}
+
+		@Override
+		public int compareTo(Cursor other)
+		{
+			return Integer.compare(rank(), other.rank());
+		}
+	}
+}
@@ -1,7 +1,9 @@
 import java.io.IOException;
-import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import opennlp.tools.stemmer.snowball.SnowballStemmer;
 
@@ -18,7 +20,15 @@ public class MultithreadedBuilder
 	public static final SnowballStemmer.ALGORITHM ENGLISH = SnowballStemmer.ALGORITHM.ENGLISH;
 
 	/**
-	 * findTextFiles - The function that gets the files found in the "-text" flag to create the inverted index
+	 * IN_FLIGHT_PER_THREAD - The number of queued files allowed per worker thread before
+	 * 						  directory tasks start indexing files themselves
+	 */
+	public static final int IN_FLIGHT_PER_THREAD = 64;
+
+	/**
+	 * findTextFiles - The function that gets the files found in the "-text" flag to create the inverted index.
+	 * 				   Directories are walked in parallel by the work queue and every text file found is
+	 * 				   queued for indexing right away, so indexing starts before the traversal is done.
 	 *
 	 * @param input - The input directory
 	 * @param index	- The inverted index data structure
@@ -28,14 +38,161 @@ public class MultithreadedBuilder
 	 */
 	public static void findTextFiles(Path input, ThreadSafeInvertedIndex index, WorkQueue tasks) throws IOException
 	{
-		Set<Path> listPaths = PathTraverser.traverseDirectory(input);
+		findTextFiles(input, index, tasks, null);
+	}
+
+	/**
+	 * findTextFiles - The function that gets the files found in the "-text" flag to create the inverted index,
+	 * 				   skipping any file with the same content as a file already indexed
+	 *
+	 * @param input - The input directory
+	 * @param index	- The inverted index data structure
+	 * @param tasks - The Work Queue to use
+	 * @param duplicates - The tracker used to skip duplicate files, or null to index every file
+	 *
+	 * @throws IOException Throws the first exception met while listing a directory or reading a file, once
+	 * 					   every other file was indexed
+	 */
+	public static void findTextFiles(Path input, ThreadSafeInvertedIndex index, WorkQueue tasks, DuplicateTracker duplicates) throws IOException
+	{
+		AtomicReference<IOException> failure = new AtomicReference<IOException>();
+
+		if (Files.isDirectory(input))
+		{
+			int limit = Math.max(1, tasks.size()) * IN_FLIGHT_PER_THREAD;
+			tasks.execute(new DirectoryTask(input, index, tasks, duplicates, new AtomicInteger(), limit, failure));
+		}
 
-		for (Path path : listPaths)
+		else
 		{
-			tasks.execute(new Task(path, index));
+			tasks.execute(new Task(input, index, duplicates, failure));
 		}
 
 		tasks.finish();
+
+		if (failure.get() != null)
+		{
+			throw failure.get();
+		}
+	}
+
+	/**
+	 * The task class that lists a single directory, queuing a new task for every
+	 * sub-directory and text file it finds.
+	 */
+	private static class DirectoryTask implements Runnable
+	{
+		/**
+		 *	directory - The directory to list
+		 */
+		private final Path directory;
+
+		/**
+		 *	index - The thread-safe inverted index
+		 */
+		private final ThreadSafeInvertedIndex index;
+
+		/**
+		 * tasks - The Work Queue to use
+		 */
+		private final WorkQueue tasks;
+
+		/**
+		 * duplicates - The tracker used to skip duplicate files, or null to index every file
+		 */
+		private final DuplicateTracker duplicates;
+
+		/**
+		 * inFlight - The number of queued files that have not been indexed yet
+		 */
+		private final AtomicInteger inFlight;
+
+		/**
+		 * limit - The maximum number of queued files before files are indexed by this task instead
+		 */
+		private final int limit;
+
+		/**
+		 * failure - The first exception met by any task of the traversal
+		 */
+		private final AtomicReference<IOException> failure;
+
+		/**
+		 * Initializes the members for this class
+		 *
+		 * @param directory - The directory to list
+		 * @param index - The thread-safe inverted index
+		 * @param tasks - The Work Queue to use
+		 * @param duplicates - The tracker used to skip duplicate files, or null to index every file
+		 * @param inFlight - The number of queued files that have not been indexed yet
+		 * @param limit - The maximum number of queued files
+		 * @param failure - The first exception met by any task of the traversal
+		 */
+		public DirectoryTask(Path directory, ThreadSafeInvertedIndex index, WorkQueue tasks, DuplicateTracker duplicates,
+				AtomicInteger inFlight, int limit, AtomicReference<IOException> failure)
+		{
+			this.directory = directory;
+			this.index = index;
+			this.tasks = tasks;
+			this.duplicates = duplicates;
+			this.inFlight = inFlight;
+			this.limit = limit;
+			this.failure = failure;
+		}
+
+		@Override
+		public void run()
+		{
+			try (DirectoryStream<Path> listings = Files.newDirectoryStream(directory))
+			{
+				for (Path path : listings)
+				{
+					if (Files.isDirectory(path))
+					{
+						tasks.execute(new DirectoryTask(path, index, tasks, duplicates, inFlight, limit, failure));
+					}
+
+					else if (PathTraverser.isTextFile(path))
+					{
+						submit(path);
+					}
+				}
+			}
+
+			catch (IOException e)
+			{
+				failure.compareAndSet(null, e);
+			}
+		}
+
+		/**
+		 * submit - Queues a file to be indexed, or indexes it on this thread if too many
+		 * 			files are already waiting in the work queue
+		 *
+		 * @param path - The text file to index
+		 */
+		private void submit(Path path)
+		{
+			if (inFlight.incrementAndGet() > limit)
+			{
+				inFlight.decrementAndGet();
+				new Task(path, index, duplicates, failure).run();
+				return;
+			}
+
+			tasks.execute(() ->
+			{
+				try
+				{
+					new Task(path, index, duplicates, failure).run();
+				}
+
+				finally
+				{
+					inFlight.decrementAndGet();
+				}
+			});
+		}
 	}
 
 	/**
@@ -54,16 +211,30 @@ public class MultithreadedBuilder
 		 */
 		private final ThreadSafeInvertedIndex index;
 
+		/**
+		 * duplicates - The tracker used to skip duplicate files, or null to index every file
+		 */
+		private final DuplicateTracker duplicates;
+
+		/**
+		 * failure - The first exception met by any task of the traversal
+		 */
+		private final AtomicReference<IOException> failure;
+
 		/**
 		 * Initializes the members for this class
 		 *
 		 * @param input - The input file path
 		 * @param index - The thread-safe inverted index
+		 * @param duplicates - The tracker used to skip duplicate files, or null to index every file
+		 * @param failure - The first exception met by any task of the traversal
 		 */
-		public Task(Path input, ThreadSafeInvertedIndex index)
+		public Task(Path input, ThreadSafeInvertedIndex index, DuplicateTracker duplicates, AtomicReference<IOException> failure)
 		{
 			this.input = input;
 			this.index = index;
+			this.duplicates = duplicates;
+			this.failure = failure;
 		}
 
 		@Override
@@ -73,12 +244,20 @@ public class MultithreadedBuilder
 
 			try
 			{
+				// the tracker adds the file itself, replacing a copy with a larger path added before it
+				if (duplicates != null)
+				{
+					InvertedIndexBuilder.createIndex(input, index, duplicates);
+					return;
+				}
+
 				InvertedIndexBuilder.createIndex(input, local);
 			}
 
 			catch (IOException e)
 			{
-				throw new UncheckedIOException(e);
+				failure.compareAndSet(null, e);
+				return;
 			}
 
 			
@@ -1,4 +1,7 @@
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -6,6 +9,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author josh
@@ -35,6 +40,27 @@ public class MultithreadedSearcher implements QuerySearchInterface
 	 */
 	private final WorkQueue tasks;
 
+	/**
+	 * proximity - Flag to boost results whose query words appear close together
+	 */
+	private final boolean proximity;
+
+	/**
+	 * scorer - The scorer used to rank search results
+	 */
+	private final Scorer scorer;
+
+	/**
+	 * cache - The most recently used top results, dropped once the inverted index changes
+	 */
+	private final ResultCache cache;
+
+	/**
+	 * claimed - The joined queries that have been searched or are being searched, so each unique
+	 * 			 query is only searched by one task
+	 */
+	private final Set<String> claimed;
+
 	/**
 	 * Initializes the inverted index to use for this class
 	 *
@@ -42,26 +68,97 @@ public class MultithreadedSearcher implements QuerySearchInterface
 	 * @param tasks - The Work Queue to use 
 	 */
 	public MultithreadedSearcher(ThreadSafeInvertedIndex index, WorkQueue tasks)
+	{
+		this(index, tasks, false);
+	}
+
+	/**
+	 * Initializes the inverted index to use for this class
+	 *
+	 * @param index - The inverted index
+	 * @param tasks - The Work Queue to use 
+	 * @param proximity - Flag to boost results whose query words appear close together if set true
+	 */
+	public MultithreadedSearcher(ThreadSafeInvertedIndex index, WorkQueue tasks, boolean proximity)
+	{
+		this(index, tasks, proximity, Scorer.MATCHES);
+	}
+
+	/**
+	 * Initializes the inverted index to use for this class
+	 *
+	 * @param index - The inverted index
+	 * @param tasks - The Work Queue to use 
+	 * @param proximity - Flag to boost results whose query words appear close together if set true
+	 * @param scorer - The scorer used to rank search results
+	 */
+	public MultithreadedSearcher(ThreadSafeInvertedIndex index, WorkQueue tasks, boolean proximity, Scorer scorer)
 	{
 		results = new TreeMap<String, ArrayList<InvertedIndex.SearchResult>>();
 		lock = new SimpleReadWriteLock();
 		this.index = index;
 		this.tasks = tasks;
+		this.proximity = proximity;
+		this.scorer = scorer;
+		this.cache = new ResultCache();
+		this.claimed = ConcurrentHashMap.newKeySet();
 	}
 
 	/**
-	 * search - Performs a line by line search on a text file
+	 * search - Searches every line of a text file concurrently. Repeated lines are only queued once,
+	 * 			and lines that parse to the same query are only searched once, so the work queue is
+	 * 			waited on a single time after every line has been queued. Lines are sorted and queued
+	 * 			in batches, so queries sharing words read their location lists together. Batches are
+	 * 			split evenly between the worker threads, and are never larger than BATCH_SIZE.
 	 *
 	 * @param path - The path of the file
 	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
 	 *
 	 * @throws IOException throws an IOException if the file cannot be read
 	 */
 	@Override
-	public void search(Path path, boolean exactSearch) throws IOException
+	public void search(Path path, boolean exactSearch, boolean conjunctive) throws IOException
 	{
-		QuerySearchInterface.super.search(path, exactSearch);
-		tasks.finish();
+		Set<String> lines = new TreeSet<String>();
+
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8))
+		{
+			String line = null;
+
+			while ((line = reader.readLine()) != null)
+			{
+				lines.add(line);
+			}
+		}
+
+		// a small file still gives every worker a batch, a large one is not held in a few large batches
+		int size = Math.max(1, Math.min(BATCH_SIZE, (lines.size() + tasks.size() - 1) / tasks.size()));
+		List<String> batch = new ArrayList<String>(size);
+
+		try
+		{
+			for (String line : lines)
+			{
+				batch.add(line);
+
+				if (batch.size() == size)
+				{
+					tasks.execute(new Task(batch, exactSearch, conjunctive));
+					batch = new ArrayList<String>(size);
+				}
+			}
+
+			if (!batch.isEmpty())
+			{
+				tasks.execute(new Task(batch, exactSearch, conjunctive));
+			}
+		}
+
+		finally
+		{
+			tasks.finish();
+		}
 	}
 
 	/*
@@ -69,15 +166,148 @@ public class MultithreadedSearcher implements QuerySearchInterface
 	 * 
 	 * @param line - The line query
 	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
 	 */
 	@Override
-	public void search(String line, boolean exactSearch)
+	public void search(String line, boolean exactSearch, boolean conjunctive)
 	{
-		tasks.execute(new Task(line, exactSearch));
+		tasks.execute(new Task(List.of(line), exactSearch, conjunctive));
 		tasks.finish();
 
 	}
 
+	/**
+	 * search - Performs a search on a single line on the calling thread and returns only the k most
+	 * 			relevant results. Recently used results are answered from a bounded cache until the
+	 * 			inverted index changes.
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 * @param k - The maximum number of results to return
+	 * @return Returns an unmodifiable list of at most k search results in ranked order
+	 */
+	@Override
+	public List<InvertedIndex.SearchResult> search(String line, boolean exactSearch, boolean conjunctive, int k)
+	{
+		SearchQuery query = new SearchQuery(line);
+		String key = ResultCache.key(query, exactSearch, conjunctive);
+		long version = index.getVersion();
+		List<InvertedIndex.SearchResult> cached = cache.get(key, version, k);
+
+		if (cached != null)
+		{
+			return cached;
+		}
+
+		List<InvertedIndex.SearchResult> ranked = Collections.unmodifiableList(index.search(query, exactSearch, conjunctive, proximity, scorer, k));
+		cache.put(key, version, k, ranked);
+		return ranked;
+	}
+
+	/**
+	 * search - Returns one page of the results of a single line within a budget. Pages within the cached
+	 * 			top results of the line are sliced from the cache, and other pages resume after the last
+	 * 			result of the previous page without keeping the results before it. Results cut short by
+	 * 			the budget are never cached.
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 * @param cursor - The cursor of the previous page, or null for the first page
+	 * @param size - The maximum number of results in the page
+	 * @param budget - The budget of the search, or null to not limit its work
+	 * @return Returns the page of results along with the cursor of the next page
+	 */
+	@Override
+	public SearchPage search(String line, boolean exactSearch, boolean conjunctive, String cursor, int size, SearchBudget budget)
+	{
+		SearchQuery query = new SearchQuery(line);
+		SearchCursor after = SearchCursor.parse(cursor);
+		long version = index.getVersion();
+
+		// proximity boosts reorder the best results, so their pages are always ranked by the index
+		if (!proximity && size > 0 && size < Integer.MAX_VALUE && (after == null || after.getVersion() == version))
+		{
+			int offset = after == null ? 0 : after.getOffset();
+			String key = ResultCache.key(query, exactSearch, conjunctive);
+			List<InvertedIndex.SearchResult> cached = cache.get(key, version, (int) Math.min((long) offset + size + 1, Integer.MAX_VALUE));
+
+			if (cached == null && offset == 0)
+			{
+				cached = Collections.unmodifiableList(index.search(query, exactSearch, conjunctive, proximity, scorer, size + 1, budget));
+
+				if (budget == null || !budget.isTruncated())
+				{
+					cache.put(key, version, size + 1, cached);
+				}
+			}
+
+			if (cached != null && (offset == 0 || (offset <= cached.size() && cached.get(offset - 1).getLocation().equals(after.getLocation()))))
+			{
+				return SearchPage.of(cached, offset, size, version, budget != null && budget.isTruncated());
+			}
+		}
+
+		return index.search(query, exactSearch, conjunctive, proximity, scorer, after, size, budget);
+	}
+
+	/**
+	 * explain - Searches a single line on the calling thread and explains how its k best results were found
+	 * 			 and ranked, timing how long the line takes to parse and stem
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 * @param k - The maximum number of results to explain
+	 * @return Returns the explanation of the query, or null if the line has no query words
+	 */
+	@Override
+	public SearchExplanation explain(String line, boolean exactSearch, boolean conjunctive, int k)
+	{
+		long start = System.nanoTime();
+		SearchQuery query = new SearchQuery(line);
+		long stemming = System.nanoTime() - start;
+
+		if (query.isEmpty())
+		{
+			return null;
+		}
+
+		SearchExplanation explanation = index.explain(query, exactSearch, conjunctive, proximity, scorer, k);
+		explanation.record(SearchExplanation.Phase.STEMMING, stemming);
+		return explanation;
+	}
+
+	/**
+	 * explain - Searches one page of the results of a single line within a budget on the calling thread and
+	 * 			 explains how its results were found and ranked, timing how long the line takes to parse and stem
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 * @param cursor - The cursor of the previous page, or null for the first page
+	 * @param size - The maximum number of results in the page
+	 * @param budget - The budget of the search, or null to not limit its work
+	 * @return Returns the explanation of the query holding its page of results, or null if the line has no query words
+	 */
+	@Override
+	public SearchExplanation explain(String line, boolean exactSearch, boolean conjunctive, String cursor, int size, SearchBudget budget)
+	{
+		long start = System.nanoTime();
+		SearchQuery query = new SearchQuery(line);
+		long stemming = System.nanoTime() - start;
+
+		if (query.isEmpty())
+		{
+			return null;
+		}
+
+		SearchExplanation explanation = index.explain(query, exactSearch, conjunctive, proximity, scorer, SearchCursor.parse(cursor), size, budget);
+		explanation.record(SearchExplanation.Phase.STEMMING, stemming);
+		return explanation;
+	}
+
 	/**
 	 * containsQuery - Returns true if a given query is found in the data structure
 	 * @param key - The search query
@@ -173,45 +403,61 @@ public class MultithreadedSearcher implements QuerySearchInterface
 	private class Task implements Runnable
 	{
 		/**
-		 * The line query
+		 * The line queries
 		 */
-		private final String line;
+		private final List<String> lines;
 
 		/**
 		 * exactSearch - Flag to perform an exact search if set true
 		 */
 		private final boolean exactSearch;
 
+		/**
+		 * conjunctive - Flag to only match locations containing every query word if set true
+		 */
+		private final boolean conjunctive;
+
 		/**
 		 * Initializes the members with the new task
 		 *
-		 * @param line - The line query
+		 * @param lines - The line queries
 		 * @param exactSearch - Flag to perform an exact search if set true
+		 * @param conjunctive - Flag to only match locations containing every query word if set true
 		 */
-		public Task(String line, boolean exactSearch)
+		public Task(List<String> lines, boolean exactSearch, boolean conjunctive)
 		{
-			this.line = line;
+			this.lines = lines;
 			this.exactSearch = exactSearch;
+			this.conjunctive = conjunctive;
 		}
 
 		@Override
 		public void run()
 		{
-			Set<String> queries = TextStemmer.uniqueStems(line);
-			String joined = String.join(" ", queries);
+			List<SearchQuery> queries = new ArrayList<SearchQuery>(lines.size());
+
+			for (String line : lines)
+			{
+				SearchQuery query = new SearchQuery(line);
+
+				if (!query.isEmpty() && claimed.add(query.toString()))
+				{
+					queries.add(query);
+				}
+			}
 
-			if (queries.isEmpty() || containsQuery(line))
+			if (queries.isEmpty())
 			{
 				return;
 			}
 
-			ArrayList<InvertedIndex.SearchResult> searches = index.search(queries, exactSearch);
+			Map<String, ArrayList<InvertedIndex.SearchResult>> searches = index.search(queries, exactSearch, conjunctive, proximity, scorer);
 
 			lock.writeLock().lock();
 
 			try
 			{
-				results.put(joined, searches);
+				results.putAll(searches);
 			}
 
 			finally
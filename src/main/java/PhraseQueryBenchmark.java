@@ -0,0 +1,162 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	PhraseQueryBenchmark - Measures how long quoted phrase queries take on an inverted index built from the
+ *						   "-text" files, next to the same words searched without quotes. The phrases are
+ *						   drawn from consecutive words of the indexed files, so every phrase has matches.
+ *
+ *						   java -cp target/classes:... PhraseQueryBenchmark path [queries] [rounds]
+ */
+public class PhraseQueryBenchmark
+{
+	/**
+	 * DEFAULT_QUERIES - The number of phrases drawn when none is given
+	 */
+	private static final int DEFAULT_QUERIES = 1000;
+
+	/**
+	 * DEFAULT_ROUNDS - The number of timed rounds when none is given
+	 */
+	private static final int DEFAULT_ROUNDS = 5;
+
+	/**
+	 * RESULTS - The number of results of every search
+	 */
+	private static final int RESULTS = 10;
+
+	/**
+	 * phrases - Draws phrases of two or three consecutive words from the text files
+	 *
+	 * @param files - The text files
+	 * @param count - The number of phrases to draw
+	 * @return Returns the phrases, without quotes
+	 * @throws IOException - If unable to read a file
+	 */
+	private static List<String> phrases(List<Path> files, int count) throws IOException
+	{
+		Random random = new Random(272);
+		List<String> phrases = new ArrayList<String>();
+		List<String[]> words = new ArrayList<String[]>();
+
+		for (Path file : files)
+		{
+			String[] parsed = TextParser.parse(Files.readString(file, StandardCharsets.UTF_8));
+
+			if (parsed.length >= 3)
+			{
+				words.add(parsed);
+			}
+		}
+
+		while (!words.isEmpty() && phrases.size() < count)
+		{
+			String[] parsed = words.get(random.nextInt(words.size()));
+			int length = 2 + random.nextInt(2);
+			int start = random.nextInt(parsed.length - length + 1);
+			phrases.add(String.join(" ", Arrays.copyOfRange(parsed, start, start + length)));
+		}
+
+		return phrases;
+	}
+
+	/**
+	 * time - Searches every query once
+	 *
+	 * @param index - The inverted index
+	 * @param queries - The parsed queries
+	 * @param nanos - The time taken by each query, in nanoseconds
+	 * @return Returns the total number of results, so the searches are not optimized away
+	 */
+	private static long time(InvertedIndex index, List<SearchQuery> queries, long[] nanos)
+	{
+		long results = 0;
+
+		for (int i = 0; i < queries.size(); i++)
+		{
+			long start = System.nanoTime();
+			results += index.search(queries.get(i), true, false, RESULTS).size();
+			nanos[i] = Math.min(nanos[i], System.nanoTime() - start);
+		}
+
+		return results;
+	}
+
+	/**
+	 * report - Prints the latency percentiles of a set of queries
+	 *
+	 * @param name - The name of the set of queries
+	 * @param nanos - The best time of each query, in nanoseconds
+	 * @param results - The number of results of the last round
+	 */
+	private static void report(String name, long[] nanos, long results)
+	{
+		long[] sorted = nanos.clone();
+		Arrays.sort(sorted);
+		double total = Arrays.stream(sorted).sum();
+
+		System.out.printf("%-8s mean %8.1f us, p50 %8.1f us, p99 %8.1f us, max %8.1f us, %d results%n", name,
+				total / sorted.length / 1000, sorted[sorted.length / 2] / 1000.0,
+				sorted[(int) (sorted.length * 0.99)] / 1000.0, sorted[sorted.length - 1] / 1000.0, results);
+	}
+
+	/**
+	 * main - Builds the inverted index and times the phrase queries and the same words without quotes
+	 *
+	 * @param args - The path to index, followed by an optional number of queries and number of rounds
+	 * @throws IOException - If unable to read the files
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		Path path = Path.of(args.length > 0 ? args[0] : ".");
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_QUERIES;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ROUNDS;
+
+		InvertedIndex index = new InvertedIndex();
+		InvertedIndexBuilder.findTextFiles(path, index);
+		index.freeze();
+
+		List<SearchQuery> quoted = new ArrayList<SearchQuery>();
+		List<SearchQuery> unquoted = new ArrayList<SearchQuery>();
+
+		for (String phrase : phrases(new ArrayList<Path>(PathTraverser.traverseDirectory(path)), count))
+		{
+			quoted.add(new SearchQuery("\"" + phrase + "\""));
+			unquoted.add(new SearchQuery(phrase));
+		}
+
+		if (quoted.isEmpty())
+		{
+			System.out.println("No phrases found under the path: " + path);
+			return;
+		}
+
+		long[] phraseNanos = new long[quoted.size()];
+		long[] wordNanos = new long[unquoted.size()];
+		Arrays.fill(phraseNanos, Long.MAX_VALUE);
+		Arrays.fill(wordNanos, Long.MAX_VALUE);
+
+		long phraseResults = 0;
+		long wordResults = 0;
+
+		// the first round warms up the searches, the best time of each query over every round is kept
+		for (int i = 0; i <= rounds; i++)
+		{
+			phraseResults = time(index, quoted, phraseNanos);
+			wordResults = time(index, unquoted, wordNanos);
+		}
+
+		System.out.printf("%d locations, %d words, %d queries, best of %d rounds%n", index.getDocuments().size(),
+				index.sizeWords(), quoted.size(), rounds + 1);
+		report("phrases", phraseNanos, phraseResults);
+		report("words", wordNanos, wordResults);
+	}
+}
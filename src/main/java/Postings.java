@@ -0,0 +1,63 @@
+/**
+ * @author Josh Guevarra
+ *
+ *	Postings - The location list of a word as arrays, so scoring loops only touch arrays instead of looking
+ *			   up the ID and tombstone of every location. Removed locations are left out.
+ */
+class Postings
+{
+	/**
+	 * ids - The IDs of the locations, in location order
+	 */
+	final int[] ids;
+
+	/**
+	 * frequencies - The number of times the word is found in each location
+	 */
+	final int[] frequencies;
+
+	/**
+	 * Initializes the posting arrays
+	 *
+	 * @param ids - The IDs of the locations, in location order
+	 * @param frequencies - The number of times the word is found in each location
+	 */
+	Postings(int[] ids, int[] frequencies)
+	{
+		this.ids = ids;
+		this.frequencies = frequencies;
+	}
+
+	/**
+	 * seek - Returns the index of the first location at or after a target location, searching from a
+	 * 		  given index
+	 *
+	 * @param ranks - The position of each location in location order, indexed by location ID
+	 * @param target - The rank of the target location
+	 * @param from - The index to search from
+	 * @return Returns the index of the first location at or after the target, or the number of
+	 * 		   locations if there is none
+	 */
+	int seek(int[] ranks, int target, int from)
+	{
+		int low = from;
+		int high = ids.length;
+
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+
+			if (ranks[ids[middle]] < target)
+			{
+				low = middle + 1;
+			}
+
+			else
+			{
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+}
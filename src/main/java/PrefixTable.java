@@ -0,0 +1,151 @@
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	PrefixTable - Maps every prefix of up to a given number of letters to the locations containing words
+ *				  that start with it, paired to their total number of such words. Partial searches for a word
+ *				  that short read the number of matches of every location from the table instead of merging
+ *				  every word starting with it. The table is kept up to date as locations are added, replaced
+ *				  and removed.
+ */
+class PrefixTable
+{
+	/**
+	 * PREFIX_ENTRY_BYTES - The estimated size of one location entry in the prefix table
+	 */
+	private static final int PREFIX_ENTRY_BYTES = 64;
+
+	/**
+	 * PREFIX_TABLE_BYTES - The estimated size of the map holding the locations of one prefix
+	 */
+	private static final int PREFIX_TABLE_BYTES = 128;
+
+	/**
+	 * length - The longest prefix stored in the table, or 0 if there is no prefix table
+	 */
+	private int length;
+
+	/**
+	 * prefixes - Every prefix up to length letters mapped to the locations containing words that start
+	 * 			  with it, paired to their total number of such words
+	 */
+	private final Map<String, Map<String, Integer>> prefixes;
+
+	/**
+	 * Initializes an empty prefix table that stores no prefix
+	 */
+	public PrefixTable()
+	{
+		this.length = 0;
+		this.prefixes = new HashMap<String, Map<String, Integer>>();
+	}
+
+	/**
+	 * setLength - Sets the longest prefix stored in the table and rebuilds it from the words of an inverted index
+	 *
+	 * @param length - The longest prefix to store, or 0 to drop the prefix table
+	 * @param index - The words of the inverted index mapped to their locations and positions
+	 */
+	public void setLength(int length, Map<String, TreeMap<String, TreeSet<Integer>>> index)
+	{
+		this.length = Math.max(0, length);
+		prefixes.clear();
+
+		for (Map.Entry<String, TreeMap<String, TreeSet<Integer>>> word : index.entrySet())
+		{
+			for (Map.Entry<String, TreeSet<Integer>> entry : word.getValue().entrySet())
+			{
+				add(word.getKey(), entry.getKey(), entry.getValue().size());
+			}
+		}
+	}
+
+	/**
+	 * counts - Returns the number of matches of every location for a partial search of a word, if the word
+	 * 			is short enough to be stored in the table
+	 *
+	 * @param query - The query word
+	 * @return Returns a map containing locations paired to their number of matches, or null if the word
+	 * 		   is not stored in the table
+	 */
+	public Map<String, Integer> counts(String query)
+	{
+		if (query.isEmpty() || query.length() > length || query.indexOf('*') >= 0)
+		{
+			return null;
+		}
+
+		return prefixes.getOrDefault(query, Collections.emptyMap());
+	}
+
+	/**
+	 * add - Adds occurrences of a word in a location to the table
+	 *
+	 * @param stem - The word
+	 * @param location - The location of the word
+	 * @param count - The number of new occurrences
+	 */
+	public void add(String stem, String location, int count)
+	{
+		if (count == 0)
+		{
+			return;
+		}
+
+		for (int i = 1; i <= Math.min(length, stem.length()); i++)
+		{
+			prefixes.computeIfAbsent(stem.substring(0, i), prefix -> new HashMap<String, Integer>()).merge(location, count, Integer::sum);
+		}
+	}
+
+	/**
+	 * remove - Removes a location from the table entries of a word
+	 *
+	 * @param stem - The word
+	 * @param location - The location being erased
+	 */
+	public void remove(String stem, String location)
+	{
+		for (int i = 1; i <= Math.min(length, stem.length()); i++)
+		{
+			String prefix = stem.substring(0, i);
+			Map<String, Integer> counts = prefixes.get(prefix);
+
+			if (counts != null)
+			{
+				counts.remove(location);
+
+				if (counts.isEmpty())
+				{
+					prefixes.remove(prefix);
+				}
+			}
+		}
+	}
+
+	/**
+	 * report - Returns a report of the size of the table. Memory is estimated from the number of table
+	 * 			entries, since locations are shared with the rest of the inverted index.
+	 *
+	 * @return Returns a report of the size of the prefix table
+	 */
+	public String report()
+	{
+		long entries = 0;
+
+		for (Map<String, Integer> counts : prefixes.values())
+		{
+			entries += counts.size();
+		}
+
+		long bytes = entries * PREFIX_ENTRY_BYTES + prefixes.size() * PREFIX_TABLE_BYTES;
+
+		return String.format("Prefix table up to %d letters: %d prefixes, %d entries, about %.1f MB.",
+				length, prefixes.size(), entries, bytes / 1048576.0);
+	}
+}
@@ -0,0 +1,278 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	QueryPlan - How the inverted index evaluates a query. The plan lists every query word and phrase
+ *				from the rarest to the most common, with the number of words it expands to and the
+ *				number of postings (locations of a word) it reads, along with the chosen strategy and
+ *				the estimated number of postings the strategy reads.
+ */
+public class QueryPlan
+{
+	/**
+	 * Strategy - The ways the inverted index can evaluate a query
+	 */
+	public enum Strategy
+	{
+		/**
+		 * DOCUMENT_AT_A_TIME - Merges the location lists of every word one location at a time, skipping the
+		 * 						locations of common words that can no longer reach the k best results
+		 */
+		DOCUMENT_AT_A_TIME("document-at-a-time"),
+
+		/**
+		 * TERM_AT_A_TIME - Reads the location lists one word at a time, adding each location to an accumulator
+		 */
+		TERM_AT_A_TIME("term-at-a-time"),
+
+		/**
+		 * CACHED_EXPANSION - Reads the number of matches of short partial query words from the prefix table
+		 * 					  instead of expanding them
+		 */
+		CACHED_EXPANSION("cached expansion"),
+
+		/**
+		 * INTERSECTION - Intersects the locations of every phrase or query word, starting from the rarest
+		 */
+		INTERSECTION("intersection");
+
+		/**
+		 * name - The name of the strategy shown in plans
+		 */
+		private final String name;
+
+		/**
+		 * Initializes a strategy
+		 *
+		 * @param name - The name of the strategy shown in plans
+		 */
+		private Strategy(String name)
+		{
+			this.name = name;
+		}
+
+		/**
+		 * toString - Returns the name of the strategy
+		 *
+		 * @return Returns the name of the strategy
+		 */
+		@Override
+		public String toString()
+		{
+			return name;
+		}
+	}
+
+	/**
+	 * strategy - The strategy used to evaluate the query
+	 */
+	private final Strategy strategy;
+
+	/**
+	 * steps - The query words and phrases from the rarest to the most common
+	 */
+	private final List<Step> steps;
+
+	/**
+	 * keys - The words of the inverted index scored for the query
+	 */
+	private final List<String> keys;
+
+	/**
+	 * cost - The estimated number of postings read by the strategy
+	 */
+	private final long cost;
+
+	/**
+	 * Initializes a plan
+	 *
+	 * @param strategy - The strategy used to evaluate the query
+	 * @param steps - The query words and phrases from the rarest to the most common
+	 * @param keys - The words of the inverted index scored for the query
+	 * @param cost - The estimated number of postings read by the strategy
+	 */
+	public QueryPlan(Strategy strategy, List<Step> steps, List<String> keys, long cost)
+	{
+		this.strategy = strategy;
+		this.steps = Collections.unmodifiableList(steps);
+		this.keys = Collections.unmodifiableList(keys);
+		this.cost = cost;
+	}
+
+	/**
+	 * getStrategy - Returns the strategy used to evaluate the query
+	 *
+	 * @return Returns the strategy used to evaluate the query
+	 */
+	public Strategy getStrategy()
+	{
+		return strategy;
+	}
+
+	/**
+	 * getSteps - Returns an unmodifiable view of the query words and phrases
+	 *
+	 * @return Returns the query words and phrases from the rarest to the most common
+	 */
+	public List<Step> getSteps()
+	{
+		return steps;
+	}
+
+	/**
+	 * getKeys - Returns an unmodifiable view of the words of the inverted index scored for the query
+	 *
+	 * @return Returns every word matched by a query word, followed by the unique words of each phrase
+	 */
+	public List<String> getKeys()
+	{
+		return keys;
+	}
+
+	/**
+	 * getCost - Returns the estimated number of postings read by the strategy
+	 *
+	 * @return Returns the estimated number of postings read
+	 */
+	public long getCost()
+	{
+		return cost;
+	}
+
+	/**
+	 * toString - Returns the plan as a few lines of text, one per query word or phrase
+	 *
+	 * @return Returns the plan as text
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("Plan: %s, %d %s, about %d postings read", strategy, keys.size(), keys.size() == 1 ? "word" : "words", cost));
+
+		for (Step step : steps)
+		{
+			builder.append(System.lineSeparator()).append("  ").append(step);
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Step - One query word or phrase of a plan
+	 */
+	public static class Step
+	{
+		/**
+		 * text - The query word, or the words of the phrase in quotes
+		 */
+		private final String text;
+
+		/**
+		 * phrase - Whether the step is a phrase
+		 */
+		private final boolean phrase;
+
+		/**
+		 * words - The number of words of the inverted index the query word expands to, or the number of
+		 * 		   words of the phrase
+		 */
+		private final int words;
+
+		/**
+		 * postings - The number of postings of the query word, or of the rarest word of the phrase
+		 */
+		private final long postings;
+
+		/**
+		 * cached - Whether the query word is read from the prefix table
+		 */
+		private final boolean cached;
+
+		/**
+		 * Initializes a step
+		 *
+		 * @param text - The query word, or the words of the phrase in quotes
+		 * @param phrase - Whether the step is a phrase
+		 * @param words - The number of words the query word expands to, or the number of words of the phrase
+		 * @param postings - The number of postings of the query word, or of the rarest word of the phrase
+		 * @param cached - Whether the query word is read from the prefix table
+		 */
+		public Step(String text, boolean phrase, int words, long postings, boolean cached)
+		{
+			this.text = text;
+			this.phrase = phrase;
+			this.words = words;
+			this.postings = postings;
+			this.cached = cached;
+		}
+
+		/**
+		 * getText - Returns the query word, or the words of the phrase in quotes
+		 *
+		 * @return Returns the text of the step
+		 */
+		public String getText()
+		{
+			return text;
+		}
+
+		/**
+		 * isPhrase - Returns true if the step is a phrase
+		 *
+		 * @return Returns true if the step is a phrase
+		 */
+		public boolean isPhrase()
+		{
+			return phrase;
+		}
+
+		/**
+		 * getWords - Returns the number of words the query word expands to, or the number of words of the phrase
+		 *
+		 * @return Returns the number of words of the step
+		 */
+		public int getWords()
+		{
+			return words;
+		}
+
+		/**
+		 * getPostings - Returns the number of postings of the query word, or of the rarest word of the phrase
+		 *
+		 * @return Returns the number of postings of the step
+		 */
+		public long getPostings()
+		{
+			return postings;
+		}
+
+		/**
+		 * isCached - Returns true if the query word is read from the prefix table
+		 *
+		 * @return Returns true if the query word is read from the prefix table
+		 */
+		public boolean isCached()
+		{
+			return cached;
+		}
+
+		/**
+		 * toString - Returns the step as one line of text
+		 *
+		 * @return Returns the step as text
+		 */
+		@Override
+		public String toString()
+		{
+			if (cached)
+			{
+				return String.format("%s: %d locations from the prefix table", text, postings);
+			}
+
+			return String.format("%s: %d %s, %d postings", text, words, words == 1 ? "word" : "words", postings);
+		}
+	}
+}
@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	QueryPlanner - Chooses how an inverted index evaluates a query from the number of words each query word
+ *				   expands to and the number of postings (locations of a word) they read.
+ *
+ * @see QueryPlan
+ */
+class QueryPlanner
+{
+	/**
+	 * PRUNING_MAX_TERMS - The most words a query may expand to and still be pruned. Merging the location
+	 * 					   lists of more words costs more than scoring every location.
+	 */
+	private static final int PRUNING_MAX_TERMS = 16;
+
+	/**
+	 * index - The inverted index whose queries are planned
+	 */
+	private final InvertedIndex index;
+
+	/**
+	 * Initializes the planner of an inverted index
+	 *
+	 * @param index - The inverted index whose queries are planned
+	 */
+	public QueryPlanner(InvertedIndex index)
+	{
+		this.index = index;
+	}
+
+	/**
+	 * plan - Plans how a query is evaluated. Every query word and phrase is looked up to find how many words
+	 * 		  it expands to and how many postings it reads, and they are listed from the rarest to the most
+	 * 		  common. Queries with phrases or requiring every word intersect their locations starting from the
+	 * 		  rarest. Short partial words counted by matches are read from the prefix table. Otherwise, queries
+	 * 		  expanding to few enough words are merged document-at-a-time so common words can be skipped, unless
+	 * 		  every match is returned anyway and there is nothing to skip, and other queries are accumulated
+	 * 		  term-at-a-time.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param k - The maximum number of results to return
+	 * @param context - The state of the search, which the words each query word expands to are charged to
+	 * @return Returns the plan of the query
+	 */
+	public QueryPlan plan(SearchQuery query, boolean exactSearch, boolean conjunctive, Scorer scorer, int k, SearchContext context)
+	{
+		List<QueryPlan.Step> steps = new ArrayList<QueryPlan.Step>();
+		List<String> keys = new ArrayList<String>();
+		boolean cached = false;
+		long postings = 0;
+
+		for (String stem : query.getStems())
+		{
+			Map<String, Integer> counts = exactSearch || scorer != Scorer.MATCHES ? null : index.prefixCounts(stem);
+
+			if (counts != null)
+			{
+				steps.add(new QueryPlan.Step(stem, false, 0, counts.size(), true));
+				postings += counts.size();
+				cached = true;
+				continue;
+			}
+
+			List<String> words = index.expand(stem, exactSearch, context);
+			long size = 0;
+
+			for (String word : words)
+			{
+				size += index.locations(word).size();
+			}
+
+			steps.add(new QueryPlan.Step(stem, false, words.size(), size, false));
+			keys.addAll(words);
+			postings += size;
+		}
+
+		for (List<String> phrase : query.getPhrases())
+		{
+			for (String stem : new TreeSet<String>(phrase))
+			{
+				TreeMap<String, TreeSet<Integer>> locations = index.locations(stem);
+
+				if (locations != null)
+				{
+					keys.add(stem);
+					postings += locations.size();
+				}
+			}
+
+			steps.add(new QueryPlan.Step("\"" + String.join(" ", phrase) + "\"", true, phrase.size(), index.rarest(phrase), false));
+		}
+
+		steps.sort(Comparator.comparingLong(QueryPlan.Step::getPostings));
+
+		if (conjunctive || query.hasPhrases())
+		{
+			long rarest = steps.isEmpty() ? 0 : steps.get(0).getPostings();
+			return new QueryPlan(QueryPlan.Strategy.INTERSECTION, steps, keys, Math.min(postings, rarest * steps.size()));
+		}
+
+		if (cached)
+		{
+			return new QueryPlan(QueryPlan.Strategy.CACHED_EXPANSION, steps, keys, postings);
+		}
+
+		// merging lists only pays off when some of their locations can be skipped
+		if (k < Integer.MAX_VALUE && keys.size() <= PRUNING_MAX_TERMS && postings > k)
+		{
+			return new QueryPlan(QueryPlan.Strategy.DOCUMENT_AT_A_TIME, steps, keys, postings);
+		}
+
+		return new QueryPlan(QueryPlan.Strategy.TERM_AT_A_TIME, steps, keys, postings);
+	}
+}
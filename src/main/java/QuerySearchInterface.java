@@ -1,9 +1,12 @@
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * @author Josh Guevarra
@@ -12,6 +15,11 @@ import java.util.List;
  */
 public interface QuerySearchInterface
 {
+	/**
+	 * BATCH_SIZE - The number of queries from a file searched together, sharing their location list reads
+	 */
+	public static final int BATCH_SIZE = 64;
+
 	/**
 	 * search - Performs a line by line search on a text file
 	 *
@@ -21,6 +29,20 @@ public interface QuerySearchInterface
 	 * @throws IOException throws an IOException if the file cannot be read
 	 */
 	public default void search(Path path, boolean exactSearch) throws IOException
+	{
+		search(path, exactSearch, false);
+	}
+
+	/**
+	 * search - Performs a line by line search on a text file
+	 *
+	 * @param path - The path of the file
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 *
+	 * @throws IOException throws an IOException if the file cannot be read
+	 */
+	public default void search(Path path, boolean exactSearch, boolean conjunctive) throws IOException
 	{
 		String line = null;
 
@@ -28,7 +50,7 @@ public interface QuerySearchInterface
 		{
 			while ((line = reader.readLine()) != null)
 			{
-				search(line, exactSearch);
+				search(line, exactSearch, conjunctive);
 			}
 		}
 	}
@@ -39,7 +61,137 @@ public interface QuerySearchInterface
 	 * @param line - The line query
 	 * @param exactSearch - Flag to perform an exact search if set true
 	 */
-	public void search(String line, boolean exactSearch);
+	public default void search(String line, boolean exactSearch)
+	{
+		search(line, exactSearch, false);
+	}
+
+	/**
+	 * search - Performs a search on a single line
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 */
+	public void search(String line, boolean exactSearch, boolean conjunctive);
+
+	/**
+	 * search - Performs a search on a single line and returns only the k most relevant results,
+	 * 			without ranking every match or storing the results
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param k - The maximum number of results to return
+	 * @return Returns an unmodifiable list of at most k search results in ranked order
+	 */
+	public default List<InvertedIndex.SearchResult> search(String line, boolean exactSearch, int k)
+	{
+		return search(line, exactSearch, false, k);
+	}
+
+	/**
+	 * search - Performs a search on a single line and returns only the k most relevant results,
+	 * 			without ranking every match or storing the results
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 * @param k - The maximum number of results to return
+	 * @return Returns an unmodifiable list of at most k search results in ranked order
+	 */
+	public List<InvertedIndex.SearchResult> search(String line, boolean exactSearch, boolean conjunctive, int k);
+
+	/**
+	 * search - Returns one page of the results of a single line, without storing the results. The first
+	 * 			page is requested without a cursor, and every page returns the cursor of the next one.
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 * @param cursor - The cursor of the previous page, or null for the first page. A cursor that cannot
+	 * 				   be read also returns the first page.
+	 * @param size - The maximum number of results in the page
+	 * @return Returns the page of results along with the cursor of the next page
+	 */
+	public default SearchPage search(String line, boolean exactSearch, boolean conjunctive, String cursor, int size)
+	{
+		return search(line, exactSearch, conjunctive, cursor, size, null);
+	}
+
+	/**
+	 * search - Returns one page of the results of a single line within a budget, without storing the
+	 * 			results. A search that runs out of budget returns the best results it found before then,
+	 * 			and its page is marked as truncated.
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 * @param cursor - The cursor of the previous page, or null for the first page
+	 * @param size - The maximum number of results in the page
+	 * @param budget - The budget of the search, or null to not limit its work
+	 * @return Returns the page of results along with the cursor of the next page
+	 */
+	public SearchPage search(String line, boolean exactSearch, boolean conjunctive, String cursor, int size, SearchBudget budget);
+
+	/**
+	 * explain - Searches a single line on the calling thread and explains how its k best results were found
+	 * 			 and ranked. Explained searches bypass the cache, so every phase of the search is timed.
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 * @param k - The maximum number of results to explain
+	 * @return Returns the explanation of the query, or null if the line has no query words
+	 */
+	public SearchExplanation explain(String line, boolean exactSearch, boolean conjunctive, int k);
+
+	/**
+	 * explain - Searches one page of the results of a single line within a budget on the calling thread and
+	 * 			 explains how its results were found and ranked. Explained searches bypass the cache, so every
+	 * 			 phase of the search is timed.
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 * @param cursor - The cursor of the previous page, or null for the first page
+	 * @param size - The maximum number of results in the page
+	 * @param budget - The budget of the search, or null to not limit its work
+	 * @return Returns the explanation of the query holding its page of results, or null if the line has no query words
+	 */
+	public SearchExplanation explain(String line, boolean exactSearch, boolean conjunctive, String cursor, int size, SearchBudget budget);
+
+	/**
+	 * explain - Explains every unique query of a text file and writes the explanations to another file
+	 *
+	 * @param path - The path of the query file
+	 * @param output - The path of the file to write the explanations to
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 * @param k - The maximum number of results to explain for each query
+	 *
+	 * @throws IOException throws an IOException if a file cannot be read or written
+	 */
+	public default void explain(Path path, Path output, boolean exactSearch, boolean conjunctive, int k) throws IOException
+	{
+		Set<String> seen = new HashSet<String>();
+		String line = null;
+
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+				BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8))
+		{
+			while ((line = reader.readLine()) != null)
+			{
+				SearchExplanation explanation = explain(line, exactSearch, conjunctive, k);
+
+				if (explanation != null && seen.add(explanation.getQuery()))
+				{
+					writer.write(explanation.toString());
+					writer.newLine();
+					writer.newLine();
+				}
+			}
+		}
+	}
 
 	/**
 	 * containsQuery - Returns true if a given query is found in the data structure
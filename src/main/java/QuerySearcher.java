@@ -1,10 +1,12 @@
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
 
 
@@ -27,37 +29,253 @@ public class QuerySearcher implements QuerySearchInterface
 	 */
 	private final InvertedIndex index; 
 
+	/**
+	 * proximity - Flag to boost results whose query words appear close together
+	 */
+	private final boolean proximity;
+
+	/**
+	 * scorer - The scorer used to rank search results
+	 */
+	private final Scorer scorer;
+
+	/**
+	 * cache - The most recently used top results, dropped once the inverted index changes
+	 */
+	private final ResultCache cache;
+
 	/**
 	 * Initializes the necessary data structures for this class
 	 * @param index - The inverted index to use
 	 */
 	public QuerySearcher(InvertedIndex index)
+	{
+		this(index, false);
+	}
+
+	/**
+	 * Initializes the necessary data structures for this class
+	 * @param index - The inverted index to use
+	 * @param proximity - Flag to boost results whose query words appear close together if set true
+	 */
+	public QuerySearcher(InvertedIndex index, boolean proximity)
+	{
+		this(index, proximity, Scorer.MATCHES);
+	}
+
+	/**
+	 * Initializes the necessary data structures for this class
+	 * @param index - The inverted index to use
+	 * @param proximity - Flag to boost results whose query words appear close together if set true
+	 * @param scorer - The scorer used to rank search results
+	 */
+	public QuerySearcher(InvertedIndex index, boolean proximity, Scorer scorer)
 	{
 		this.results = new TreeMap<String, ArrayList<InvertedIndex.SearchResult>>();
 		this.index = index;
+		this.proximity = proximity;
+		this.scorer = scorer;
+		this.cache = new ResultCache();
+	}
+	/**
+	 * search - Searches every line of a text file. Lines are parsed and deduplicated first, then searched
+	 * 			in sorted batches of BATCH_SIZE so queries sharing words read their location lists together.
+	 *
+	 * @param path - The path of the file
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 *
+	 * @throws IOException throws an IOException if the file cannot be read
+	 */
+	@Override
+	public void search(Path path, boolean exactSearch, boolean conjunctive) throws IOException
+	{
+		Map<String, SearchQuery> queries = new TreeMap<String, SearchQuery>();
+
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8))
+		{
+			String line = null;
+
+			while ((line = reader.readLine()) != null)
+			{
+				SearchQuery query = new SearchQuery(line);
+
+				if (!query.isEmpty() && !containsQuery(query.toString()))
+				{
+					queries.putIfAbsent(query.toString(), query);
+				}
+			}
+		}
+
+		List<SearchQuery> batch = new ArrayList<SearchQuery>(BATCH_SIZE);
 
+		for (SearchQuery query : queries.values())
+		{
+			batch.add(query);
+
+			if (batch.size() == BATCH_SIZE)
+			{
+				results.putAll(index.search(batch, exactSearch, conjunctive, proximity, scorer));
+				batch.clear();
+			}
+		}
+
+		results.putAll(index.search(batch, exactSearch, conjunctive, proximity, scorer));
 	}
+
 	/**
 	 * search - Performs a line by line search on a text file
 	 *
 	 * @param line - The line query
 	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
 	 */
 	@Override
-	public void search(String line, boolean exactSearch)
+	public void search(String line, boolean exactSearch, boolean conjunctive)
 	{
-		Set<String> queries = TextStemmer.uniqueStems(line);
-		String joined = String.join(" ", queries);
+		SearchQuery query = new SearchQuery(line);
+		String joined = query.toString();
 
-		if (queries.isEmpty() || containsQuery(joined))
+		if (query.isEmpty() || containsQuery(joined))
 		{
 			return;
 		}
 
-		ArrayList<InvertedIndex.SearchResult> searches = index.search(queries, exactSearch);
+		ArrayList<InvertedIndex.SearchResult> searches = index.search(query, exactSearch, conjunctive, proximity, scorer, Integer.MAX_VALUE);
 		results.put(joined, searches);
 	}
 
+	/**
+	 * search - Performs a search on a single line and returns only the k most relevant results.
+	 * 			Recently used results are answered from a bounded cache until the inverted index changes.
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 * @param k - The maximum number of results to return
+	 * @return Returns an unmodifiable list of at most k search results in ranked order
+	 */
+	@Override
+	public List<InvertedIndex.SearchResult> search(String line, boolean exactSearch, boolean conjunctive, int k)
+	{
+		SearchQuery query = new SearchQuery(line);
+		String key = ResultCache.key(query, exactSearch, conjunctive);
+		long version = index.getVersion();
+		List<InvertedIndex.SearchResult> cached = cache.get(key, version, k);
+
+		if (cached != null)
+		{
+			return cached;
+		}
+
+		List<InvertedIndex.SearchResult> ranked = Collections.unmodifiableList(index.search(query, exactSearch, conjunctive, proximity, scorer, k));
+		cache.put(key, version, k, ranked);
+		return ranked;
+	}
+
+	/**
+	 * search - Returns one page of the results of a single line within a budget. Pages within the cached
+	 * 			top results of the line are sliced from the cache, and other pages resume after the last
+	 * 			result of the previous page without keeping the results before it. Results cut short by
+	 * 			the budget are never cached.
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 * @param cursor - The cursor of the previous page, or null for the first page
+	 * @param size - The maximum number of results in the page
+	 * @param budget - The budget of the search, or null to not limit its work
+	 * @return Returns the page of results along with the cursor of the next page
+	 */
+	@Override
+	public SearchPage search(String line, boolean exactSearch, boolean conjunctive, String cursor, int size, SearchBudget budget)
+	{
+		SearchQuery query = new SearchQuery(line);
+		SearchCursor after = SearchCursor.parse(cursor);
+		long version = index.getVersion();
+
+		// proximity boosts reorder the best results, so their pages are always ranked by the index
+		if (!proximity && size > 0 && size < Integer.MAX_VALUE && (after == null || after.getVersion() == version))
+		{
+			int offset = after == null ? 0 : after.getOffset();
+			String key = ResultCache.key(query, exactSearch, conjunctive);
+			List<InvertedIndex.SearchResult> cached = cache.get(key, version, (int) Math.min((long) offset + size + 1, Integer.MAX_VALUE));
+
+			if (cached == null && offset == 0)
+			{
+				cached = Collections.unmodifiableList(index.search(query, exactSearch, conjunctive, proximity, scorer, size + 1, budget));
+
+				if (budget == null || !budget.isTruncated())
+				{
+					cache.put(key, version, size + 1, cached);
+				}
+			}
+
+			if (cached != null && (offset == 0 || (offset <= cached.size() && cached.get(offset - 1).getLocation().equals(after.getLocation()))))
+			{
+				return SearchPage.of(cached, offset, size, version, budget != null && budget.isTruncated());
+			}
+		}
+
+		return index.search(query, exactSearch, conjunctive, proximity, scorer, after, size, budget);
+	}
+
+	/**
+	 * explain - Searches a single line on the calling thread and explains how its k best results were found
+	 * 			 and ranked, timing how long the line takes to parse and stem
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 * @param k - The maximum number of results to explain
+	 * @return Returns the explanation of the query, or null if the line has no query words
+	 */
+	@Override
+	public SearchExplanation explain(String line, boolean exactSearch, boolean conjunctive, int k)
+	{
+		long start = System.nanoTime();
+		SearchQuery query = new SearchQuery(line);
+		long stemming = System.nanoTime() - start;
+
+		if (query.isEmpty())
+		{
+			return null;
+		}
+
+		SearchExplanation explanation = index.explain(query, exactSearch, conjunctive, proximity, scorer, k);
+		explanation.record(SearchExplanation.Phase.STEMMING, stemming);
+		return explanation;
+	}
+
+	/**
+	 * explain - Searches one page of the results of a single line within a budget on the calling thread and
+	 * 			 explains how its results were found and ranked, timing how long the line takes to parse and stem
+	 *
+	 * @param line - The line query
+	 * @param exactSearch - Flag to perform an exact search if set true
+	 * @param conjunctive - Flag to only match locations containing every query word if set true
+	 * @param cursor - The cursor of the previous page, or null for the first page
+	 * @param size - The maximum number of results in the page
+	 * @param budget - The budget of the search, or null to not limit its work
+	 * @return Returns the explanation of the query holding its page of results, or null if the line has no query words
+	 */
+	@Override
+	public SearchExplanation explain(String line, boolean exactSearch, boolean conjunctive, String cursor, int size, SearchBudget budget)
+	{
+		long start = System.nanoTime();
+		SearchQuery query = new SearchQuery(line);
+		long stemming = System.nanoTime() - start;
+
+		if (query.isEmpty())
+		{
+			return null;
+		}
+
+		SearchExplanation explanation = index.explain(query, exactSearch, conjunctive, proximity, scorer, SearchCursor.parse(cursor), size, budget);
+		explanation.record(SearchExplanation.Phase.STEMMING, stemming);
+		return explanation;
+	}
+
 	/**
 	 * containsQuery - Returns true if a given query is found in the data structure
 	 * @param key - The search query
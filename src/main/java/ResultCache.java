@@ -0,0 +1,187 @@
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	ResultCache - A bounded cache of the most recently used search results. Each entry remembers the
+ *				  version of the inverted index it was computed from, and is dropped the next time it is
+ *				  looked up after the index changed.
+ */
+public class ResultCache
+{
+	/**
+	 * DEFAULT_CAPACITY - The default maximum number of cached queries
+	 */
+	public static final int DEFAULT_CAPACITY = 1000;
+
+	/**
+	 * capacity - The maximum number of cached queries
+	 */
+	private final int capacity;
+
+	/**
+	 * entries - The cached results keyed by query and search mode, in least recently used order
+	 */
+	private final LinkedHashMap<String, Entry> entries;
+
+	/**
+	 * hits - The number of lookups answered from the cache
+	 */
+	private long hits;
+
+	/**
+	 * misses - The number of lookups that had to be searched
+	 */
+	private long misses;
+
+	/**
+	 * Initializes a cache holding at most DEFAULT_CAPACITY queries
+	 */
+	public ResultCache()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Initializes a cache holding at most the given number of queries
+	 *
+	 * @param capacity - The maximum number of cached queries
+	 */
+	public ResultCache(int capacity)
+	{
+		this.capacity = Math.max(1, capacity);
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		this.hits = 0;
+		this.misses = 0;
+	}
+
+	/**
+	 * key - Builds the cache key of a query. Queries with the same stems and phrases share a key no
+	 * 		 matter how they were typed, and each search mode has its own key.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Flag to perform an exact search
+	 * @param conjunctive - Flag to only match locations containing every query word
+	 * @return Returns the cache key of the query
+	 */
+	public static String key(SearchQuery query, boolean exactSearch, boolean conjunctive)
+	{
+		return (exactSearch ? "exact" : "partial") + (conjunctive ? " and:" : " or:") + query;
+	}
+
+	/**
+	 * get - Returns the cached k most relevant results of a query
+	 *
+	 * @param key - The cache key of the query
+	 * @param version - The current version of the inverted index
+	 * @param k - The maximum number of results to return
+	 * @return Returns an unmodifiable list of at most k search results, or null if they are not cached
+	 */
+	public synchronized List<InvertedIndex.SearchResult> get(String key, long version, int k)
+	{
+		Entry entry = entries.get(key);
+
+		if (entry != null && entry.version != version)
+		{
+			entries.remove(key);
+			entry = null;
+		}
+
+		// a shorter list than requested is only complete if it holds every match
+		if (entry == null || (k > entry.k && entry.results.size() >= entry.k))
+		{
+			misses++;
+			return null;
+		}
+
+		hits++;
+		return entry.results.subList(0, Math.min(k, entry.results.size()));
+	}
+
+	/**
+	 * put - Caches the k most relevant results of a query, evicting the least recently used query
+	 * 		 if the cache is full
+	 *
+	 * @param key - The cache key of the query
+	 * @param version - The version of the inverted index the results were computed from
+	 * @param k - The maximum number of results that were requested
+	 * @param results - The results to cache
+	 */
+	public synchronized void put(String key, long version, int k, List<InvertedIndex.SearchResult> results)
+	{
+		Entry entry = entries.get(key);
+
+		if (entry != null && entry.version == version && entry.k >= k)
+		{
+			return;
+		}
+
+		entries.put(key, new Entry(version, k, Collections.unmodifiableList(results)));
+
+		if (entries.size() > capacity)
+		{
+			Iterator<String> eldest = entries.keySet().iterator();
+			eldest.next();
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * size - Returns the number of cached queries
+	 *
+	 * @return Returns the number of cached queries
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * toString - Returns a report of how well the cache is doing
+	 *
+	 * @return Returns a report of how well the cache is doing
+	 */
+	@Override
+	public synchronized String toString()
+	{
+		return String.format("Cached %d of at most %d queries, %d hits and %d misses.", entries.size(), capacity, hits, misses);
+	}
+
+	/**
+	 * Entry - The cached results of a query
+	 */
+	private static class Entry
+	{
+		/**
+		 * version - The version of the inverted index the results were computed from
+		 */
+		private final long version;
+
+		/**
+		 * k - The maximum number of results that were requested
+		 */
+		private final int k;
+
+		/**
+		 * results - The results in ranked order
+		 */
+		private final List<InvertedIndex.SearchResult> results;
+
+		/**
+		 * Initializes a cache entry
+		 *
+		 * @param version - The version of the inverted index the results were computed from
+		 * @param k - The maximum number of results that were requested
+		 * @param results - The results in ranked order
+		 */
+		private Entry(long version, int k, List<InvertedIndex.SearchResult> results)
+		{
+			this.version = version;
+			this.k = k;
+			this.results = results;
+		}
+	}
+}
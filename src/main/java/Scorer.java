@@ -0,0 +1,196 @@
+/**
+ * @author Josh Guevarra
+ *
+ *	Scorer - Ranks the locations matched by a query. A score is the sum of the scores of every
+ *			 matching word in a location, and each word score only combines a few values the inverted
+ *			 index precomputes ahead of time: a per-document norm, and a per-word weight computed once
+ *			 per query from the number of locations containing the word.
+ */
+public interface Scorer
+{
+	/**
+	 * MATCHES - Scores a location by its number of matches divided by its number of words
+	 */
+	public static final Scorer MATCHES = new Matches();
+
+	/**
+	 * TF_IDF - Scores a location by the frequency of each word weighted by how rare the word is
+	 */
+	public static final Scorer TF_IDF = new TfIdf();
+
+	/**
+	 * BM25 - Scores a location with Okapi BM25, which saturates repeated words and normalizes by
+	 * 		  how long the location is compared to the average location
+	 */
+	public static final Scorer BM25 = new BM25(1.2, 0.75);
+
+	/**
+	 * norm - Computes the per-document value used to score every word of a location
+	 *
+	 * @param length - The number of words in the location
+	 * @param averageLength - The average number of words per location in the inverted index
+	 * @return Returns the norm of the location
+	 */
+	public double norm(int length, double averageLength);
+
+	/**
+	 * weight - Computes the per-word value used to score a word in every location
+	 *
+	 * @param documentFrequency - The number of locations containing the word
+	 * @param numDocuments - The number of locations in the inverted index
+	 * @return Returns the weight of the word
+	 */
+	public double weight(int documentFrequency, int numDocuments);
+
+	/**
+	 * score - Scores one matching word in a location
+	 *
+	 * @param frequency - The number of times the word is found in the location
+	 * @param weight - The weight of the word
+	 * @param norm - The norm of the location
+	 * @return Returns the score of the word in the location
+	 */
+	public double score(int frequency, double weight, double norm);
+
+	/**
+	 * forName - Returns the built-in scorer with the given name
+	 *
+	 * @param name - The name of the scorer, one of "matches", "tfidf" or "bm25"
+	 * @return Returns the scorer with the given name, or null if there is none
+	 */
+	public static Scorer forName(String name)
+	{
+		if (name == null)
+		{
+			return null;
+		}
+
+		switch (name.toLowerCase())
+		{
+			case "matches":
+				return MATCHES;
+
+			case "tfidf":
+				return TF_IDF;
+
+			case "bm25":
+				return BM25;
+
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Matches - The original ranking, total matches divided by total words
+	 */
+	public static class Matches implements Scorer
+	{
+		@Override
+		public double norm(int length, double averageLength)
+		{
+			return 1.0 / length;
+		}
+
+		@Override
+		public double weight(int documentFrequency, int numDocuments)
+		{
+			return 1;
+		}
+
+		@Override
+		public double score(int frequency, double weight, double norm)
+		{
+			return frequency * norm;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "matches";
+		}
+	}
+
+	/**
+	 * TfIdf - Term frequency divided by the number of words, weighted by the smoothed inverse
+	 * 		   document frequency
+	 */
+	public static class TfIdf implements Scorer
+	{
+		@Override
+		public double norm(int length, double averageLength)
+		{
+			return 1.0 / length;
+		}
+
+		@Override
+		public double weight(int documentFrequency, int numDocuments)
+		{
+			return Math.log(1 + (double) numDocuments / documentFrequency);
+		}
+
+		@Override
+		public double score(int frequency, double weight, double norm)
+		{
+			return frequency * norm * weight;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "tfidf";
+		}
+	}
+
+	/**
+	 * BM25 - Okapi BM25 with the non-negative inverse document frequency
+	 */
+	public static class BM25 implements Scorer
+	{
+		/**
+		 * k1 - How quickly repeated words stop adding to the score
+		 */
+		private final double k1;
+
+		/**
+		 * b - How much the score is normalized by the length of the location
+		 */
+		private final double b;
+
+		/**
+		 * Initializes the BM25 parameters
+		 *
+		 * @param k1 - How quickly repeated words stop adding to the score
+		 * @param b - How much the score is normalized by the length of the location, between 0 and 1
+		 */
+		public BM25(double k1, double b)
+		{
+			this.k1 = k1;
+			this.b = b;
+		}
+
+		@Override
+		public double norm(int length, double averageLength)
+		{
+			return k1 * (1 - b + b * length / averageLength);
+		}
+
+		@Override
+		public double weight(int documentFrequency, int numDocuments)
+		{
+			return Math.log(1 + (numDocuments - documentFrequency + 0.5) / (documentFrequency + 0.5)) * (k1 + 1);
+		}
+
+		@Override
+		public double score(int frequency, double weight, double norm)
+		{
+			return weight * frequency / (frequency + norm);
+		}
+
+		@Override
+		public String toString()
+		{
+			return "bm25";
+		}
+	}
+}
@@ -0,0 +1,285 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	SearchBudget - Limits how much work a single search may do: how long it may run, how many words of the
+ *				   inverted index its query words may expand to, and how many postings (locations of a word)
+ *				   it may read. A search that runs out of budget stops early and returns the best results
+ *				   found so far, and the budget remembers that the results were truncated. A budget belongs
+ *				   to one search. Only the clock may be checked by the other threads scoring parts of it,
+ *				   and the parts a budget is split into only share the count of postings they read.
+ */
+public class SearchBudget
+{
+	/**
+	 * CLOCK_INTERVAL - The number of postings read between checks of the clock
+	 */
+	private static final int CLOCK_INTERVAL = 1024;
+
+	/**
+	 * deadline - The time the search must finish by, in nanoseconds
+	 */
+	private final long deadline;
+
+	/**
+	 * maxTerms - The maximum number of words the query words may expand to
+	 */
+	private final int maxTerms;
+
+	/**
+	 * maxPostings - The maximum number of postings the search may read
+	 */
+	private final long maxPostings;
+
+	/**
+	 * terms - The number of words expanded to so far
+	 */
+	private int terms;
+
+	/**
+	 * postings - The number of postings read so far
+	 */
+	private long postings;
+
+	/**
+	 * truncated - Whether the search stopped early because it ran out of budget
+	 */
+	private volatile boolean truncated;
+
+	/**
+	 * expansions - The words each query word expanded to, so a query word expanded more than once by
+	 * 				the same search is only charged once and always expands to the same words
+	 */
+	private final Map<String, List<String>> expansions;
+
+	/**
+	 * shared - The number of postings read by every part of the budget this part was split from, or null
+	 * 			if it was not split from one
+	 */
+	private final AtomicLong shared;
+
+	/**
+	 * parts - The parts the budget was last split into, or null if it was never split
+	 */
+	private List<SearchBudget> parts;
+
+	/**
+	 * charged - The number of postings of this part already charged back to the budget it was split from
+	 */
+	private long charged;
+
+	/**
+	 * Initializes a budget starting now
+	 *
+	 * @param maxMillis - The maximum time the search may run, in milliseconds
+	 * @param maxTerms - The maximum number of words the query words may expand to
+	 * @param maxPostings - The maximum number of postings the search may read
+	 */
+	public SearchBudget(long maxMillis, int maxTerms, long maxPostings)
+	{
+		this.deadline = System.nanoTime() + Math.max(0, maxMillis) * 1000000;
+		this.maxTerms = Math.max(0, maxTerms);
+		this.maxPostings = Math.max(0, maxPostings);
+		this.terms = 0;
+		this.postings = 0;
+		this.truncated = false;
+		this.expansions = new HashMap<String, List<String>>();
+		this.shared = null;
+		this.parts = null;
+		this.charged = 0;
+	}
+
+	/**
+	 * Initializes one of several parts of what is left of a budget, with the same deadline and words. The
+	 * parts share the postings left through a single count.
+	 *
+	 * @param budget - The budget to split
+	 * @param shared - The number of postings read by every part
+	 */
+	private SearchBudget(SearchBudget budget, AtomicLong shared)
+	{
+		this.deadline = budget.deadline;
+		this.maxTerms = budget.maxTerms;
+		this.maxPostings = budget.maxPostings - budget.postings;
+		this.terms = budget.terms;
+		this.postings = 0;
+		this.truncated = false;
+		this.expansions = new HashMap<String, List<String>>();
+		this.shared = shared;
+		this.parts = null;
+		this.charged = 0;
+	}
+
+	/**
+	 * split - Splits what is left of the budget into parts with the same deadline, one for each search
+	 * 		   running side by side, such as the searches of the shards of an inverted index. Shards split
+	 * 		   the locations but each holds its own copy of the words, so every part may expand to as many
+	 * 		   words as the budget has left. The postings left are shared by the parts, so a part whose
+	 * 		   shard holds most of the postings of a query may read them all. Splitting the
+	 * 		   budget into as many parts again returns the same parts, so a search split several times, such
+	 * 		   as an explained search, expands each query word once per part.
+	 *
+	 * @param count - The number of parts
+	 * @return Returns the parts of the budget
+	 *
+	 * @see #merge(SearchBudget)
+	 */
+	public List<SearchBudget> split(int count)
+	{
+		int size = Math.max(1, count);
+
+		if (parts == null || parts.size() != size)
+		{
+			AtomicLong shared = new AtomicLong();
+			parts = new ArrayList<SearchBudget>(size);
+
+			for (int i = 0; i < size; i++)
+			{
+				parts.add(new SearchBudget(this, shared));
+			}
+		}
+
+		return parts;
+	}
+
+	/**
+	 * merge - Charges the work of a part of the budget back to the budget once its search finished. The
+	 * 		   parts expand the same query words, so the words are counted once, as the most words any
+	 * 		   part expanded to.
+	 *
+	 * @param part - One of the parts returned by {@link #split(int)}
+	 */
+	public void merge(SearchBudget part)
+	{
+		terms = Math.max(terms, part.terms);
+		postings += part.postings - part.charged;
+		part.charged = part.postings;
+		truncated |= part.truncated;
+	}
+
+	/**
+	 * expand - Charges one more word and its postings to the budget
+	 *
+	 * @param numPostings - The number of postings of the word
+	 * @return Returns true if the word fits in the budget, or false if it must be skipped
+	 */
+	public boolean expand(int numPostings)
+	{
+		if (terms >= maxTerms || isExpired() || !charge(numPostings))
+		{
+			truncated = true;
+			return false;
+		}
+
+		terms++;
+		return true;
+	}
+
+	/**
+	 * visit - Charges one posting read outside of a word, such as an entry of the prefix table
+	 *
+	 * @return Returns true if the posting fits in the budget, or false if the search must stop
+	 */
+	public boolean visit()
+	{
+		if (!charge(1) || (postings % CLOCK_INTERVAL == 0 && isExpired()))
+		{
+			truncated = true;
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * charge - Charges postings to the budget, and to the count shared with the other parts of the budget
+	 * 			it was split from if there is one
+	 *
+	 * @param count - The number of postings
+	 * @return Returns true if the postings fit in the budget, or false if nothing was charged
+	 */
+	private boolean charge(long count)
+	{
+		if (shared == null)
+		{
+			if (postings + count > maxPostings)
+			{
+				return false;
+			}
+		}
+
+		else if (shared.addAndGet(count) > maxPostings)
+		{
+			shared.addAndGet(-count);
+			return false;
+		}
+
+		postings += count;
+		return true;
+	}
+
+	/**
+	 * isExpired - Returns true if the search ran out of time, marking the results as truncated
+	 *
+	 * @return Returns true if the deadline has passed
+	 */
+	public boolean isExpired()
+	{
+		if (System.nanoTime() - deadline > 0)
+		{
+			truncated = true;
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * isTruncated - Returns true if the search stopped early because it ran out of budget
+	 *
+	 * @return Returns true if the results may be missing matches
+	 */
+	public boolean isTruncated()
+	{
+		return truncated;
+	}
+
+	/**
+	 * getExpansion - Returns the words a query word already expanded to during this search
+	 *
+	 * @param key - The query word along with its search mode
+	 * @return Returns the words the query word expanded to, or null if it was not expanded yet
+	 */
+	public List<String> getExpansion(String key)
+	{
+		return expansions.get(key);
+	}
+
+	/**
+	 * putExpansion - Remembers the words a query word expanded to during this search
+	 *
+	 * @param key - The query word along with its search mode
+	 * @param keys - The words the query word expanded to
+	 */
+	public void putExpansion(String key, List<String> keys)
+	{
+		expansions.put(key, keys);
+	}
+
+	/**
+	 * toString - Returns a report of how much of the budget was used
+	 *
+	 * @return Returns a report of how much of the budget was used
+	 */
+	@Override
+	public String toString()
+	{
+		return String.format("Used %d of %d words and %d of %d postings%s.", terms, maxTerms, postings, maxPostings,
+				truncated ? ", results truncated" : "");
+	}
+}
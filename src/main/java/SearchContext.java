@@ -0,0 +1,215 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	SearchContext - The state of one search of an inverted index: the budget it is charged to, the explanation
+ *					it records into, the statistics of the larger collection it scores with, and the words each
+ *					query word expanded to. Searches pass it along explicitly, so the shards and fork/join tasks
+ *					a search hands work off to are given their own context instead of the one of their thread.
+ */
+class SearchContext
+{
+	/**
+	 * budget - The budget of the search, or null if its work is not limited
+	 */
+	private final SearchBudget budget;
+
+	/**
+	 * explanation - The explanation the search records into, or null if it is not explained
+	 */
+	private final SearchExplanation explanation;
+
+	/**
+	 * collection - The statistics of the larger collection the inverted index is part of, or null if it is
+	 * 				searched on its own
+	 */
+	private final CollectionStatistics collection;
+
+	/**
+	 * expansions - The words each query word expanded to during a search without a budget. A budget
+	 * 				remembers the expansions of its search itself, across every search charged to it.
+	 */
+	private final Map<String, List<String>> expansions;
+
+	/**
+	 * Initializes the context of a search without a budget, explanation or larger collection
+	 */
+	public SearchContext()
+	{
+		this(null, null, null, new HashMap<String, List<String>>());
+	}
+
+	/**
+	 * Initializes the context of a search within a budget
+	 *
+	 * @param budget - The budget of the search, or null to not limit its work
+	 */
+	public SearchContext(SearchBudget budget)
+	{
+		this(budget, null, null, new HashMap<String, List<String>>());
+	}
+
+	/**
+	 * Initializes the context of a search
+	 *
+	 * @param budget - The budget of the search, or null to not limit its work
+	 * @param explanation - The explanation to record into, or null to not explain the search
+	 * @param collection - The statistics of the larger collection, or null to use those of the inverted index
+	 * @param expansions - The words each query word expanded to so far
+	 */
+	private SearchContext(SearchBudget budget, SearchExplanation explanation, CollectionStatistics collection, Map<String, List<String>> expansions)
+	{
+		this.budget = budget;
+		this.explanation = explanation;
+		this.collection = collection;
+		this.expansions = expansions;
+	}
+
+	/**
+	 * getBudget - Returns the budget of the search
+	 *
+	 * @return Returns the budget of the search, or null if its work is not limited
+	 */
+	public SearchBudget getBudget()
+	{
+		return budget;
+	}
+
+	/**
+	 * getExplanation - Returns the explanation the search records into
+	 *
+	 * @return Returns the explanation of the search, or null if it is not explained
+	 */
+	public SearchExplanation getExplanation()
+	{
+		return explanation;
+	}
+
+	/**
+	 * getCollection - Returns the statistics of the larger collection the search scores with
+	 *
+	 * @return Returns the statistics of the larger collection, or null if the inverted index is searched on its own
+	 */
+	public CollectionStatistics getCollection()
+	{
+		return collection;
+	}
+
+	/**
+	 * isExpired - Returns true if the search has a budget and ran out of time
+	 *
+	 * @return Returns true if the search must stop
+	 */
+	public boolean isExpired()
+	{
+		return budget != null && budget.isExpired();
+	}
+
+	/**
+	 * withExplanation - Returns the same search recording into an explanation
+	 *
+	 * @param explanation - The explanation to record into
+	 * @return Returns the context of the explained search
+	 */
+	public SearchContext withExplanation(SearchExplanation explanation)
+	{
+		return new SearchContext(budget, explanation, collection, expansions);
+	}
+
+	/**
+	 * withStatistics - Returns the same search scoring locations with the statistics of a larger collection,
+	 * 					so its scores match the scores the whole collection would give
+	 *
+	 * @param collection - The statistics of the larger collection, or null to use those of the inverted index
+	 * @return Returns the context of the search
+	 */
+	public SearchContext withStatistics(CollectionStatistics collection)
+	{
+		return collection == null ? this : new SearchContext(budget, explanation, collection, expansions);
+	}
+
+	/**
+	 * split - Splits the search into parts running side by side, such as the searches of the shards of an
+	 * 		   inverted index. Each part is charged to its own part of the budget and remembers its own
+	 * 		   expansions, while every part records into the same explanation.
+	 *
+	 * @param count - The number of parts
+	 * @return Returns the context of each part
+	 *
+	 * @see SearchBudget#split(int)
+	 */
+	public List<SearchContext> split(int count)
+	{
+		List<SearchContext> parts = new ArrayList<SearchContext>(count);
+		List<SearchBudget> budgets = budget == null ? null : budget.split(count);
+
+		for (int i = 0; i < count; i++)
+		{
+			parts.add(new SearchContext(budgets == null ? null : budgets.get(i), explanation, collection, new HashMap<String, List<String>>()));
+		}
+
+		return parts;
+	}
+
+	/**
+	 * join - Charges the work of every part of the search back to its budget
+	 *
+	 * @param parts - The parts returned by {@link #split(int)}
+	 */
+	public void join(List<SearchContext> parts)
+	{
+		if (budget != null)
+		{
+			for (SearchContext part : parts)
+			{
+				budget.merge(part.budget);
+			}
+		}
+	}
+
+	/**
+	 * expansion - Returns the words a query word expands to, expanding it the first time. Within a budget,
+	 * 			   the words are remembered by the budget so they are only charged once.
+	 *
+	 * @param key - The query word along with its search mode
+	 * @param expand - Expands the query word
+	 * @return Returns the words the query word expands to
+	 */
+	public List<String> expansion(String key, Supplier<List<String>> expand)
+	{
+		if (budget == null)
+		{
+			return expansions.computeIfAbsent(key, k -> expand.get());
+		}
+
+		List<String> keys = budget.getExpansion(key);
+
+		if (keys == null)
+		{
+			keys = expand.get();
+			budget.putExpansion(key, keys);
+		}
+
+		return keys;
+	}
+
+	/**
+	 * selected - Records the number of locations scored by the search and the time spent selecting and
+	 * 			  sorting the best of them, if the search is being explained
+	 *
+	 * @param locations - The number of locations scored
+	 * @param start - The time selecting the best locations started, in nanoseconds
+	 */
+	public void selected(long locations, long start)
+	{
+		if (explanation != null)
+		{
+			explanation.selected(locations, System.nanoTime() - start);
+		}
+	}
+}
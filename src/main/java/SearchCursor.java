@@ -0,0 +1,176 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	SearchCursor - Marks where the next page of search results starts. A cursor remembers the score,
+ *				   number of matches and location of the result the next page resumes after, how many
+ *				   results came before it, and the version of the inverted index the page was ranked
+ *				   from. It is passed around as an opaque string.
+ */
+public class SearchCursor
+{
+	/**
+	 * FIELDS - The number of fields encoded in a cursor string
+	 */
+	private static final int FIELDS = 5;
+
+	/**
+	 * version - The version of the inverted index the previous page was ranked from
+	 */
+	private final long version;
+
+	/**
+	 * offset - The number of results on the previous pages
+	 */
+	private final int offset;
+
+	/**
+	 * score - The score of the result to resume after
+	 */
+	private final double score;
+
+	/**
+	 * numMatches - The number of matches of the result to resume after
+	 */
+	private final int numMatches;
+
+	/**
+	 * location - The location of the result to resume after
+	 */
+	private final String location;
+
+	/**
+	 * Initializes a cursor resuming after the given result
+	 *
+	 * @param version - The version of the inverted index the previous page was ranked from
+	 * @param offset - The number of results on the previous pages
+	 * @param last - The result to resume after
+	 */
+	public SearchCursor(long version, int offset, InvertedIndex.SearchResult last)
+	{
+		this(version, offset, last.getScore(), last.getNumMatches(), last.getLocation());
+	}
+
+	/**
+	 * Initializes a cursor from its fields
+	 *
+	 * @param version - The version of the inverted index the previous page was ranked from
+	 * @param offset - The number of results on the previous pages
+	 * @param score - The score of the result to resume after
+	 * @param numMatches - The number of matches of the result to resume after
+	 * @param location - The location of the result to resume after
+	 */
+	private SearchCursor(long version, int offset, double score, int numMatches, String location)
+	{
+		this.version = version;
+		this.offset = offset;
+		this.score = score;
+		this.numMatches = numMatches;
+		this.location = location;
+	}
+
+	/**
+	 * parse - Reads a cursor from the string returned by {@link #toString()}
+	 *
+	 * @param text - The cursor string
+	 * @return Returns the cursor, or null if the string is missing or is not a valid cursor
+	 */
+	public static SearchCursor parse(String text)
+	{
+		if (text == null || text.isBlank())
+		{
+			return null;
+		}
+
+		try
+		{
+			String[] fields = new String(Base64.getUrlDecoder().decode(text.strip()), StandardCharsets.UTF_8).split("\n", FIELDS);
+
+			if (fields.length != FIELDS)
+			{
+				return null;
+			}
+
+			int offset = Integer.parseInt(fields[1]);
+
+			if (offset < 0)
+			{
+				return null;
+			}
+
+			return new SearchCursor(Long.parseLong(fields[0]), offset,
+					Double.longBitsToDouble(Long.parseUnsignedLong(fields[2], 16)), Integer.parseInt(fields[3]), fields[4]);
+		}
+
+		catch (IllegalArgumentException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * getVersion - Returns the version of the inverted index the previous page was ranked from
+	 *
+	 * @return Returns the version of the inverted index the previous page was ranked from
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * getOffset - Returns the number of results on the previous pages
+	 *
+	 * @return Returns the number of results on the previous pages
+	 */
+	public int getOffset()
+	{
+		return offset;
+	}
+
+	/**
+	 * getScore - Returns the score of the result to resume after
+	 *
+	 * @return Returns the score of the result to resume after
+	 */
+	public double getScore()
+	{
+		return score;
+	}
+
+	/**
+	 * getNumMatches - Returns the number of matches of the result to resume after
+	 *
+	 * @return Returns the number of matches of the result to resume after
+	 */
+	public int getNumMatches()
+	{
+		return numMatches;
+	}
+
+	/**
+	 * getLocation - Returns the location of the result to resume after
+	 *
+	 * @return Returns the location of the result to resume after
+	 */
+	public String getLocation()
+	{
+		return location;
+	}
+
+	/**
+	 * toString - Returns the cursor as an opaque string that is safe to use in a URL
+	 *
+	 * @return Returns the cursor string
+	 */
+	@Override
+	public String toString()
+	{
+		String fields = String.join("\n", Long.toString(version), Integer.toString(offset),
+				Long.toHexString(Double.doubleToLongBits(score)), Integer.toString(numMatches), location);
+
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(fields.getBytes(StandardCharsets.UTF_8));
+	}
+}
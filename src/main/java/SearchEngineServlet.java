@@ -42,6 +42,9 @@ public class SearchEngineServlet extends HttpServlet
 	private final String headTemplate;
 	private final String footTemplate;
 	private final String textTemplate;
+	private final String nextTemplate;
+	private final String truncatedTemplate;
+	private final String explainTemplate;
 
 	/**
 	 * searcher - The searcher class to interact with
@@ -73,6 +76,21 @@ public class SearchEngineServlet extends HttpServlet
 	 */
 	private static int MAX_LINKS = 10; 
 	
+	/**
+	 * MAX_MILLIS - The longest a search may run, in milliseconds. A request may ask for less with the "time" parameter.
+	 */
+	private static final long MAX_MILLIS = 500;
+	
+	/**
+	 * MAX_TERMS - The most words the query words of a search may expand to. A request may ask for less with the "terms" parameter.
+	 */
+	private static final int MAX_TERMS = 5000;
+	
+	/**
+	 * MAX_POSTINGS - The most postings a search may read. A request may ask for less with the "postings" parameter.
+	 */
+	private static final long MAX_POSTINGS = 2000000;
+	
 	/**
 	 * Constructor to initialize the necessary members for this class
 	 * @param searcher - The searcher class object to use to perform exact/partial searches
@@ -87,6 +105,9 @@ public class SearchEngineServlet extends HttpServlet
 		headTemplate = Files.readString(BASE.resolve("bulma-head.html"));
 		footTemplate = Files.readString(BASE.resolve("bulma-foot.html"));
 		textTemplate = Files.readString(BASE.resolve("bulma-text.html"));
+		nextTemplate = Files.readString(BASE.resolve("bulma-next.html"));
+		truncatedTemplate = Files.readString(BASE.resolve("bulma-truncated.html"));
+		explainTemplate = Files.readString(BASE.resolve("bulma-explain.html"));
 		
 		links = new ConcurrentLinkedQueue<String>();
 		
@@ -140,23 +161,33 @@ public class SearchEngineServlet extends HttpServlet
 	{
 		response.setContentType("text/html");
 		
-		/** Take in the search query input, clean it, and feed it into the search function */
-		searchQuery = request.getParameter("search");	
-		searchQuery = StringEscapeUtils.escapeHtml4(searchQuery);	
-		searcher.search(searchQuery, exactSearch);
+		/** Take in the search query input and feed it into the search function, only escaping the copy that is displayed 
+		 *  so quoted phrases reach the searcher intact */
+		String line = request.getParameter("search");
+		searchQuery = StringEscapeUtils.escapeHtml4(line);	
 		
 		/** Clear the links data structure so that old links are appended */
 		links.clear();
 		
-		/** In the search function, search query is broken apart and joined which results in a different key for the map 
-		 *  containing <query, SearchResult> pairings. We need to do this to have the matching key for when we call getResults
-		 */
-		String searchKey = String.join(" ", TextStemmer.uniqueStems(searchQuery));
-
+		/** Only one page of results is displayed, so only those are selected and ranked. A cursor from the
+		 *  "More results" button resumes after the last link of the previous page. */
 		Map<String, String> values = new HashMap<>();		
-		List<InvertedIndex.SearchResult> results = searcher.getResults(searchKey);
+		boolean conjunctive = request.getParameter("all") != null;
+		boolean explain = request.getParameter("explain") != null;
+		long millis = limit(request, "time", MAX_MILLIS);
+		long terms = limit(request, "terms", MAX_TERMS);
+		long postings = limit(request, "postings", MAX_POSTINGS);
+		SearchBudget budget = new SearchBudget(millis, (int) terms, postings);
+		
+		/** An explained search is the search of the page served, within the same budget, so explaining it does no extra work */
+		SearchExplanation explanation = explain ? searcher.explain(line == null ? "" : line, exactSearch, conjunctive, 
+				request.getParameter("cursor"), MAX_LINKS, budget) : null;
+		SearchPage page = explanation != null ? explanation.getPage() 
+				: searcher.search(line == null ? "" : line, exactSearch, conjunctive, request.getParameter("cursor"), MAX_LINKS, budget);
+		List<InvertedIndex.SearchResult> results = page.getResults();
 
 		int counter = 0; 
+		long rendering = System.nanoTime();
 		
 		/** Loop through our list of SearchResult objects. We want to break if we're at the max number of links to display.
 		 *  If the amount of SearchResults objects is less than our max number of links we will just display them all.
@@ -179,12 +210,74 @@ public class SearchEngineServlet extends HttpServlet
 			links.add(formatted);
 			counter++;
 		}
+
+		rendering = System.nanoTime() - rendering;
+
+		/** Let the user know if the search ran out of budget, since some matches may be missing */
+		if (page.isTruncated())
+		{
+			links.add(truncatedTemplate);
+		}
+
+		/** Offer the next page if there are more results, searched within the same budget */
+		if (page.hasNext())
+		{
+			values.put("action", request.getServletPath());
+			values.put("search", searchQuery == null ? "" : searchQuery);
+			values.put("cursor", page.getNext().toString());
+			values.put("all", conjunctive ? "<input type=\"hidden\" name=\"all\" value=\"on\">" : "");
+			values.put("explain", explain ? "<input type=\"hidden\" name=\"explain\" value=\"on\">" : "");
+			values.put("time", Long.toString(millis));
+			values.put("terms", Long.toString(terms));
+			values.put("postings", Long.toString(postings));
+
+			StringSubstitutor replacer = new StringSubstitutor(values);
+			links.add(replacer.replace(nextTemplate));
+		}
+
+		/** Explain how the results of the page were found and ranked if asked to */
+		if (explanation != null)
+		{
+			explanation.record(SearchExplanation.Phase.RENDERING, rendering);
+			values.put("explanation", StringEscapeUtils.escapeHtml4(explanation.toString()));
+
+			StringSubstitutor replacer = new StringSubstitutor(values);
+			links.add(replacer.replace(explainTemplate));
+		}
 		
 		
 		response.setStatus(HttpServletResponse.SC_OK);
 		response.sendRedirect(request.getServletPath());
 	}
 	
+	/**
+	 * limit - Reads a budget limit from a request, keeping it between 1 and the server's maximum
+	 * 
+	 * @param request - The request
+	 * @param name - The name of the parameter
+	 * @param max - The server's maximum, also used if the parameter is missing or is not a number
+	 * @return Returns the budget limit
+	 */
+	private static long limit(HttpServletRequest request, String name, long max)
+	{
+		String value = request.getParameter(name);
+		
+		if (value == null)
+		{
+			return max;
+		}
+		
+		try
+		{
+			return Math.max(1, Math.min(max, Long.parseLong(value.strip())));
+		}
+		
+		catch (NumberFormatException e)
+		{
+			return max;
+		}
+	}
+	
 	public static String getDate()
 	{
 		String format = "hh:mm a 'on' EEEE, MMMM, dd, yyyy";
@@ -0,0 +1,480 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	SearchExplanation - Why a query ranked the way it did and where its time went. An explanation lists the
+ *						stems and phrases of the query, the words of the inverted index each stem expanded to
+ *						along with their number of postings (locations of a word), the plan the query was
+ *						evaluated with, the number of locations scored, the time spent in each phase of the
+ *						search, and how the score of every result adds up from the words it contains.
+ */
+public class SearchExplanation
+{
+	/**
+	 * EXPANSIONS_SHOWN - The most words shown for each stem, the rest are only counted
+	 */
+	private static final int EXPANSIONS_SHOWN = 10;
+
+	/**
+	 * Phase - The phases of a search that are timed
+	 */
+	public enum Phase
+	{
+		/**
+		 * STEMMING - Parsing and stemming the query line
+		 */
+		STEMMING("stemming"),
+
+		/**
+		 * EXPANSION - Expanding every query word to the words of the inverted index and planning the query
+		 */
+		EXPANSION("expansion"),
+
+		/**
+		 * SCORING - Reading location lists and scoring the matching locations
+		 */
+		SCORING("scoring"),
+
+		/**
+		 * SORTING - Selecting and sorting the best results, summed over every thread ranking part of the query
+		 */
+		SORTING("sorting"),
+
+		/**
+		 * RENDERING - Turning the results into the page shown to the user
+		 */
+		RENDERING("rendering");
+
+		/**
+		 * name - The name of the phase shown in explanations
+		 */
+		private final String name;
+
+		/**
+		 * Initializes a phase
+		 *
+		 * @param name - The name of the phase shown in explanations
+		 */
+		private Phase(String name)
+		{
+			this.name = name;
+		}
+
+		/**
+		 * toString - Returns the name of the phase
+		 *
+		 * @return Returns the name of the phase
+		 */
+		@Override
+		public String toString()
+		{
+			return name;
+		}
+	}
+
+	/**
+	 * query - The normalized form of the query
+	 */
+	private final String query;
+
+	/**
+	 * scorer - The scorer used to rank the matching locations
+	 */
+	private final Scorer scorer;
+
+	/**
+	 * plan - The plan the query was evaluated with
+	 */
+	private final QueryPlan plan;
+
+	/**
+	 * expansions - The words each stem expanded to, in query order, paired to their number of postings
+	 */
+	private final Map<String, Map<String, Integer>> expansions;
+
+	/**
+	 * timings - The time spent in each phase, in nanoseconds
+	 */
+	private final Map<Phase, Long> timings;
+
+	/**
+	 * scored - The number of locations scored
+	 */
+	private long scored;
+
+	/**
+	 * results - The score breakdown of every result in ranked order
+	 */
+	private List<Result> results;
+
+	/**
+	 * page - The page of results the search returned, or null if it was not searched yet
+	 */
+	private SearchPage page;
+
+	/**
+	 * Initializes an explanation of a query before it is searched
+	 *
+	 * @param query - The parsed query
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param plan - The plan the query is evaluated with
+	 * @param expansions - The words each stem expanded to, in query order, paired to their number of postings
+	 */
+	public SearchExplanation(SearchQuery query, Scorer scorer, QueryPlan plan, Map<String, Map<String, Integer>> expansions)
+	{
+		this.query = query.toString();
+		this.scorer = scorer;
+		this.plan = plan;
+		this.expansions = Collections.unmodifiableMap(expansions);
+		this.timings = new EnumMap<Phase, Long>(Phase.class);
+		this.scored = 0;
+		this.results = List.of();
+		this.page = null;
+	}
+
+	/**
+	 * record - Adds time spent in a phase of the search
+	 *
+	 * @param phase - The phase
+	 * @param nanos - The time spent, in nanoseconds
+	 */
+	public synchronized void record(Phase phase, long nanos)
+	{
+		timings.merge(phase, nanos, Long::sum);
+	}
+
+	/**
+	 * selected - Records the locations scored by one ranking of the query and the time spent selecting and
+	 * 			  sorting the best of them. Called by every thread ranking part of the query.
+	 *
+	 * @param locations - The number of locations scored
+	 * @param nanos - The time spent selecting and sorting the best results, in nanoseconds
+	 */
+	public synchronized void selected(long locations, long nanos)
+	{
+		scored += locations;
+		timings.merge(Phase.SORTING, nanos, Long::sum);
+	}
+
+	/**
+	 * setResults - Sets the score breakdown of every result once the query was ranked
+	 *
+	 * @param results - The score breakdown of every result in ranked order
+	 */
+	public synchronized void setResults(List<Result> results)
+	{
+		this.results = Collections.unmodifiableList(new ArrayList<Result>(results));
+	}
+
+	/**
+	 * setPage - Sets the page of results the search returned
+	 *
+	 * @param page - The page of results
+	 */
+	public synchronized void setPage(SearchPage page)
+	{
+		this.page = page;
+	}
+
+	/**
+	 * getPage - Returns the page of results the search returned, along with the cursor of the next page
+	 *
+	 * @return Returns the page of results, or null if the query was not searched yet
+	 */
+	public synchronized SearchPage getPage()
+	{
+		return page;
+	}
+
+	/**
+	 * getQuery - Returns the normalized form of the query
+	 *
+	 * @return Returns the normalized form of the query
+	 */
+	public String getQuery()
+	{
+		return query;
+	}
+
+	/**
+	 * getPlan - Returns the plan the query was evaluated with
+	 *
+	 * @return Returns the plan of the query
+	 */
+	public QueryPlan getPlan()
+	{
+		return plan;
+	}
+
+	/**
+	 * getExpansions - Returns an unmodifiable view of the words each stem expanded to
+	 *
+	 * @return Returns the words each stem expanded to, paired to their number of postings
+	 */
+	public Map<String, Map<String, Integer>> getExpansions()
+	{
+		return expansions;
+	}
+
+	/**
+	 * getNanos - Returns the time spent in a phase of the search
+	 *
+	 * @param phase - The phase
+	 * @return Returns the time spent in the phase, in nanoseconds, or 0 if it was not timed
+	 */
+	public synchronized long getNanos(Phase phase)
+	{
+		return timings.getOrDefault(phase, 0L);
+	}
+
+	/**
+	 * getScored - Returns the number of locations scored
+	 *
+	 * @return Returns the number of locations scored
+	 */
+	public synchronized long getScored()
+	{
+		return scored;
+	}
+
+	/**
+	 * getResults - Returns an unmodifiable view of the score breakdown of every result
+	 *
+	 * @return Returns the score breakdown of every result in ranked order
+	 */
+	public synchronized List<Result> getResults()
+	{
+		return results;
+	}
+
+	/**
+	 * toString - Returns the explanation as text, one line per stem, plan step, phase and result word
+	 *
+	 * @return Returns the explanation as text
+	 */
+	@Override
+	public synchronized String toString()
+	{
+		String separator = System.lineSeparator();
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("Query: %s (%s)", query, scorer));
+
+		for (Map.Entry<String, Map<String, Integer>> expansion : expansions.entrySet())
+		{
+			Map<String, Integer> words = expansion.getValue();
+			List<String> shown = new ArrayList<String>();
+
+			for (Map.Entry<String, Integer> word : words.entrySet())
+			{
+				if (shown.size() == EXPANSIONS_SHOWN)
+				{
+					shown.add(String.format("and %d more", words.size() - EXPANSIONS_SHOWN));
+					break;
+				}
+
+				shown.add(String.format("%s (%d)", word.getKey(), word.getValue()));
+			}
+
+			builder.append(separator).append(String.format("  %s -> %s", expansion.getKey(), shown.isEmpty() ? "no words" : String.join(", ", shown)));
+		}
+
+		builder.append(separator).append(plan);
+		builder.append(separator).append(String.format("Scored %d %s", scored, scored == 1 ? "location" : "locations"));
+
+		List<String> phases = new ArrayList<String>();
+
+		for (Map.Entry<Phase, Long> timing : timings.entrySet())
+		{
+			phases.add(String.format("%s %.3f ms", timing.getKey(), timing.getValue() / 1000000.0));
+		}
+
+		builder.append(separator).append("Time: ").append(String.join(", ", phases));
+
+		for (int i = 0; i < results.size(); i++)
+		{
+			builder.append(separator).append(String.format("%d. ", i + 1)).append(results.get(i));
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Result - The score breakdown of one result
+	 */
+	public static class Result
+	{
+		/**
+		 * result - The result
+		 */
+		private final InvertedIndex.SearchResult result;
+
+		/**
+		 * words - The number of words of the location
+		 */
+		private final int words;
+
+		/**
+		 * terms - The words of the query found in the location, with their frequency and score
+		 */
+		private final List<Term> terms;
+
+		/**
+		 * unboosted - The score of the location before any proximity boost
+		 */
+		private final double unboosted;
+
+		/**
+		 * Initializes the score breakdown of a result
+		 *
+		 * @param result - The result
+		 * @param words - The number of words of the location
+		 * @param terms - The words of the query found in the location, with their frequency and score
+		 * @param unboosted - The score of the location before any proximity boost
+		 */
+		public Result(InvertedIndex.SearchResult result, int words, List<Term> terms, double unboosted)
+		{
+			this.result = result;
+			this.words = words;
+			this.terms = Collections.unmodifiableList(terms);
+			this.unboosted = unboosted;
+		}
+
+		/**
+		 * getResult - Returns the result
+		 *
+		 * @return Returns the result
+		 */
+		public InvertedIndex.SearchResult getResult()
+		{
+			return result;
+		}
+
+		/**
+		 * getTerms - Returns an unmodifiable view of the words of the query found in the location
+		 *
+		 * @return Returns the words of the query found in the location, with their frequency and score
+		 */
+		public List<Term> getTerms()
+		{
+			return terms;
+		}
+
+		/**
+		 * getBoost - Returns how much the score of the result was boosted by proximity
+		 *
+		 * @return Returns the factor the score was multiplied by, or 1 if it was not boosted
+		 */
+		public double getBoost()
+		{
+			return unboosted == 0 ? 1 : result.getScore() / unboosted;
+		}
+
+		/**
+		 * toString - Returns the breakdown as a few lines of text, one per word
+		 *
+		 * @return Returns the breakdown as text
+		 */
+		@Override
+		public String toString()
+		{
+			StringBuilder builder = new StringBuilder();
+			builder.append(String.format("%s: score %.8f, %d %s in %d words", result.getLocation(), result.getScore(),
+					result.getNumMatches(), result.getNumMatches() == 1 ? "match" : "matches", words));
+
+			for (Term term : terms)
+			{
+				builder.append(System.lineSeparator()).append("     ").append(term);
+			}
+
+			double boost = getBoost();
+
+			if (Math.abs(boost - 1) > 1e-9)
+			{
+				builder.append(System.lineSeparator()).append(String.format("     proximity boost x%.4f", boost));
+			}
+
+			return builder.toString();
+		}
+	}
+
+	/**
+	 * Term - One word of the query found in the location of a result
+	 */
+	public static class Term
+	{
+		/**
+		 * word - The word of the inverted index
+		 */
+		private final String word;
+
+		/**
+		 * frequency - The number of times the word appears in the location
+		 */
+		private final int frequency;
+
+		/**
+		 * score - The score the word adds to the location
+		 */
+		private final double score;
+
+		/**
+		 * Initializes one word of a score breakdown
+		 *
+		 * @param word - The word of the inverted index
+		 * @param frequency - The number of times the word appears in the location
+		 * @param score - The score the word adds to the location
+		 */
+		public Term(String word, int frequency, double score)
+		{
+			this.word = word;
+			this.frequency = frequency;
+			this.score = score;
+		}
+
+		/**
+		 * getWord - Returns the word of the inverted index
+		 *
+		 * @return Returns the word
+		 */
+		public String getWord()
+		{
+			return word;
+		}
+
+		/**
+		 * getFrequency - Returns the number of times the word appears in the location
+		 *
+		 * @return Returns the frequency of the word
+		 */
+		public int getFrequency()
+		{
+			return frequency;
+		}
+
+		/**
+		 * getScore - Returns the score the word adds to the location
+		 *
+		 * @return Returns the score of the word
+		 */
+		public double getScore()
+		{
+			return score;
+		}
+
+		/**
+		 * toString - Returns the word as one line of text
+		 *
+		 * @return Returns the word as text
+		 */
+		@Override
+		public String toString()
+		{
+			return String.format("%s: %d %s, %.8f", word, frequency, frequency == 1 ? "time" : "times", score);
+		}
+	}
+}
@@ -0,0 +1,125 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	SearchPage - One page of search results in ranked order, along with the cursor of the next page and
+ *				 whether the search ran out of budget before finding every match
+ */
+public class SearchPage
+{
+	/**
+	 * results - The results of the page in ranked order
+	 */
+	private final List<InvertedIndex.SearchResult> results;
+
+	/**
+	 * next - The cursor of the next page, or null if this is the last page
+	 */
+	private final SearchCursor next;
+
+	/**
+	 * truncated - Whether the search stopped early because it ran out of budget
+	 */
+	private final boolean truncated;
+
+	/**
+	 * Initializes a page of search results
+	 *
+	 * @param results - The results of the page in ranked order
+	 * @param next - The cursor of the next page, or null if this is the last page
+	 */
+	public SearchPage(List<InvertedIndex.SearchResult> results, SearchCursor next)
+	{
+		this(results, next, false);
+	}
+
+	/**
+	 * Initializes a page of search results that may be truncated
+	 *
+	 * @param results - The results of the page in ranked order
+	 * @param next - The cursor of the next page, or null if this is the last page
+	 * @param truncated - Whether the search stopped early because it ran out of budget
+	 */
+	public SearchPage(List<InvertedIndex.SearchResult> results, SearchCursor next, boolean truncated)
+	{
+		this.results = Collections.unmodifiableList(results);
+		this.next = next;
+		this.truncated = truncated;
+	}
+
+	/**
+	 * of - Returns a page of an already ranked list of results
+	 *
+	 * @param ranked - The results in ranked order, starting from the best result
+	 * @param offset - The number of results on the previous pages
+	 * @param size - The maximum number of results in the page
+	 * @param version - The version of the inverted index the results were ranked from
+	 * @return Returns the page of results starting at the offset
+	 */
+	public static SearchPage of(List<InvertedIndex.SearchResult> ranked, int offset, int size, long version)
+	{
+		return of(ranked, offset, size, version, false);
+	}
+
+	/**
+	 * of - Returns a page of an already ranked list of results that may be truncated
+	 *
+	 * @param ranked - The results in ranked order, starting from the best result
+	 * @param offset - The number of results on the previous pages
+	 * @param size - The maximum number of results in the page
+	 * @param version - The version of the inverted index the results were ranked from
+	 * @param truncated - Whether the search stopped early because it ran out of budget
+	 * @return Returns the page of results starting at the offset
+	 */
+	public static SearchPage of(List<InvertedIndex.SearchResult> ranked, int offset, int size, long version, boolean truncated)
+	{
+		int start = Math.min(offset, ranked.size());
+		int end = (int) Math.min((long) offset + size, ranked.size());
+		SearchCursor next = end < ranked.size() ? new SearchCursor(version, end, ranked.get(end - 1)) : null;
+
+		return new SearchPage(ranked.subList(start, end), next, truncated);
+	}
+
+	/**
+	 * getResults - Returns an unmodifiable view of the results of the page
+	 *
+	 * @return Returns an unmodifiable view of the results in ranked order
+	 */
+	public List<InvertedIndex.SearchResult> getResults()
+	{
+		return results;
+	}
+
+	/**
+	 * getNext - Returns the cursor of the next page
+	 *
+	 * @return Returns the cursor of the next page, or null if this is the last page
+	 */
+	public SearchCursor getNext()
+	{
+		return next;
+	}
+
+	/**
+	 * isTruncated - Returns true if the search stopped early because it ran out of budget, so the page
+	 * 				 holds the best results found before it stopped
+	 *
+	 * @return Returns true if the results may be missing matches
+	 */
+	public boolean isTruncated()
+	{
+		return truncated;
+	}
+
+	/**
+	 * hasNext - Returns true if there are more results after this page
+	 *
+	 * @return Returns true if there are more results after this page
+	 */
+	public boolean hasNext()
+	{
+		return next != null;
+	}
+}
@@ -0,0 +1,180 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import opennlp.tools.stemmer.Stemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	SearchQuery - A query line parsed into its unique stems and its quoted phrases. Phrases keep the
+ *				  order of their stems so they can be matched against consecutive word positions.
+ */
+public class SearchQuery
+{
+	/**
+	 * PHRASE_REGEX - Regular expression that matches a quoted phrase
+	 */
+	private static final Pattern PHRASE_REGEX = Pattern.compile("\"([^\"]*)\"");
+
+	/**
+	 * WILDCARD_REGEX - Regular expression that matches a word containing a '*' wildcard
+	 */
+	private static final Pattern WILDCARD_REGEX = Pattern.compile("(?U)\\S*\\*\\S*");
+
+	/**
+	 * stems - The unique, sorted stems found outside of quotes, along with the wildcard patterns
+	 */
+	private final Set<String> stems;
+
+	/**
+	 * phrases - The unique phrases of two or more stems, keyed by their quoted form
+	 */
+	private final Map<String, List<String>> phrases;
+
+	/**
+	 * Parses a query line using the default stemmer
+	 *
+	 * @param line - The query line
+	 */
+	public SearchQuery(String line)
+	{
+		this(line, new SnowballStemmer(TextStemmer.ENGLISH));
+	}
+
+	/**
+	 * Parses a query line. A quoted phrase with a single word is treated like any other word. A word
+	 * outside of quotes containing '*' is kept as a wildcard pattern matched against the stems of the
+	 * inverted index, so it is cleaned but not stemmed.
+	 *
+	 * @param line - The query line
+	 * @param stemmer - The stemmer to use
+	 */
+	public SearchQuery(String line, Stemmer stemmer)
+	{
+		this.stems = new TreeSet<String>();
+		this.phrases = new TreeMap<String, List<String>>();
+
+		Matcher matcher = PHRASE_REGEX.matcher(line);
+		StringBuilder rest = new StringBuilder();
+
+		while (matcher.find())
+		{
+			List<String> phrase = TextStemmer.listStems(matcher.group(1), stemmer);
+
+			if (phrase.size() == 1)
+			{
+				stems.add(phrase.get(0));
+			}
+
+			else if (phrase.size() > 1)
+			{
+				phrases.put("\"" + String.join(" ", phrase) + "\"", Collections.unmodifiableList(phrase));
+			}
+
+			matcher.appendReplacement(rest, " ");
+		}
+
+		matcher.appendTail(rest);
+
+		matcher = WILDCARD_REGEX.matcher(rest.toString());
+		StringBuilder words = new StringBuilder();
+
+		while (matcher.find())
+		{
+			String pattern = wildcard(matcher.group());
+
+			if (pattern != null)
+			{
+				stems.add(pattern);
+			}
+
+			matcher.appendReplacement(words, " ");
+		}
+
+		matcher.appendTail(words);
+		TextStemmer.stemLine(words.toString(), stemmer, stems);
+	}
+
+	/**
+	 * wildcard - Cleans the letters of a wildcard pattern and merges consecutive wildcards
+	 *
+	 * @param word - The word containing wildcards
+	 * @return Returns the cleaned pattern, or null if it has no letters and would match every word
+	 */
+	private static String wildcard(String word)
+	{
+		String[] pieces = word.split("\\*+", -1);
+
+		for (int i = 0; i < pieces.length; i++)
+		{
+			pieces[i] = TextParser.clean(pieces[i]);
+		}
+
+		String pattern = String.join("*", pieces).replaceAll("\\*+", "*");
+		return pattern.replace("*", "").isEmpty() ? null : pattern;
+	}
+
+	/**
+	 * getStems - Returns an unmodifiable view of the unique, sorted stems found outside of quotes, along
+	 * 			  with the wildcard patterns
+	 *
+	 * @return Returns an unmodifiable view of the stems
+	 */
+	public Set<String> getStems()
+	{
+		return Collections.unmodifiableSet(stems);
+	}
+
+	/**
+	 * getPhrases - Returns the phrases of the query, each as a list of stems in their original order
+	 *
+	 * @return Returns an unmodifiable list of the phrases
+	 */
+	public List<List<String>> getPhrases()
+	{
+		return Collections.unmodifiableList(new ArrayList<List<String>>(phrases.values()));
+	}
+
+	/**
+	 * hasPhrases - Returns true if the query has at least one phrase
+	 *
+	 * @return Returns true if the query has at least one phrase
+	 */
+	public boolean hasPhrases()
+	{
+		return !phrases.isEmpty();
+	}
+
+	/**
+	 * isEmpty - Returns true if the query has no stems or phrases
+	 *
+	 * @return Returns true if the query has no stems or phrases
+	 */
+	public boolean isEmpty()
+	{
+		return stems.isEmpty() && phrases.isEmpty();
+	}
+
+	/**
+	 * toString - Returns the normalized form of the query used to store its results. Stems are joined
+	 * 			  by spaces and followed by the quoted phrases, so a query without phrases is just its
+	 * 			  joined stems.
+	 *
+	 * @return Returns the normalized form of the query
+	 */
+	@Override
+	public String toString()
+	{
+		List<String> parts = new ArrayList<String>(stems);
+		parts.addAll(phrases.keySet());
+		return String.join(" ", parts);
+	}
+}
@@ -0,0 +1,1035 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	ShardedInvertedIndex - An inverted index split into shards by location, each with its own lock and its
+ *						   own worker thread. Every location lives in exactly one shard, so writes to different
+ *						   shards never wait on each other. A search is scattered to every shard and the ranked
+ *						   results of the shards are merged into the k best results. Before scoring, the
+ *						   statistics of every shard are added up, so each shard scores its locations with the
+ *						   statistics of the whole collection and the merged ranking matches the ranking of a
+ *						   single inverted index. Shards only exchange plain statistics and ranked results.
+ *
+ *						   With proximity, the PROXIMITY_CANDIDATES best results of the whole collection are
+ *						   boosted by the shards holding them, using the query words matched in any shard.
+ */
+public class ShardedInvertedIndex extends ThreadSafeInvertedIndex
+{
+	/**
+	 * DEFAULT_SHARDS - The default number of shards
+	 */
+	public static final int DEFAULT_SHARDS = 4;
+
+	/**
+	 * shards - The shards holding the locations
+	 */
+	private final ThreadSafeInvertedIndex[] shards;
+
+	/**
+	 * workers - The worker thread of each shard
+	 */
+	private final WorkQueue[] workers;
+
+	/**
+	 * shutdown - Whether the worker threads were shut down, so shards are searched on the calling thread
+	 */
+	private volatile boolean shutdown;
+
+	/**
+	 * Initializes an inverted index split into the default number of shards
+	 */
+	public ShardedInvertedIndex()
+	{
+		this(DEFAULT_SHARDS);
+	}
+
+	/**
+	 * Initializes an inverted index split into shards
+	 *
+	 * @param numShards - The number of shards, at least 1
+	 */
+	public ShardedInvertedIndex(int numShards)
+	{
+		super();
+		numShards = Math.max(1, numShards);
+		this.shards = new ThreadSafeInvertedIndex[numShards];
+		this.workers = new WorkQueue[numShards];
+		this.shutdown = false;
+
+		for (int i = 0; i < numShards; i++)
+		{
+			shards[i] = new ThreadSafeInvertedIndex();
+			workers[i] = new WorkQueue(1);
+		}
+	}
+
+	/**
+	 * shutdown - Shuts down the worker threads once no more searches are scattered to them. Later searches
+	 * 			  still work, but search the shards one after another on the calling thread.
+	 */
+	public void shutdown()
+	{
+		shutdown = true;
+
+		for (WorkQueue worker : workers)
+		{
+			worker.shutdown();
+		}
+	}
+
+	/**
+	 * numShards - Returns the number of shards
+	 *
+	 * @return Returns the number of shards
+	 */
+	public int numShards()
+	{
+		return shards.length;
+	}
+
+	/**
+	 * indexOf - Returns the shard a location belongs to
+	 *
+	 * @param location - The location
+	 * @return Returns the index of the shard holding the location
+	 */
+	private int indexOf(String location)
+	{
+		return Math.floorMod(location.hashCode(), shards.length);
+	}
+
+	/**
+	 * shard - Returns the shard a location belongs to
+	 *
+	 * @param location - The location
+	 * @return Returns the shard holding the location
+	 */
+	private ThreadSafeInvertedIndex shard(String location)
+	{
+		return shards[indexOf(location)];
+	}
+
+	/**
+	 * scatter - Runs a task that is not part of a search on every shard, each on the worker thread of its
+	 * 			 shard, and waits for all of them
+	 *
+	 * @param <T> - The type of the result of the task
+	 * @param task - The task, given the index of the shard to run on
+	 * @return Returns the result of the task on each shard, in shard order
+	 */
+	private <T> List<T> scatter(IntFunction<T> task)
+	{
+		return scatter(new SearchContext(), (i, part) -> task.apply(i));
+	}
+
+	/**
+	 * scatter - Runs a search on every shard, each on the worker thread of its shard, and waits for all of
+	 * 			 them. The search is split into one part for each shard, so the shards record into the same
+	 * 			 explanation and each is charged to its part of the budget, which is charged back to the
+	 * 			 budget once every shard is done.
+	 *
+	 * @param <T> - The type of the result of the task
+	 * @param context - The state of the search
+	 * @param task - The task, given the index of the shard to run on and the state of its part of the search
+	 * @return Returns the result of the task on each shard, in shard order
+	 *
+	 * @see SearchContext#split(int)
+	 */
+	private <T> List<T> scatter(SearchContext context, BiFunction<Integer, SearchContext, T> task)
+	{
+		List<SearchContext> parts = context.split(shards.length);
+		List<CompletableFuture<T>> futures = new ArrayList<CompletableFuture<T>>(shards.length);
+
+		for (int i = 0; i < shards.length; i++)
+		{
+			CompletableFuture<T> future = new CompletableFuture<T>();
+			futures.add(future);
+
+			int shard = i;
+			Supplier<T> part = () -> task.apply(shard, parts.get(shard));
+
+			if (shutdown)
+			{
+				run(part, future);
+			}
+
+			else
+			{
+				workers[i].execute(() -> run(part, future));
+			}
+		}
+
+		List<T> results = new ArrayList<T>(shards.length);
+
+		for (CompletableFuture<T> future : futures)
+		{
+			results.add(future.join());
+		}
+
+		context.join(parts);
+		return results;
+	}
+
+	/**
+	 * run - Runs a task on one shard, completing its future with the result or the failure
+	 *
+	 * @param <T> - The type of the result of the task
+	 * @param task - The task of the shard
+	 * @param future - The future to complete
+	 */
+	private static <T> void run(Supplier<T> task, CompletableFuture<T> future)
+	{
+		try
+		{
+			future.complete(task.get());
+		}
+
+		catch (RuntimeException | Error e)
+		{
+			future.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * statistics - Adds up the statistics of every shard for a set of queries, unless the scorer does not
+	 * 				depend on collection statistics
+	 *
+	 * @param queries - The parsed queries
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param context - The state of the search
+	 * @return Returns the statistics of the whole collection, or null if the scorer does not use them
+	 */
+	private CollectionStatistics statistics(Collection<SearchQuery> queries, boolean exactSearch, Scorer scorer, SearchContext context)
+	{
+		return scorer == Scorer.MATCHES ? null : collect(queries, exactSearch, context);
+	}
+
+	/**
+	 * merge - Merges the ranked results of every shard into the k best results
+	 *
+	 * @param ranked - The results of each shard in ranked order
+	 * @param k - The maximum number of results to return
+	 * @return Returns a list of at most k results in ranked order
+	 */
+	private static ArrayList<InvertedIndex.SearchResult> merge(List<? extends List<InvertedIndex.SearchResult>> ranked, int k)
+	{
+		PriorityQueue<Head> heads = new PriorityQueue<Head>();
+		long total = 0;
+
+		for (List<InvertedIndex.SearchResult> results : ranked)
+		{
+			Iterator<InvertedIndex.SearchResult> rest = results.iterator();
+			total += results.size();
+
+			if (rest.hasNext())
+			{
+				heads.add(new Head(rest.next(), rest));
+			}
+		}
+
+		ArrayList<InvertedIndex.SearchResult> merged = new ArrayList<InvertedIndex.SearchResult>((int) Math.min(k, total));
+
+		while (!heads.isEmpty() && merged.size() < k)
+		{
+			Head head = heads.poll();
+			merged.add(head.result);
+
+			if (head.rest.hasNext())
+			{
+				head.result = head.rest.next();
+				heads.add(head);
+			}
+		}
+
+		return merged;
+	}
+
+	/**
+	 * Head - The best result of one shard not merged yet, along with the rest of its results
+	 */
+	private static class Head implements Comparable<Head>
+	{
+		/**
+		 * result - The best result not merged yet
+		 */
+		private InvertedIndex.SearchResult result;
+
+		/**
+		 * rest - The results ranked after it
+		 */
+		private final Iterator<InvertedIndex.SearchResult> rest;
+
+		/**
+		 * Initializes the head of the results of a shard
+		 *
+		 * @param result - The best result not merged yet
+		 * @param rest - The results ranked after it
+		 */
+		private Head(InvertedIndex.SearchResult result, Iterator<InvertedIndex.SearchResult> rest)
+		{
+			this.result = result;
+			this.rest = rest;
+		}
+
+		@Override
+		public int compareTo(Head other)
+		{
+			return result.compareTo(other.result);
+		}
+	}
+
+	@Override
+	public ArrayList<InvertedIndex.SearchResult> exactSearch(Set<String> lineQuery)
+	{
+		return merge(scatter(i -> shards[i].exactSearch(lineQuery)), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public ArrayList<InvertedIndex.SearchResult> partialSearch(Set<String> lineQuery)
+	{
+		return merge(scatter(i -> shards[i].partialSearch(lineQuery)), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public ArrayList<InvertedIndex.SearchResult> search(Set<String> lineQuery, boolean exactSearch, boolean conjunctive)
+	{
+		return merge(scatter(i -> shards[i].search(lineQuery, exactSearch, conjunctive)), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public ArrayList<InvertedIndex.SearchResult> search(Set<String> lineQuery, boolean exactSearch, boolean conjunctive, int k)
+	{
+		return merge(scatter(i -> shards[i].search(lineQuery, exactSearch, conjunctive, k)), k);
+	}
+
+	@Override
+	ArrayList<InvertedIndex.SearchResult> search(SearchQuery query, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, int k, SearchContext context)
+	{
+		List<List<String>> terms = proximity ? proximityTerms(query, exactSearch, context) : List.of();
+
+		if (terms.size() < 2)
+		{
+			return rank(query, exactSearch, conjunctive, scorer, k, context);
+		}
+
+		ArrayList<InvertedIndex.SearchResult> results = rank(query, exactSearch, conjunctive, scorer, Math.max(k, PROXIMITY_CANDIDATES), context);
+		boost(results.subList(0, Math.min(results.size(), PROXIMITY_CANDIDATES)), terms);
+
+		if (results.size() > k)
+		{
+			results.subList(k, results.size()).clear();
+		}
+
+		return results;
+	}
+
+	/**
+	 * rank - Merges the k best results of every shard, scored with the statistics of the whole collection
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param k - The maximum number of results to return
+	 * @param context - The state of the search
+	 * @return Returns a list of at most k results in ranked order
+	 */
+	private ArrayList<InvertedIndex.SearchResult> rank(SearchQuery query, boolean exactSearch, boolean conjunctive, Scorer scorer, int k, SearchContext context)
+	{
+		CollectionStatistics statistics = statistics(List.of(query), exactSearch, scorer, context);
+
+		List<ArrayList<InvertedIndex.SearchResult>> ranked = scatter(context, (i, part) ->
+				shards[i].search(query, exactSearch, conjunctive, false, scorer, k, part.withStatistics(statistics)));
+
+		return merge(ranked, k);
+	}
+
+	/**
+	 * proximityTerms - Returns the words of every shard matched by each query word and phrase word, skipping
+	 * 					query words that match nothing in any shard
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param context - The state of the search
+	 * @return Returns a list containing the matching words of each query word
+	 */
+	private List<List<String>> proximityTerms(SearchQuery query, boolean exactSearch, SearchContext context)
+	{
+		List<List<String>> terms = new ArrayList<List<String>>();
+
+		for (List<String> keys : matchedTerms(query, exactSearch, context))
+		{
+			if (!keys.isEmpty())
+			{
+				terms.add(keys);
+			}
+		}
+
+		return terms;
+	}
+
+	@Override
+	List<List<String>> matchedTerms(SearchQuery query, boolean exactSearch, SearchContext context)
+	{
+		List<List<List<String>>> matched = scatter(context, (i, part) -> shards[i].matchedTerms(query, exactSearch, part));
+		List<List<String>> terms = new ArrayList<List<String>>();
+
+		for (int i = 0; i < matched.get(0).size(); i++)
+		{
+			TreeSet<String> keys = new TreeSet<String>();
+
+			for (List<List<String>> shard : matched)
+			{
+				keys.addAll(shard.get(i));
+			}
+
+			terms.add(new ArrayList<String>(keys));
+		}
+
+		return terms;
+	}
+
+	/**
+	 * boost - Boosts the results whose query words appear close together, each by the shard holding its
+	 * 		   location, and sorts them again
+	 *
+	 * @param candidates - The results to boost
+	 * @param terms - The words of the query, each as the list of words it matches in any shard
+	 */
+	@Override
+	public void boost(List<InvertedIndex.SearchResult> candidates, List<List<String>> terms)
+	{
+		List<List<InvertedIndex.SearchResult>> groups = new ArrayList<List<InvertedIndex.SearchResult>>(shards.length);
+
+		for (int i = 0; i < shards.length; i++)
+		{
+			groups.add(new ArrayList<InvertedIndex.SearchResult>());
+		}
+
+		for (InvertedIndex.SearchResult result : candidates)
+		{
+			groups.get(indexOf(result.getLocation())).add(result);
+		}
+
+		scatter(i ->
+		{
+			shards[i].boost(groups.get(i), terms);
+			return null;
+		});
+
+		Collections.sort(candidates);
+	}
+
+	/**
+	 * breakdown - Returns how the score of each result adds up, each computed by the shard holding its location
+	 * 			   with the statistics of the whole collection
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param scorer - The scorer used to rank the results
+	 * @param results - Results of locations of any shard
+	 * @param context - The state of the search
+	 * @return Returns the score breakdown of every result, in the order of the results
+	 */
+	@Override
+	List<SearchExplanation.Result> breakdown(SearchQuery query, boolean exactSearch, Scorer scorer, List<InvertedIndex.SearchResult> results, SearchContext context)
+	{
+		CollectionStatistics statistics = statistics(List.of(query), exactSearch, scorer, context);
+		List<List<InvertedIndex.SearchResult>> groups = new ArrayList<List<InvertedIndex.SearchResult>>(shards.length);
+
+		for (int i = 0; i < shards.length; i++)
+		{
+			groups.add(new ArrayList<InvertedIndex.SearchResult>());
+		}
+
+		for (InvertedIndex.SearchResult result : results)
+		{
+			groups.get(indexOf(result.getLocation())).add(result);
+		}
+
+		List<List<SearchExplanation.Result>> parts = scatter(context, (i, part) ->
+				shards[i].breakdown(query, exactSearch, scorer, groups.get(i), part.withStatistics(statistics)));
+
+		List<Iterator<SearchExplanation.Result>> explained = new ArrayList<Iterator<SearchExplanation.Result>>(parts.size());
+
+		for (List<SearchExplanation.Result> part : parts)
+		{
+			explained.add(part.iterator());
+		}
+
+		List<SearchExplanation.Result> breakdown = new ArrayList<SearchExplanation.Result>(results.size());
+
+		for (InvertedIndex.SearchResult result : results)
+		{
+			breakdown.add(explained.get(indexOf(result.getLocation())).next());
+		}
+
+		return breakdown;
+	}
+
+	/**
+	 * search - Returns one page of the results of a query. Every shard resumes after the
+	 * 			result of the cursor, so each returns at most one page and the best of them make up the page.
+	 * 			With proximity, the PROXIMITY_CANDIDATES best results of the whole collection are boosted the
+	 * 			same way a single inverted index boosts them.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param proximity - Boosts results whose query words appear close together if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param cursor - The cursor returned with the previous page, or null for the first page
+	 * @param size - The maximum number of results in the page
+	 * @param context - The state of the search
+	 *
+	 * @return Returns the page of results along with the cursor of the next page
+	 */
+	@Override
+	SearchPage search(SearchQuery query, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, SearchCursor cursor, int size, SearchContext context)
+	{
+		if (size <= 0)
+		{
+			return new SearchPage(new ArrayList<InvertedIndex.SearchResult>(), null);
+		}
+
+		size = Math.min(size, Integer.MAX_VALUE - 1);
+		long version = getVersion();
+		int offset = cursor == null ? 0 : cursor.getOffset();
+
+		List<List<String>> terms = proximity ? proximityTerms(query, exactSearch, context) : List.of();
+
+		if (terms.size() < 2 || offset >= PROXIMITY_CANDIDATES)
+		{
+			return page(query, exactSearch, conjunctive, scorer, cursor, offset, size, version, context);
+		}
+
+		ArrayList<InvertedIndex.SearchResult> candidates = rank(query, exactSearch, conjunctive, scorer, PROXIMITY_CANDIDATES, context);
+		SearchCursor next = candidates.isEmpty() ? null : new SearchCursor(version, offset + size, candidates.get(candidates.size() - 1));
+		boost(candidates, terms);
+
+		ArrayList<InvertedIndex.SearchResult> results = new ArrayList<InvertedIndex.SearchResult>(candidates.subList(Math.min(offset, candidates.size()), Math.min(offset + size, candidates.size())));
+		boolean more = candidates.size() > offset + size;
+
+		if (candidates.size() == PROXIMITY_CANDIDATES && !more)
+		{
+			int remaining = size - results.size();
+			SearchPage rest = page(query, exactSearch, conjunctive, scorer, next, offset + results.size(), Math.max(1, remaining), version, context);
+
+			if (remaining == 0)
+			{
+				more = !rest.getResults().isEmpty();
+			}
+
+			else
+			{
+				results.addAll(rest.getResults());
+				more = rest.hasNext();
+				next = rest.getResults().isEmpty() ? next : rest.getNext();
+			}
+		}
+
+		return new SearchPage(results, more ? next : null);
+	}
+
+	/**
+	 * page - Returns one page of the results of a query without proximity, merged from one page of every shard
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param cursor - The cursor of the result to resume after, or null to start from the best result
+	 * @param offset - The number of results before the page
+	 * @param size - The maximum number of results in the page
+	 * @param version - The version of the inverted index
+	 * @param context - The state of the search
+	 * @return Returns the page of results along with the cursor of the next page
+	 */
+	private SearchPage page(SearchQuery query, boolean exactSearch, boolean conjunctive, Scorer scorer, SearchCursor cursor, int offset, int size, long version, SearchContext context)
+	{
+		CollectionStatistics statistics = statistics(List.of(query), exactSearch, scorer, context);
+
+		List<SearchPage> pages = scatter(context, (i, part) ->
+				shards[i].search(query, exactSearch, conjunctive, false, scorer, cursor, size, part.withStatistics(statistics)));
+
+		List<List<InvertedIndex.SearchResult>> ranked = new ArrayList<List<InvertedIndex.SearchResult>>(pages.size());
+		boolean more = false;
+
+		for (SearchPage page : pages)
+		{
+			ranked.add(page.getResults());
+			more |= page.hasNext();
+		}
+
+		ArrayList<InvertedIndex.SearchResult> results = merge(ranked, size + 1);
+		more |= results.size() > size;
+
+		if (!more)
+		{
+			return new SearchPage(results, null);
+		}
+
+		results.subList(size, results.size()).clear();
+		return new SearchPage(results, new SearchCursor(version, offset + size, results.get(size - 1)));
+	}
+
+	@Override
+	Map<String, ArrayList<InvertedIndex.SearchResult>> search(Collection<SearchQuery> queries, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, SearchContext context)
+	{
+		CollectionStatistics statistics = statistics(queries, exactSearch, scorer, context);
+
+		List<Map<String, ArrayList<InvertedIndex.SearchResult>>> parts = scatter(context, (i, part) ->
+				shards[i].search(queries, exactSearch, conjunctive, false, scorer, part.withStatistics(statistics)));
+
+		Map<String, ArrayList<InvertedIndex.SearchResult>> results = new HashMap<String, ArrayList<InvertedIndex.SearchResult>>();
+
+		for (String joined : parts.get(0).keySet())
+		{
+			List<ArrayList<InvertedIndex.SearchResult>> ranked = new ArrayList<ArrayList<InvertedIndex.SearchResult>>(parts.size());
+
+			for (Map<String, ArrayList<InvertedIndex.SearchResult>> part : parts)
+			{
+				ranked.add(part.get(joined));
+			}
+
+			results.put(joined, merge(ranked, Integer.MAX_VALUE));
+		}
+
+		if (proximity)
+		{
+			Set<String> seen = new HashSet<String>();
+
+			for (SearchQuery query : queries)
+			{
+				List<List<String>> terms = seen.add(query.toString()) ? proximityTerms(query, exactSearch, context) : List.of();
+
+				if (terms.size() >= 2)
+				{
+					ArrayList<InvertedIndex.SearchResult> ranked = results.get(query.toString());
+					boost(ranked.subList(0, Math.min(ranked.size(), PROXIMITY_CANDIDATES)), terms);
+				}
+			}
+		}
+
+		return results;
+	}
+
+	@Override
+	CollectionStatistics collect(Collection<SearchQuery> queries, boolean exactSearch, SearchContext context)
+	{
+		return CollectionStatistics.sum(getVersion(), scatter(context, (i, part) -> shards[i].collect(queries, exactSearch, part)));
+	}
+
+	/**
+	 * plan - Plans how a query is evaluated on every shard. The combined plan uses the most expensive
+	 * 		  strategy of the shards, and adds up the postings and the estimated cost of every shard. The
+	 * 		  number of words a step expands to is the largest of any shard.
+	 *
+	 * @param query - The parsed query
+	 * @param exactSearch - Performs an exact search of the words outside of phrases if true
+	 * @param conjunctive - Only matches locations containing every query word if true
+	 * @param scorer - The scorer used to rank the matching locations
+	 * @param k - The maximum number of results to return
+	 * @param context - The state of the search
+	 * @return Returns the combined plan of the shards
+	 */
+	@Override
+	QueryPlan plan(SearchQuery query, boolean exactSearch, boolean conjunctive, Scorer scorer, int k, SearchContext context)
+	{
+		List<QueryPlan> plans = scatter(context, (i, part) -> shards[i].plan(query, exactSearch, conjunctive, scorer, k, part));
+
+		QueryPlan costliest = plans.get(0);
+		Map<String, QueryPlan.Step> steps = new HashMap<String, QueryPlan.Step>();
+		TreeSet<String> keys = new TreeSet<String>();
+		long cost = 0;
+
+		for (QueryPlan plan : plans)
+		{
+			if (plan.getCost() > costliest.getCost())
+			{
+				costliest = plan;
+			}
+
+			for (QueryPlan.Step step : plan.getSteps())
+			{
+				steps.merge(step.getText(), step, (a, b) -> new QueryPlan.Step(a.getText(), a.isPhrase(),
+						Math.max(a.getWords(), b.getWords()), a.getPostings() + b.getPostings(), a.isCached() && b.isCached()));
+			}
+
+			keys.addAll(plan.getKeys());
+			cost += plan.getCost();
+		}
+
+		List<QueryPlan.Step> ordered = new ArrayList<QueryPlan.Step>(steps.values());
+		ordered.sort((a, b) -> Long.compare(a.getPostings(), b.getPostings()));
+
+		return new QueryPlan(costliest.getStrategy(), ordered, new ArrayList<String>(keys), cost);
+	}
+
+	@Override
+	public void add(String stem, String location, int position)
+	{
+		shard(location).add(stem, location, position);
+	}
+
+	/**
+	 * addAll - Adds all the elements of another inverted index, each location to its own shard. An inverted
+	 * 			index of a single file or web page is added to its shard as a whole.
+	 *
+	 * @param other - The other inverted index to copy from
+	 */
+	@Override
+	public void addAll(InvertedIndex other)
+	{
+		Set<String> locations = other.getDocuments();
+		int first = locations.isEmpty() ? 0 : indexOf(locations.iterator().next());
+		boolean single = true;
+
+		for (String location : locations)
+		{
+			single &= indexOf(location) == first;
+		}
+
+		if (single)
+		{
+			shards[first].addAll(other);
+			return;
+		}
+
+		InvertedIndex[] parts = new InvertedIndex[shards.length];
+
+		for (String word : other.getWords())
+		{
+			for (String location : other.getLocations(word))
+			{
+				int i = indexOf(location);
+
+				if (parts[i] == null)
+				{
+					parts[i] = new InvertedIndex();
+				}
+
+				for (int position : other.getPositions(word, location))
+				{
+					parts[i].add(word, location, position);
+				}
+			}
+		}
+
+		for (int i = 0; i < shards.length; i++)
+		{
+			if (parts[i] != null)
+			{
+				shards[i].addAll(parts[i]);
+			}
+		}
+	}
+
+	@Override
+	public boolean remove(String location)
+	{
+		return shard(location).remove(location);
+	}
+
+	@Override
+	public void replace(String location, InvertedIndex other)
+	{
+		Set<String> locations = other.getDocuments();
+
+		if (locations.stream().allMatch(found -> indexOf(found) == indexOf(location)))
+		{
+			shard(location).replace(location, other);
+		}
+
+		else
+		{
+			shard(location).replace(location, new InvertedIndex());
+			addAll(other);
+		}
+	}
+
+	@Override
+	public void purge()
+	{
+		for (ThreadSafeInvertedIndex shard : shards)
+		{
+			shard.purge();
+		}
+	}
+
+	@Override
+	public long getVersion()
+	{
+		long version = 0;
+
+		for (ThreadSafeInvertedIndex shard : shards)
+		{
+			version += shard.getVersion();
+		}
+
+		return version;
+	}
+
+	@Override
+	public void freeze()
+	{
+		scatter(i ->
+		{
+			shards[i].freeze();
+			return null;
+		});
+	}
+
+	@Override
+	public void setPrefixLength(int length)
+	{
+		scatter(i ->
+		{
+			shards[i].setPrefixLength(length);
+			return null;
+		});
+	}
+
+	@Override
+	public void setMaxEdits(int edits)
+	{
+		for (ThreadSafeInvertedIndex shard : shards)
+		{
+			shard.setMaxEdits(edits);
+		}
+	}
+
+	/**
+	 * prefixReport - Returns a report of the size of the prefix table of every shard
+	 *
+	 * @return Returns a report of the size of the prefix tables, one line per shard
+	 */
+	@Override
+	public String prefixReport()
+	{
+		List<String> reports = new ArrayList<String>(shards.length);
+
+		for (int i = 0; i < shards.length; i++)
+		{
+			reports.add(String.format("Shard %d: %s", i + 1, shards[i].prefixReport()));
+		}
+
+		return String.join(System.lineSeparator(), reports);
+	}
+
+	/**
+	 * prepareGrams - Builds the gram index of every shard that has not built one yet
+	 */
+	@Override
+	public void prepareGrams()
+	{
+		for (ThreadSafeInvertedIndex shard : shards)
+		{
+			shard.prepareGrams();
+		}
+	}
+
+	/**
+	 * gramReport - Returns a report of the size of the gram index of every shard that built one
+	 *
+	 * @return Returns a report of the size of the gram indexes, or null if no wildcard query built one yet
+	 */
+	@Override
+	public String gramReport()
+	{
+		List<String> reports = new ArrayList<String>(shards.length);
+
+		for (int i = 0; i < shards.length; i++)
+		{
+			String report = shards[i].gramReport();
+
+			if (report != null)
+			{
+				reports.add(String.format("Shard %d: %s", i + 1, report));
+			}
+		}
+
+		return reports.isEmpty() ? null : String.join(System.lineSeparator(), reports);
+	}
+
+	@Override
+	public Set<String> getDocuments()
+	{
+		TreeSet<String> documents = new TreeSet<String>();
+
+		for (ThreadSafeInvertedIndex shard : shards)
+		{
+			documents.addAll(shard.getDocuments());
+		}
+
+		return Collections.unmodifiableSet(documents);
+	}
+
+	@Override
+	public Set<String> getWords()
+	{
+		TreeSet<String> words = new TreeSet<String>();
+
+		for (ThreadSafeInvertedIndex shard : shards)
+		{
+			words.addAll(shard.getWords());
+		}
+
+		return Collections.unmodifiableSet(words);
+	}
+
+	@Override
+	public Set<String> getLocations(String key)
+	{
+		TreeSet<String> locations = new TreeSet<String>();
+
+		for (ThreadSafeInvertedIndex shard : shards)
+		{
+			locations.addAll(shard.getLocations(key));
+		}
+
+		return Collections.unmodifiableSet(locations);
+	}
+
+	@Override
+	public Set<Integer> getPositions(String key, String location)
+	{
+		return shard(location).getPositions(key, location);
+	}
+
+	@Override
+	public boolean containsWord(String key)
+	{
+		for (ThreadSafeInvertedIndex shard : shards)
+		{
+			if (shard.containsWord(key))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public boolean containsLocation(String key, String location)
+	{
+		return shard(location).containsLocation(key, location);
+	}
+
+	@Override
+	public boolean containsPosition(String key, String location, int position)
+	{
+		return shard(location).containsPosition(key, location, position);
+	}
+
+	@Override
+	public int sizeWords()
+	{
+		return getWords().size();
+	}
+
+	@Override
+	public int sizeLocations(String key)
+	{
+		int size = 0;
+
+		for (ThreadSafeInvertedIndex shard : shards)
+		{
+			size += shard.sizeLocations(key);
+		}
+
+		return size;
+	}
+
+	@Override
+	public int sizePositions(String key, String location)
+	{
+		return shard(location).sizePositions(key, location);
+	}
+
+	/**
+	 * merged - Copies the word stem entries of every shard into one nested map, purging removed locations first
+	 *
+	 * @return Returns the word stems of every shard mapped to their locations and positions
+	 */
+	private TreeMap<String, TreeMap<String, TreeSet<Integer>>> merged()
+	{
+		purge();
+		TreeMap<String, TreeMap<String, TreeSet<Integer>>> merged = new TreeMap<String, TreeMap<String, TreeSet<Integer>>>();
+
+		for (ThreadSafeInvertedIndex shard : shards)
+		{
+			for (String word : shard.getWords())
+			{
+				TreeMap<String, TreeSet<Integer>> locations = merged.computeIfAbsent(word, key -> new TreeMap<String, TreeSet<Integer>>());
+
+				for (String location : shard.getLocations(word))
+				{
+					locations.put(location, new TreeSet<Integer>(shard.getPositions(word, location)));
+				}
+			}
+		}
+
+		return merged;
+	}
+
+	@Override
+	public void indexToJson(Path output) throws IOException
+	{
+		JsonWriter.asNestedMap(merged(), output);
+	}
+
+	@Override
+	public void countsToJson(Path output) throws IOException
+	{
+		TreeMap<String, Integer> counts = new TreeMap<String, Integer>();
+
+		for (ThreadSafeInvertedIndex shard : shards)
+		{
+			for (String location : shard.getDocuments())
+			{
+				counts.put(location, shard.getCount(location));
+			}
+		}
+
+		JsonWriter.asObject(counts, output);
+	}
+
+	@Override
+	public boolean containsLocation(String location)
+	{
+		return shard(location).containsLocation(location);
+	}
+
+	@Override
+	public int getCount(String location)
+	{
+		return shard(location).getCount(location);
+	}
+
+	@Override
+	public String toString()
+	{
+		return JsonWriter.asNestedMap(merged());
+	}
+}
@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * @author Josh Guevarra
+ *
+ *	TermAtATimeEvaluator - Evaluates queries term-at-a-time: the posting arrays of every query word are read
+ *						   one word at a time, adding the matches and score of each location to an accumulator.
+ *						   Wide queries are split into ranges of locations scored side by side.
+ *
+ * @see QueryPlan.Strategy#TERM_AT_A_TIME
+ */
+class TermAtATimeEvaluator
+{
+	/**
+	 * PARALLEL_MIN_TERMS - The fewest words a query must expand to for it to be scored in parallel
+	 */
+	static final int PARALLEL_MIN_TERMS = 64;
+
+	/**
+	 * PARALLEL_MIN_POSTINGS - The fewest postings a query must read to be scored in parallel. Smaller
+	 * 						   queries finish sooner on the searching thread than it takes to hand them off.
+	 */
+	private static final long PARALLEL_MIN_POSTINGS = 1 << 16;
+
+	/**
+	 * index - The inverted index whose locations are scored
+	 */
+	private final InvertedIndex index;
+
+	/**
+	 * accumulators - The idle score accumulators of the inverted index
+	 */
+	private final AccumulatorPool accumulators;
+
+	/**
+	 * Initializes the evaluator of an inverted index
+	 *
+	 * @param index - The inverted index whose locations are scored
+	 * @param accumulators - The idle score accumulators of the inverted index
+	 */
+	public TermAtATimeEvaluator(InvertedIndex index, AccumulatorPool accumulators)
+	{
+		this.index = index;
+		this.accumulators = accumulators;
+	}
+
+	/**
+	 * accumulate - Adds the matches of every given word to an accumulator, along with their scores if a
+	 * 				scorer is given. When a wide query has enough postings to read, the locations are split
+	 * 				into ranges in location order, and every range but the first is scored by the fork/join
+	 * 				pool into an accumulator of its own while the searching thread scores the first one. Every
+	 * 				location is scored by a single range, which adds the scores of its words in query order,
+	 * 				so the scores are identical to the ones computed by the searching thread alone.
+	 *
+	 * @param accumulator - The accumulator of the searching thread
+	 * @param keys - The words to add
+	 * @param scorer - The scorer used to score the matches, or null to only count them
+	 * @param statistics - The collection statistics the word weights are computed from, or null to only count
+	 * @param norms - The document norms of the scorer, indexed by location ID
+	 * @param context - The state of the search, whose budget limits its time
+	 */
+	public void accumulate(Accumulator accumulator, List<String> keys, Scorer scorer, InvertedIndex.Statistics statistics, double[] norms, SearchContext context)
+	{
+		InvertedIndex.PostingLists lists = index.postings();
+		long postings = 0;
+		double[] weights = scorer == null ? null : new double[keys.size()];
+
+		for (int i = 0; i < keys.size(); i++)
+		{
+			postings += lists.get(keys.get(i)).ids.length;
+
+			if (weights != null)
+			{
+				weights[i] = statistics.weight(scorer, keys.get(i), context.getCollection());
+			}
+		}
+
+		int ranges = Math.min(Runtime.getRuntime().availableProcessors(), ForkJoinPool.getCommonPoolParallelism() + 1);
+		int numLocations = index.numLocations();
+
+		if (keys.size() < PARALLEL_MIN_TERMS || postings < PARALLEL_MIN_POSTINGS || ranges < 2)
+		{
+			accumulate(accumulator, lists, keys, 0, numLocations, scorer, weights, norms, context);
+			return;
+		}
+
+		List<ForkJoinTask<Accumulator>> tasks = new ArrayList<ForkJoinTask<Accumulator>>();
+		int capacity = index.numIds();
+
+		try
+		{
+			for (int range = 1; range < ranges; range++)
+			{
+				int from = (int) ((long) numLocations * range / ranges);
+				int to = (int) ((long) numLocations * (range + 1) / ranges);
+
+				tasks.add(ForkJoinPool.commonPool().submit(() ->
+				{
+					Accumulator spare = accumulators.borrow(capacity);
+					accumulate(spare, lists, keys, from, to, scorer, weights, norms, context);
+					return spare;
+				}));
+			}
+
+			accumulate(accumulator, lists, keys, 0, numLocations / ranges, scorer, weights, norms, context);
+		}
+
+		finally
+		{
+			// the other ranges must stop reading the index before the searching thread lets go of it
+			for (ForkJoinTask<Accumulator> task : tasks)
+			{
+				task.quietlyJoin();
+			}
+		}
+
+		for (ForkJoinTask<Accumulator> task : tasks)
+		{
+			Accumulator spare = task.join();
+			accumulator.merge(spare);
+			accumulators.release(spare, capacity);
+		}
+	}
+
+	/**
+	 * accumulate - Adds the matches of every given word in a range of locations to an accumulator, along
+	 * 				with their scores if a scorer is given
+	 *
+	 * @param accumulator - The accumulator to add to
+	 * @param lists - The posting arrays of the inverted index
+	 * @param keys - The words to add
+	 * @param from - The rank of the first location of the range
+	 * @param to - The rank after the last location of the range
+	 * @param scorer - The scorer used to score the matches, or null to only count them
+	 * @param weights - The weight of each word, or null to only count
+	 * @param norms - The document norms of the scorer, indexed by location ID
+	 * @param context - The state of the search, whose budget limits its time
+	 */
+	private static void accumulate(Accumulator accumulator, InvertedIndex.PostingLists lists, List<String> keys, int from, int to, Scorer scorer, double[] weights, double[] norms, SearchContext context)
+	{
+		long scored = 0;
+
+		for (int i = 0; i < keys.size(); i++)
+		{
+			Postings postings = lists.get(keys.get(i));
+			double weight = scorer == null ? 0 : weights[i];
+			int end = postings.seek(lists.ranks, to, 0);
+
+			for (int j = postings.seek(lists.ranks, from, 0); j < end; j++)
+			{
+				if (++scored % InvertedIndex.BUDGET_CHECK_INTERVAL == 0 && context.isExpired())
+				{
+					return;
+				}
+
+				int id = postings.ids[j];
+				int frequency = postings.frequencies[j];
+				accumulator.add(id, frequency, scorer == null ? 0 : scorer.score(frequency, weight, norms[id]));
+			}
+		}
+	}
+}
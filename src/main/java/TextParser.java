@@ -15,6 +15,28 @@ public class TextParser
 	/** Regular expression that matches non-alphabetic characters. **/
 	public static final Pattern CLEAN_REGEX = Pattern.compile("(?U)[^\\p{Alpha}\\p{Space}]+");
 
+	/**
+	 * Lookup table for the ASCII fast path. Letters map to their lowercase form,
+	 * whitespace (as matched by {@link #SPLIT_REGEX}) maps to itself, and every
+	 * other character maps to {@code 0} to indicate it should be removed.
+	 */
+	private static final char[] ASCII_TABLE = new char[128];
+
+	static
+	{
+		for (char c = 'a'; c <= 'z'; c++)
+		{
+			ASCII_TABLE[c] = c;
+			ASCII_TABLE[Character.toUpperCase(c)] = c;
+		}
+
+		// the unicode white space property only includes these ascii characters
+		for (char c : new char[] { ' ', '\t', '\n', '\u000B', '\f', '\r' })
+		{
+			ASCII_TABLE[c] = c;
+		}
+	}
+
 	/**
 	 * Cleans the text by removing any non-alphabetic characters (e.g. non-letters
 	 * like digits, punctuation, symbols, and diacritical marks like the umlaut)
@@ -25,12 +47,66 @@ public class TextParser
 	 */
 	public static String clean(String text) 
 	{
+		if (isAscii(text))
+		{
+			return cleanAscii(text);
+		}
+
 		String cleaned = Normalizer.normalize(text, Normalizer.Form.NFD);
 		cleaned = CLEAN_REGEX.matcher(cleaned).replaceAll("");
 		
 		return cleaned.toLowerCase();
 	}
 
+	/**
+	 * Determines whether the text only contains ASCII characters, in which case
+	 * normalization has no effect. The bits of every character are combined
+	 * without branching so the loop stays simple enough for the JIT to unroll
+	 * and vectorize.
+	 *
+	 * @param text the text to check
+	 * @return {@code true} if every character is in the ASCII range
+	 */
+	public static boolean isAscii(String text)
+	{
+		int bits = 0;
+
+		for (int i = 0; i < text.length(); i++)
+		{
+			bits |= text.charAt(i);
+		}
+
+		return bits < 128;
+	}
+
+	/**
+	 * Cleans pure ASCII text using a lookup table instead of normalizing and
+	 * matching regular expressions. Produces the same output as the unicode path
+	 * in {@link #clean(String)} for any ASCII input.
+	 *
+	 * @param text the ASCII text to clean
+	 * @return cleaned text
+	 *
+	 * @see #isAscii(String)
+	 */
+	private static String cleanAscii(String text)
+	{
+		char[] cleaned = new char[text.length()];
+		int length = 0;
+
+		for (int i = 0; i < text.length(); i++)
+		{
+			char mapped = ASCII_TABLE[text.charAt(i)];
+
+			if (mapped != 0)
+			{
+				cleaned[length++] = mapped;
+			}
+		}
+
+		return new String(cleaned, 0, length);
+	}
+
 	/**
 	 * Splits the supplied text by whitespaces.
 	 *
@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the ASCII fast path of {@link TextParser#clean(String)} against the
+ * unicode path it skips (NFD normalization followed by the unicode regex) on
+ * English text, and checks both produce the same output.
+ *
+ * Run with an optional text file to use its lines instead of the built-in
+ * sample, and an optional number of rounds:
+ *
+ * <pre>
+ * java -cp target/classes TextParserBenchmark [file] [rounds]
+ * </pre>
+ *
+ * @see TextParser#clean(String)
+ */
+public class TextParserBenchmark
+{
+	/** Sentences the built-in sample lines are drawn from. **/
+	private static final String[] SENTENCES = {
+			"The quick brown fox jumps over the lazy dog, again and again.",
+			"It was the best of times, it was the worst of times (1859).",
+			"Search engines build an inverted index from every word they crawl!",
+			"\"Hello, World\" is often the first program written in a new language.",
+			"Call me Ishmael. Some years ago - never mind how long precisely -",
+			"HTTP/1.1 200 OK; Content-Type: text/html; charset=UTF-8"
+	};
+
+	/** Number of sample lines built when no file is given. **/
+	private static final int SAMPLE_LINES = 10000;
+
+	/** Number of timed rounds when none is given. **/
+	private static final int DEFAULT_ROUNDS = 20;
+
+	/**
+	 * Cleans the text the way {@link TextParser#clean(String)} does for text that
+	 * is not plain ASCII.
+	 *
+	 * @param text the text to clean
+	 * @return cleaned text
+	 */
+	private static String cleanUnicode(String text)
+	{
+		String cleaned = Normalizer.normalize(text, Normalizer.Form.NFD);
+		cleaned = TextParser.CLEAN_REGEX.matcher(cleaned).replaceAll("");
+
+		return cleaned.toLowerCase();
+	}
+
+	/**
+	 * Builds sample lines of English text from {@link #SENTENCES}.
+	 *
+	 * @return the sample lines
+	 */
+	private static List<String> sample()
+	{
+		Random random = new Random(272);
+		List<String> lines = new ArrayList<>();
+
+		for (int i = 0; i < SAMPLE_LINES; i++)
+		{
+			lines.add(SENTENCES[random.nextInt(SENTENCES.length)] + " " + SENTENCES[random.nextInt(SENTENCES.length)]);
+		}
+
+		return lines;
+	}
+
+	/**
+	 * Times one pass over every line with the ASCII fast path or the unicode path.
+	 *
+	 * @param lines the lines to clean
+	 * @param fast whether to use {@link TextParser#clean(String)}
+	 * @return the average time per line, in nanoseconds
+	 */
+	private static double time(List<String> lines, boolean fast)
+	{
+		long length = 0;
+		long start = System.nanoTime();
+
+		for (String line : lines)
+		{
+			length += fast ? TextParser.clean(line).length() : cleanUnicode(line).length();
+		}
+
+		long elapsed = System.nanoTime() - start;
+
+		// keeps the results alive so the work is not optimized away
+		if (length < 0)
+		{
+			System.out.println(length);
+		}
+
+		return (double) elapsed / lines.size();
+	}
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args an optional text file followed by an optional number of rounds
+	 * @throws IOException if unable to read the text file
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		List<String> lines = args.length > 0 ? Files.readAllLines(Path.of(args[0]), StandardCharsets.UTF_8) : sample();
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+		int ascii = 0;
+
+		for (String line : lines)
+		{
+			if (!TextParser.clean(line).equals(cleanUnicode(line)))
+			{
+				throw new IllegalStateException("Output differs for: " + line);
+			}
+
+			ascii += TextParser.isAscii(line) ? 1 : 0;
+		}
+
+		// warm up both paths before timing them
+		for (int i = 0; i < rounds; i++)
+		{
+			time(lines, false);
+			time(lines, true);
+		}
+
+		double unicode = Double.MAX_VALUE;
+		double fast = Double.MAX_VALUE;
+
+		for (int i = 0; i < rounds; i++)
+		{
+			unicode = Math.min(unicode, time(lines, false));
+			fast = Math.min(fast, time(lines, true));
+		}
+
+		System.out.printf("%d lines (%d ASCII), best of %d rounds%n", lines.size(), ascii, rounds);
+		System.out.printf("unicode path: %8.1f ns/line%n", unicode);
+		System.out.printf("clean:        %8.1f ns/line (%.1fx)%n", fast, unicode / fast);
+	}
+}
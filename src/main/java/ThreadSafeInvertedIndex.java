@@ -1,6 +1,9 @@
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -40,6 +43,86 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 		}
 	}
 
+	@Override
+	public ArrayList<InvertedIndex.SearchResult> search(Set<String> lineQuery, boolean exactSearch, boolean conjunctive)
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			return super.search(lineQuery, exactSearch, conjunctive);
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public ArrayList<InvertedIndex.SearchResult> search(Set<String> lineQuery, boolean exactSearch, boolean conjunctive, int k)
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			return super.search(lineQuery, exactSearch, conjunctive, k);
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	ArrayList<InvertedIndex.SearchResult> search(SearchQuery query, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, int k, SearchContext context)
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			return super.search(query, exactSearch, conjunctive, proximity, scorer, k, context);
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	SearchPage search(SearchQuery query, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, SearchCursor cursor, int size, SearchContext context)
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			return super.search(query, exactSearch, conjunctive, proximity, scorer, cursor, size, context);
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	Map<String, ArrayList<InvertedIndex.SearchResult>> search(Collection<SearchQuery> queries, boolean exactSearch, boolean conjunctive, boolean proximity, Scorer scorer, SearchContext context)
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			return super.search(queries, exactSearch, conjunctive, proximity, scorer, context);
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
 	@Override
 	public ArrayList<InvertedIndex.SearchResult> partialSearch(Set<String> lineQuery)
 	{
@@ -91,6 +174,246 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 		}
 	}
 
+	@Override
+	public boolean remove(String location)
+	{
+		lock.writeLock().lock();
+
+		try
+		{
+			return super.remove(location);
+		}
+
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void replace(String location, InvertedIndex other)
+	{
+		lock.writeLock().lock();
+
+		try
+		{
+			super.replace(location, other);
+		}
+
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void purge()
+	{
+		lock.writeLock().lock();
+
+		try
+		{
+			super.purge();
+		}
+
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void setPrefixLength(int length)
+	{
+		lock.writeLock().lock();
+
+		try
+		{
+			super.setPrefixLength(length);
+		}
+
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void setMaxEdits(int edits)
+	{
+		lock.writeLock().lock();
+
+		try
+		{
+			super.setMaxEdits(edits);
+		}
+
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	CollectionStatistics collect(Collection<SearchQuery> queries, boolean exactSearch, SearchContext context)
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			return super.collect(queries, exactSearch, context);
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	QueryPlan plan(SearchQuery query, boolean exactSearch, boolean conjunctive, Scorer scorer, int k, SearchContext context)
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			return super.plan(query, exactSearch, conjunctive, scorer, k, context);
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	List<List<String>> matchedTerms(SearchQuery query, boolean exactSearch, SearchContext context)
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			return super.matchedTerms(query, exactSearch, context);
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void boost(List<InvertedIndex.SearchResult> candidates, List<List<String>> terms)
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			super.boost(candidates, terms);
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	List<SearchExplanation.Result> breakdown(SearchQuery query, boolean exactSearch, Scorer scorer, List<InvertedIndex.SearchResult> results, SearchContext context)
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			return super.breakdown(query, exactSearch, scorer, results, context);
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void prepareGrams()
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			super.prepareGrams();
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String gramReport()
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			return super.gramReport();
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String prefixReport()
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			return super.prefixReport();
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void freeze()
+	{
+		lock.writeLock().lock();
+
+		try
+		{
+			super.freeze();
+		}
+
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public Set<String> getDocuments()
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			return super.getDocuments();
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
 	@Override
 	public Set<String> getWords()
 	{
@@ -187,6 +510,22 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 		}
 	}
 
+	@Override
+	public long getVersion()
+	{
+		lock.readLock().lock();
+
+		try
+		{
+			return super.getVersion();
+		}
+
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
 	@Override
 	public int sizeWords()
 	{
@@ -238,7 +577,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 	@Override
 	public void indexToJson(Path output) throws IOException
 	{
-		lock.readLock().lock();
+		lock.writeLock().lock();
 
 		try
 		{
@@ -247,7 +586,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 
 		finally
 		{
-			lock.readLock().unlock();
+			lock.writeLock().unlock();
 		}
 	}
 
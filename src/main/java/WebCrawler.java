@@ -1,4 +1,5 @@
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
@@ -30,6 +31,11 @@ public class WebCrawler
 	 */
 	private Set<URL> crawledLinks;
 
+	/**
+	 * The tracker used to skip duplicate pages, or null to index every page
+	 */
+	private final DuplicateTracker duplicates;
+
 	/**
 	 * Initializes the necessary data structures for this class
 	 *
@@ -38,10 +44,24 @@ public class WebCrawler
 	 * @param MAX Max number of URL links to crawl
 	 */
 	public WebCrawler(ThreadSafeInvertedIndex index, WorkQueue tasks, int MAX)
+	{
+		this(index, tasks, MAX, null);
+	}
+
+	/**
+	 * Initializes the necessary data structures for this class
+	 *
+	 * @param index The thread safe inverted index to use
+	 * @param tasks The work queue to use
+	 * @param MAX Max number of URL links to crawl
+	 * @param duplicates The tracker used to skip duplicate pages, or null to index every page
+	 */
+	public WebCrawler(ThreadSafeInvertedIndex index, WorkQueue tasks, int MAX, DuplicateTracker duplicates)
 	{
 		this.index = index;
 		this.tasks = tasks;
 		this.MAX = MAX;
+		this.duplicates = duplicates;
 		crawledLinks = new HashSet<URL>();
 	}
 
@@ -53,7 +73,7 @@ public class WebCrawler
 	public void crawlUrl(URL url)
 	{
 		crawledLinks.add(url);
-		tasks.execute(new Task(index, url, tasks, crawledLinks, MAX));
+		tasks.execute(new Task(index, url, tasks, crawledLinks, MAX, duplicates));
 		tasks.finish();
 	}
 
@@ -88,6 +108,11 @@ public class WebCrawler
 		 */
 		private Set<URL> crawledLinks;
 
+		/**
+		 * The tracker used to skip duplicate pages, or null to index every page
+		 */
+		private final DuplicateTracker duplicates;
+
 		/**
 		 * Initializes the members for this class
 		 *
@@ -96,14 +121,17 @@ public class WebCrawler
 		 * @param tasks - The work queue to use
 		 * @param crawledLinks - Data structure to track links that have been processed
 		 * @param MAX - Max number of URL links to crawl
+		 * @param duplicates - The tracker used to skip duplicate pages, or null to index every page
 		 */
-		public Task(ThreadSafeInvertedIndex index, URL url, WorkQueue tasks, Set<URL> crawledLinks, int MAX)
+		public Task(ThreadSafeInvertedIndex index, URL url, WorkQueue tasks, Set<URL> crawledLinks, int MAX,
+				DuplicateTracker duplicates)
 		{
 			this.index = index;
 			this.url = url;
 			this.tasks = tasks;
 			this.crawledLinks = crawledLinks;
 			this.MAX = MAX;
+			this.duplicates = duplicates;
 		}
 
 		@Override
@@ -118,6 +146,10 @@ public class WebCrawler
 
 			if (html != null)
 			{
+				// fingerprint the page before any parsing, but still follow its links below
+				boolean duplicate = duplicates != null
+						&& duplicates.register(location, html.getBytes(StandardCharsets.UTF_8)) != null;
+
 				html = HtmlCleaner.stripBlockElements(html);
 				links = LinkParser.getValidLinks(url, html);
 
@@ -133,10 +165,15 @@ public class WebCrawler
 						if (!crawledLinks.contains(url))
 						{
 							crawledLinks.add(url);
-							tasks.execute(new Task(index, url, tasks, crawledLinks, MAX));
+							tasks.execute(new Task(index, url, tasks, crawledLinks, MAX, duplicates));
 						}
 					}
 				}
+
+				if (duplicate)
+				{
+					return;
+				}
 				
 				for (String stem : TextStemmer.listStems(HtmlCleaner.stripHtml(html)))
 				{
@@ -149,6 +186,13 @@ public class WebCrawler
 			{
 				return; 
 			}
+
+			// the tracker adds the page itself, replacing a copy with a larger URL added before it
+			if (duplicates != null)
+			{
+				duplicates.add(location, local, index);
+				return;
+			}
 			
 			synchronized(index)
 			{